@@ -9,10 +9,12 @@ import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 // 启用数据库功能，移除数据源自动配置的排除项
 @SpringBootApplication
-
+// 启用定时任务（座位台账回写与对账）
+@EnableScheduling
 
 public class CampusCourseSelectionSystemApplication {
 
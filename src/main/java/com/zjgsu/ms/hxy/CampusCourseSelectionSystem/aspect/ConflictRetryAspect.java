@@ -0,0 +1,185 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.MetricsProvider;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConflictRetryAspect 类
+ * 为 {@link RetryOnConflict} 标注的方法提供并发冲突重试：
+ * 捕获乐观锁冲突、死锁和锁等待超时（均为 ConcurrencyFailureException），
+ * 以及开启 retryOnDuplicateKey 时的唯一约束冲突（非空、外键、检查约束等其他完整性错误重试也无法成功，不重试），
+ * 按指数退避加随机抖动等待后重新执行，超过最大次数后抛出最后一次的异常
+ *
+ * 切面顺序在事务切面之外，每次重试都在新的事务中执行
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ConflictRetryAspect implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(ConflictRetryAspect.class);
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+
+    /**
+     * 操作名称 -> 该操作的冲突统计
+     */
+    private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    /**
+     * 冲突异常类型 -> 出现次数
+     */
+    private final ConcurrentHashMap<String, LongAdder> conflictTypes = new ConcurrentHashMap<>();
+
+    public ConflictRetryAspect(@Value("${campus.retry.max-attempts:4}") int maxAttempts,
+                               @Value("${campus.retry.initial-backoff-ms:10}") long initialBackoffMillis,
+                               @Value("${campus.retry.max-backoff-ms:200}") long maxBackoffMillis) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoffMillis = Math.max(initialBackoffMillis, 1);
+        this.maxBackoffMillis = Math.max(maxBackoffMillis, this.initialBackoffMillis);
+    }
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        // 已处于外层事务中：单独重试无法回滚外层已做的修改，交给最外层处理
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        invocations.increment();
+        int attempt = 1;
+        while (true) {
+            try {
+                Object result = joinPoint.proceed();
+                if (attempt > 1) {
+                    recovered.increment();
+                    statsFor(operation).recovered.increment();
+                }
+                return result;
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (e instanceof DataIntegrityViolationException
+                        && (!retryOnConflict.retryOnDuplicateKey() || !isDuplicateKey(e))) {
+                    throw e;
+                }
+                conflictTypes.computeIfAbsent(e.getClass().getSimpleName(), key -> new LongAdder()).increment();
+                if (attempt >= maxAttempts) {
+                    giveUps.increment();
+                    statsFor(operation).giveUps.increment();
+                    log.warn("{} 连续 {} 次发生并发冲突，放弃重试: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                statsFor(operation).retries.increment();
+                log.debug("{} 第 {} 次执行发生并发冲突，准备重试: {}", operation, attempt, e.getMessage());
+                backoff(attempt);
+                attempt++;
+            }
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "conflictRetry";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> perOperation = new TreeMap<>();
+        operations.forEach((name, stats) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("retries", stats.retries.sum());
+            values.put("recovered", stats.recovered.sum());
+            values.put("giveUps", stats.giveUps.sum());
+            perOperation.put(name, values);
+        });
+        Map<String, Object> types = new TreeMap<>();
+        conflictTypes.forEach((name, count) -> types.put(name, count.sum()));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxAttempts", maxAttempts);
+        metrics.put("invocations", invocations.sum());
+        metrics.put("retries", retries.sum());
+        metrics.put("recovered", recovered.sum());
+        metrics.put("giveUps", giveUps.sum());
+        metrics.put("conflictTypes", types);
+        metrics.put("operations", perOperation);
+        return metrics;
+    }
+
+    /**
+     * 判断完整性错误是否为唯一约束冲突
+     * 优先按 Hibernate 识别出的约束类型判断，否则按 SQL 状态码：23505（H2、PostgreSQL），
+     * 或 23000 且错误码为 1062（MySQL 的 Duplicate entry）
+     */
+    static boolean isDuplicateKey(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException) {
+                String sqlState = sqlException.getSQLState();
+                if ("23505".equals(sqlState)
+                        || ("23000".equals(sqlState) && sqlException.getErrorCode() == 1062)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 指数退避加随机抖动：在 [上限/2, 上限] 之间随机等待，避免冲突双方同时重试再次冲突
+     */
+    private void backoff(int attempt) throws InterruptedException {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        long half = ceiling / 2;
+        Thread.sleep(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+
+    private OperationStats statsFor(String operation) {
+        return operations.computeIfAbsent(operation, key -> new OperationStats());
+    }
+
+    /**
+     * 单个操作的冲突统计
+     */
+    private static final class OperationStats {
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder recovered = new LongAdder();
+        private final LongAdder giveUps = new LongAdder();
+    }
+}
@@ -0,0 +1,264 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.MetricsProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IdempotencyAspect 类
+ * 为 {@link Idempotent} 标注的控制器方法提供 Idempotency-Key 支持：
+ * 以 请求方法 + 路径 + 幂等键 为范围保存第一次请求的响应，有效期内的重复请求直接重放该响应，
+ * 响应头带 Idempotent-Replayed: true；第一次请求仍在处理时，重复请求等待其结果而不是再执行一次
+ *
+ * 同一幂等键携带不同请求参数时返回 422；未携带请求头的请求不受影响
+ *
+ * 5xx 响应和标记为结果未知的响应（如课程通道等待超时返回的 202）不保存，以相同幂等键重试时重新执行
+ *
+ * 响应保存在内存中，条目数有上限，按创建顺序过期和淘汰
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Aspect
+@Component
+public class IdempotencyAspect implements MetricsProvider {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * 请求属性：本次请求的结果未知，响应不保存
+     */
+    private static final String OUTCOME_UNKNOWN_ATTRIBUTE = IdempotencyAspect.class.getName() + ".OUTCOME_UNKNOWN";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitTimeoutMillis;
+
+    /**
+     * 范围键 -> 幂等记录，按创建顺序排列，过期时间相同因此头部最先过期；访问需同步
+     */
+    private final LinkedHashMap<String, IdempotencyRecord> records;
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder waitTimeouts = new LongAdder();
+    private final LongAdder notStored = new LongAdder();
+
+    public IdempotencyAspect(ObjectMapper objectMapper,
+                             @Value("${campus.idempotency.enabled:true}") boolean enabled,
+                             @Value("${campus.idempotency.ttl-minutes:60}") long ttlMinutes,
+                             @Value("${campus.idempotency.max-entries:10000}") int maxEntries,
+                             @Value("${campus.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(Math.max(ttlMinutes, 1));
+        this.maxEntries = Math.max(maxEntries, 1);
+        this.waitTimeoutMillis = Math.max(waitTimeoutMillis, 1);
+        this.records = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > IdempotencyAspect.this.maxEntries;
+            }
+        };
+    }
+
+    @Around("@annotation(idempotent)")
+    public Object handleIdempotencyKey(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
+        HttpServletRequest request = currentRequest();
+        String key = request == null ? null : request.getHeader(KEY_HEADER);
+        if (!enabled || !StringUtils.hasText(key)) {
+            return joinPoint.proceed();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return errorResponse(HttpStatus.BAD_REQUEST, KEY_HEADER + " 长度不能超过 " + MAX_KEY_LENGTH);
+        }
+
+        String scope = request.getMethod() + " " + request.getRequestURI() + " " + key;
+        String fingerprint = fingerprint(joinPoint.getArgs());
+        long now = System.currentTimeMillis();
+        IdempotencyRecord record;
+        boolean first = false;
+        synchronized (records) {
+            purgeExpired(now);
+            record = records.get(scope);
+            if (record == null) {
+                record = new IdempotencyRecord(fingerprint, now + ttlMillis);
+                records.put(scope, record);
+                first = true;
+            }
+        }
+
+        if (!first) {
+            if (!record.fingerprint.equals(fingerprint)) {
+                mismatched.increment();
+                return errorResponse(HttpStatus.UNPROCESSABLE_ENTITY, "相同的 " + KEY_HEADER + " 已用于不同的请求参数");
+            }
+            return replay(record);
+        }
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            forget(scope, record);
+            record.response.completeExceptionally(e);
+            throw e;
+        }
+        if (result instanceof ResponseEntity<?> response && !response.getStatusCode().is5xxServerError()
+                && request.getAttribute(OUTCOME_UNKNOWN_ATTRIBUTE) == null) {
+            stored.increment();
+        } else {
+            // 服务端错误和结果未知的响应不保存，客户端重试时重新执行；正在等待的重复请求仍得到本次结果
+            notStored.increment();
+            forget(scope, record);
+        }
+        record.response.complete(result);
+        return result;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "idempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        synchronized (records) {
+            metrics.put("entries", records.size());
+        }
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("stored", stored.sum());
+        metrics.put("replayed", replayed.sum());
+        metrics.put("waitedForInFlight", waited.sum());
+        metrics.put("mismatched", mismatched.sum());
+        metrics.put("waitTimeouts", waitTimeouts.sum());
+        metrics.put("notStored", notStored.sum());
+        return metrics;
+    }
+
+    /**
+     * 重放第一次请求的响应；第一次请求仍在处理时等待其完成
+     */
+    private Object replay(IdempotencyRecord record) throws Throwable {
+        Object result;
+        if (record.response.isDone()) {
+            replayed.increment();
+        } else {
+            waited.increment();
+        }
+        try {
+            result = record.response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            waitTimeouts.increment();
+            return errorResponse(HttpStatus.CONFLICT, "相同 " + KEY_HEADER + " 的请求仍在处理中，请稍后重试");
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+        if (result instanceof ResponseEntity<?> response) {
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(response.getBody());
+        }
+        return result;
+    }
+
+    /**
+     * 标记当前请求的结果未知（如命令已开始执行但等待超时），幂等切面不保存其响应；
+     * 客户端以相同幂等键重试时重新执行，由业务规则识别已完成的操作
+     */
+    public static void markOutcomeUnknown() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(OUTCOME_UNKNOWN_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private void forget(String scope, IdempotencyRecord record) {
+        synchronized (records) {
+            records.remove(scope, record);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<IdempotencyRecord> iterator = records.values().iterator();
+        while (iterator.hasNext()) {
+            IdempotencyRecord record = iterator.next();
+            if (record.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 请求参数指纹：参数序列化为 JSON，无法序列化时退化为 toString
+     */
+    private String fingerprint(Object[] args) {
+        try {
+            return objectMapper.writeValueAsString(args);
+        } catch (JsonProcessingException e) {
+            return Arrays.deepToString(args);
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null;
+    }
+
+    private static ResponseEntity<Map<String, Object>> errorResponse(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", status.value());
+        response.put("message", message);
+        response.put("data", null);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * 一个幂等键对应的记录，第一次请求完成后保存其响应
+     */
+    private static final class IdempotencyRecord {
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        private IdempotencyRecord(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
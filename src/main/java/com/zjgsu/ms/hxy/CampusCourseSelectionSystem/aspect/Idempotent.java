@@ -0,0 +1,24 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 幂等请求注解
+ * 标注的控制器方法支持 Idempotency-Key 请求头：携带相同键的重复请求由 {@link IdempotencyAspect}
+ * 直接重放第一次的响应，不再进入服务层；第一次请求仍在处理时，重复请求等待其结果
+ *
+ * 方法返回值应为 ResponseEntity，5xx 响应不保存，客户端重试时重新执行
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
@@ -0,0 +1,30 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 并发冲突自动重试注解
+ * 标注的服务方法在遇到乐观锁冲突、死锁或锁等待超时时，由 {@link ConflictRetryAspect}
+ * 以带抖动的退避重新执行整个方法（包括其事务），重试次数有上限
+ *
+ * 方法在已有事务中被调用时不会单独重试，冲突交给最外层的重试处理
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    /**
+     * 是否在违反唯一约束时也重试
+     * 适用于“先查询后插入”的写入：并发插入同一唯一键时，重试会读到对方已提交的记录并按已存在处理
+     */
+    boolean retryOnDuplicateKey() default false;
+}
@@ -0,0 +1,92 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ConcurrencyLimitInterceptor 类
+ * 按自适应并发限制放行请求，超过限制的请求立即返回 503 和 Retry-After，不排队等待
+ * 请求完成后把耗时回报给限制器：5xx 视为过载信号收缩限制，4xx 不参与调整
+ *
+ * 每组接口一个实例，由 {@link WebMvcConfig} 按路径注册
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Set<String> methods;
+    private final ObjectMapper objectMapper;
+    private final String startAttribute;
+    private final String inflightAttribute;
+
+    /**
+     * @param limiter 该组接口的并发限制
+     * @param methods 受限的 HTTP 方法
+     * @param objectMapper 用于写出拒绝响应
+     */
+    public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimiter limiter, Set<String> methods, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.methods = methods;
+        this.objectMapper = objectMapper;
+        this.startAttribute = ConcurrencyLimitInterceptor.class.getName() + "." + limiter.getName() + ".start";
+        this.inflightAttribute = ConcurrencyLimitInterceptor.class.getName() + "." + limiter.getName() + ".inflight";
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!methods.contains(request.getMethod())) {
+            return true;
+        }
+        int inflight = limiter.tryAcquire();
+        if (inflight < 0) {
+            writeRejected(response);
+            return false;
+        }
+        request.setAttribute(startAttribute, System.nanoTime());
+        request.setAttribute(inflightAttribute, inflight);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(startAttribute);
+        if (!(start instanceof Long startNanos)) {
+            return;
+        }
+        int status = response.getStatus();
+        if (ex != null || status >= 500) {
+            limiter.onDropped();
+        } else if (status >= 400) {
+            limiter.onIgnored();
+        } else {
+            limiter.onSuccess(System.nanoTime() - startNanos, (Integer) request.getAttribute(inflightAttribute));
+        }
+    }
+
+    private void writeRejected(HttpServletResponse response) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("code", 503);
+        body.put("message", "服务繁忙，请稍后重试");
+        body.put("data", null);
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
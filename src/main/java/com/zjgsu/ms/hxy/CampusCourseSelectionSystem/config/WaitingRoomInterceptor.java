@@ -0,0 +1,87 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.WaitingRoomService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WaitingRoomInterceptor 类
+ * 选课写接口前的等候室：持有效准入令牌的请求直接放行；
+ * 其余请求由等候室决定直接准入（响应头返回新令牌）或返回 503 和排队位置，不进入业务层
+ * 已准入请求的处理耗时回报给等候室，用于调整准入速率
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class WaitingRoomInterceptor implements HandlerInterceptor {
+
+    public static final String ADMISSION_HEADER = "X-Admission-Token";
+    public static final String QUEUE_HEADER = "X-Queue-Token";
+
+    private static final String START_ATTRIBUTE = WaitingRoomInterceptor.class.getName() + ".start";
+
+    private final WaitingRoomService waitingRoomService;
+    private final ObjectMapper objectMapper;
+
+    public WaitingRoomInterceptor(WaitingRoomService waitingRoomService, ObjectMapper objectMapper) {
+        this.waitingRoomService = waitingRoomService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!waitingRoomService.isEnabled() || !HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        if (!waitingRoomService.isAdmitted(request.getHeader(ADMISSION_HEADER))) {
+            WaitingRoomService.Admission admission = waitingRoomService.enter(request.getHeader(QUEUE_HEADER));
+            if (!admission.isAdmitted()) {
+                writeQueued(response, admission);
+                return false;
+            }
+            response.setHeader(ADMISSION_HEADER, admission.getAdmissionToken());
+        }
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start instanceof Long startNanos) {
+            waitingRoomService.recordLatency(System.nanoTime() - startNanos);
+        }
+    }
+
+    private void writeQueued(HttpServletResponse response, WaitingRoomService.Admission admission) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("position", admission.getPosition());
+        data.put("estimatedWaitSeconds", admission.getEstimatedWaitSeconds());
+        data.put("queueToken", admission.getQueueToken());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("code", 503);
+        body.put("message", "当前选课人数较多，已为您排队，请携带排队令牌稍后重试");
+        body.put("data", data);
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", Long.toString(admission.getEstimatedWaitSeconds()));
+        response.setHeader(QUEUE_HEADER, admission.getQueueToken());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
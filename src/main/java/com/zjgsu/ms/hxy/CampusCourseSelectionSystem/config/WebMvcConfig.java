@@ -0,0 +1,55 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.ConcurrencyLimitService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Set;
+
+/**
+ * WebMvcConfig 类
+ * Web 层配置：注册拦截器
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final WaitingRoomInterceptor waitingRoomInterceptor;
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final ObjectMapper objectMapper;
+
+    public WebMvcConfig(WaitingRoomInterceptor waitingRoomInterceptor,
+                        ConcurrencyLimitService concurrencyLimitService,
+                        ObjectMapper objectMapper) {
+        this.waitingRoomInterceptor = waitingRoomInterceptor;
+        this.concurrencyLimitService = concurrencyLimitService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 等候室只拦截会占座的选课写接口
+        registry.addInterceptor(waitingRoomInterceptor)
+                .addPathPatterns("/api/enrollments", "/api/enrollments/batch", "/api/enrollments/tickets",
+                        "/api/courses/*/holds", "/api/courses/*/holds/*/confirm");
+
+        if (!concurrencyLimitService.isEnabled()) {
+            return;
+        }
+        // 选课写接口与课程目录读接口分别限流，互不占用对方的并发名额
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimitService.getWriteLimiter(),
+                        Set.of("POST", "PUT", "DELETE"), objectMapper))
+                .addPathPatterns("/api/enrollments", "/api/enrollments/batch", "/api/enrollments/tickets",
+                        "/api/enrollments/waitlist", "/api/enrollments/*/status", "/api/enrollments/*/grade",
+                        "/api/enrollments/course/*/student/*",
+                        "/api/courses/*/holds", "/api/courses/*/holds/*", "/api/courses/*/holds/*/confirm");
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimitService.getReadLimiter(),
+                        Set.of("GET"), objectMapper))
+                .addPathPatterns("/api/courses", "/api/courses/**");
+    }
+}
@@ -1,7 +1,16 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.controller;
 
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.Idempotent;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.IdempotencyAspect;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.SeatHold;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.CourseCommandExecutor;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.CourseService;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.EnrollmentService;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.SeatHoldService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,26 +34,45 @@ import java.util.HashMap;
 public class CourseController {
 
     private final CourseService courseService;
+    private final CourseCommandExecutor courseCommandExecutor;
+    private final SeatHoldService seatHoldService;
+    private final EnrollmentService enrollmentService;
 
     @Autowired
-    public CourseController(CourseService courseService) {
+    public CourseController(CourseService courseService, CourseCommandExecutor courseCommandExecutor,
+                            SeatHoldService seatHoldService, EnrollmentService enrollmentService) {
         this.courseService = courseService;
+        this.courseCommandExecutor = courseCommandExecutor;
+        this.seatHoldService = seatHoldService;
+        this.enrollmentService = enrollmentService;
     }
 
     /**
-     * 查询所有课程
-     * GET /api/courses
-     * @return 课程列表
+     * 游标分页查询课程，按主键排序
+     * GET /api/courses?after=&limit=
+     * @param after 上一页返回的 nextCursor，为空表示第一页
+     * @param limit 每页条数，默认100，最大1000
+     * @return 一页课程；nextCursor 为下一页游标，hasMore 为false时已到末页
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllCourses() {
+    public ResponseEntity<Map<String, Object>> getAllCourses(@RequestParam(required = false) String after,
+                                                             @RequestParam(required = false) Integer limit) {
         try {
-            List<Course> courses = courseService.getAllCourses();
+            CursorPage<Course> page = courseService.getCoursesPage(after, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "Success");
-            response.put("data", courses);
+            response.put("data", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("limit", page.getLimit());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -94,6 +122,7 @@ public class CourseController {
      * @param course 课程信息
      * @return 创建后的课程
      */
+    @Idempotent
     @PostMapping
     public ResponseEntity<Map<String, Object>> createCourse(@RequestBody Course course) {
         try {
@@ -129,7 +158,8 @@ public class CourseController {
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, Object>> updateCourse(@PathVariable UUID id, @RequestBody Course course) {
         try {
-            return courseService.updateCourse(id, course)
+            // 容量修改与该课程的选课、退课在同一通道上串行
+            return courseCommandExecutor.execute(id.toString(), () -> courseService.updateCourse(id, course))
                     .map(updatedCourse -> {
                         Map<String, Object> response = new HashMap<>();
                         response.put("code", 200);
@@ -150,6 +180,15 @@ public class CourseController {
             response.put("message", e.getMessage());
             response.put("data", null);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -255,10 +294,10 @@ public class CourseController {
     }
 
     /**
-     * 根据标题搜索课程
+     * 根据关键词搜索课程（标题、课程编号、描述）
      * GET /api/courses/search
      * @param keyword 搜索关键词
-     * @return 匹配的课程列表
+     * @return 匹配的课程列表，按相关度排序，至多 campus.course-search.max-results 条
      */
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchCoursesByTitle(@RequestParam String keyword) {
@@ -283,4 +322,132 @@ public class CourseController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 保留课程座位
+     * POST /api/courses/{id}/holds
+     * Content-Type: application/json
+     * @param id 课程ID
+     * @param request 保留请求（studentId，可选 minutes）
+     * @return 座位保留
+     */
+    @Idempotent
+    @PostMapping("/{id}/holds")
+    public ResponseEntity<Map<String, Object>> placeSeatHold(@PathVariable UUID id, @RequestBody Map<String, Object> request) {
+        try {
+            Object studentId = request.get("studentId");
+            if (studentId == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "studentId 不能为空");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            Object minutes = request.get("minutes");
+            if (minutes != null && !(minutes instanceof Number)) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "minutes 必须是整数");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+
+            SeatHold hold = seatHoldService.placeHold(id.toString(), studentId.toString(),
+                    minutes == null ? null : ((Number) minutes).intValue());
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 201);
+            response.put("message", "座位保留成功");
+            response.put("data", hold);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "保留座位失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 确认座位保留，转为选课记录
+     * POST /api/courses/{id}/holds/{holdId}/confirm
+     * @param id 课程ID
+     * @param holdId 保留ID
+     * @return 创建后的选课记录
+     */
+    @Idempotent
+    @PostMapping("/{id}/holds/{holdId}/confirm")
+    public ResponseEntity<Map<String, Object>> confirmSeatHold(@PathVariable UUID id, @PathVariable UUID holdId) {
+        try {
+            // 与该课程的选课、退课在同一通道上串行
+            Enrollment enrollment = courseCommandExecutor.execute(id.toString(),
+                    () -> enrollmentService.confirmSeatHold(id.toString(), holdId));
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 201);
+            response.put("message", "选课成功");
+            response.put("data", enrollment);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "确认座位保留失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 取消座位保留
+     * DELETE /api/courses/{id}/holds/{holdId}
+     * @param id 课程ID
+     * @param holdId 保留ID
+     * @return 取消结果
+     */
+    @DeleteMapping("/{id}/holds/{holdId}")
+    public ResponseEntity<Map<String, Object>> cancelSeatHold(@PathVariable UUID id, @PathVariable UUID holdId) {
+        try {
+            boolean owned = seatHoldService.getHold(holdId)
+                    .map(hold -> hold.getCourseId().equals(id.toString()))
+                    .orElse(false);
+            if (owned && seatHoldService.cancelHold(holdId)) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 204);
+                response.put("message", "座位保留已取消");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).body(response);
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 404);
+            response.put("message", "座位保留不存在或已过期，ID: " + holdId);
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "取消座位保留失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
@@ -1,14 +1,35 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.Idempotent;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.IdempotencyAspect;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.BatchEnrollmentResult;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.EnrollmentTicket;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.LotteryAllocationResult;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.LotteryEntry;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.CourseCommandExecutor;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.EnrollmentExportService;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.EnrollmentService;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.EnrollmentTicketService;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.LotteryService;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.RegistrationWindowService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.HashMap;
 
@@ -25,26 +46,56 @@ import java.util.HashMap;
 public class EnrollmentController {
 
     private final EnrollmentService enrollmentService;
+    private final CourseCommandExecutor courseCommandExecutor;
+    private final EnrollmentTicketService enrollmentTicketService;
+    private final LotteryService lotteryService;
+    private final RegistrationWindowService registrationWindowService;
+    private final EnrollmentExportService enrollmentExportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public EnrollmentController(EnrollmentService enrollmentService) {
+    public EnrollmentController(EnrollmentService enrollmentService,
+                                CourseCommandExecutor courseCommandExecutor,
+                                EnrollmentTicketService enrollmentTicketService,
+                                LotteryService lotteryService,
+                                RegistrationWindowService registrationWindowService,
+                                EnrollmentExportService enrollmentExportService,
+                                ObjectMapper objectMapper) {
         this.enrollmentService = enrollmentService;
+        this.courseCommandExecutor = courseCommandExecutor;
+        this.enrollmentTicketService = enrollmentTicketService;
+        this.lotteryService = lotteryService;
+        this.registrationWindowService = registrationWindowService;
+        this.enrollmentExportService = enrollmentExportService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * 查询所有选课记录
-     * GET /api/enrollments
-     * @return 选课记录列表
+     * 游标分页查询选课记录，按主键排序
+     * GET /api/enrollments?after=&limit=
+     * @param after 上一页返回的 nextCursor，为空表示第一页
+     * @param limit 每页条数，默认100，最大1000
+     * @return 一页选课记录；nextCursor 为下一页游标，hasMore 为false时已到末页
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllEnrollments() {
+    public ResponseEntity<Map<String, Object>> getAllEnrollments(@RequestParam(required = false) String after,
+                                                                 @RequestParam(required = false) Integer limit) {
         try {
-            List<Enrollment> enrollments = enrollmentService.getAllEnrollments();
+            CursorPage<Enrollment> page = enrollmentService.getEnrollmentsPage(after, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "Success");
-            response.put("data", enrollments);
+            response.put("data", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("limit", page.getLimit());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -54,6 +105,50 @@ public class EnrollmentController {
         }
     }
 
+    /**
+     * 以 NDJSON 流式导出选课记录，每行一条，按主键排序
+     * GET /api/enrollments/export?status=&courseId=
+     * 导出开始后出错时响应已提交，客户端收到的内容不完整
+     * @param status 选课状态，为空表示全部
+     * @param courseId 课程ID，为空表示全部
+     * @param response HTTP响应，记录直接写入其输出流
+     */
+    @GetMapping("/export")
+    public void exportEnrollments(@RequestParam(required = false) String status,
+                                  @RequestParam(required = false) String courseId,
+                                  HttpServletResponse response) throws IOException {
+        EnrollmentStatus statusFilter;
+        try {
+            statusFilter = enrollmentExportService.parseStatus(status);
+        } catch (IllegalArgumentException e) {
+            writeError(response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            OutputStream out = response.getOutputStream();
+            enrollmentExportService.export(statusFilter, courseId, out);
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.resetBuffer();
+            writeError(response, HttpStatus.INTERNAL_SERVER_ERROR, "导出选课记录失败: " + e.getMessage());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("code", status.value());
+        body.put("message", message);
+        body.put("data", null);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
     /**
      * 根据ID查询选课记录
      * GET /api/enrollments/{id}
@@ -91,9 +186,11 @@ public class EnrollmentController {
      * 学生选课
      * POST /api/enrollments
      * Content-Type: application/json
+     * 可携带 Idempotency-Key 请求头，客户端超时重试时重放第一次的响应
      * @param request 选课请求
      * @return 创建后的选课记录
      */
+    @Idempotent
     @PostMapping
     public ResponseEntity<Map<String, Object>> enrollCourse(@RequestBody Map<String, String> request) {
         try {
@@ -108,7 +205,11 @@ public class EnrollmentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            Enrollment enrollment = enrollmentService.enrollCourse(courseId, studentId);
+            // 在课程所属通道上串行执行，同一课程的选课和退课不再相互竞争；
+            // 启用组提交时由组提交线程串行执行，请求线程直接等待批次提交，不占用课程通道
+            Enrollment enrollment = enrollmentService.isGroupCommitEnabled()
+                    ? enrollmentService.enrollCourse(courseId, studentId)
+                    : courseCommandExecutor.execute(courseId, () -> enrollmentService.enrollCourse(courseId, studentId));
             Map<String, Object> response = new HashMap<>();
             response.put("code", 201);
             response.put("message", "选课成功");
@@ -121,6 +222,15 @@ public class EnrollmentController {
             response.put("message", e.getMessage());
             response.put("data", null);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -130,16 +240,357 @@ public class EnrollmentController {
         }
     }
 
+    /**
+     * 异步选课
+     * POST /api/enrollments/tickets
+     * Content-Type: application/json
+     * 请求入队后立即返回 202 和票据，不占用请求线程和数据库连接等待事务完成
+     * @param request 选课请求
+     * @return 处理中的票据，通过 GET /api/enrollments/tickets/{id} 查询结果
+     */
+    @Idempotent
+    @PostMapping("/tickets")
+    public ResponseEntity<Map<String, Object>> submitEnrollmentTicket(@RequestBody Map<String, String> request) {
+        try {
+            String courseId = request.get("courseId");
+            String studentId = request.get("studentId");
+
+            if (courseId == null || studentId == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "courseId 和 studentId 不能为空");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+
+            EnrollmentTicket ticket = enrollmentTicketService.submit(courseId, studentId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 202);
+            response.put("message", "选课请求已受理，请凭票据查询结果");
+            response.put("data", ticket);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/api/enrollments/tickets/" + ticket.getId())
+                    .body(response);
+
+        } catch (IllegalStateException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 503);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "提交选课请求失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 查询异步选课票据
+     * GET /api/enrollments/tickets/{id}
+     * 仅访问内存，状态为 PENDING 时客户端继续轮询
+     * @param id 票据ID
+     * @return 票据状态与选课结果
+     */
+    @GetMapping("/tickets/{id}")
+    public ResponseEntity<Map<String, Object>> getEnrollmentTicket(@PathVariable UUID id) {
+        return enrollmentTicketService.getTicket(id)
+                .map(ticket -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("code", 200);
+                    response.put("message", ticket.getMessage());
+                    response.put("data", ticket);
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("code", 404);
+                    response.put("message", "票据不存在或已过期，ID: " + id);
+                    response.put("data", null);
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                });
+    }
+
+    /**
+     * 抽签选课登记
+     * POST /api/enrollments/lottery
+     * Content-Type: application/json
+     * 登记期内只追加一条登记记录，座位在登记截止后统一抽签分配
+     * @param request 登记请求
+     * @return 登记记录
+     */
+    @Idempotent
+    @PostMapping("/lottery")
+    public ResponseEntity<Map<String, Object>> submitLotteryEntry(@RequestBody Map<String, String> request) {
+        try {
+            String courseId = request.get("courseId");
+            String studentId = request.get("studentId");
+
+            if (courseId == null || studentId == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "courseId 和 studentId 不能为空");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+
+            LotteryEntry entry = lotteryService.submitEntry(courseId, studentId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 202);
+            response.put("message", "抽签登记成功，结果将在登记截止后公布");
+            response.put("data", entry);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "抽签登记失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 执行抽签分配
+     * POST /api/enrollments/lottery/allocate
+     * 登记截止后会自动执行一次；重复执行只处理尚未分配的登记，可用于重跑失败的课程
+     * @return 分配结果汇总
+     */
+    @PostMapping("/lottery/allocate")
+    public ResponseEntity<Map<String, Object>> allocateLottery() {
+        try {
+            LotteryAllocationResult result = lotteryService.allocate();
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "抽签分配完成");
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 409);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "抽签分配失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 查询学生的选课时段
+     * GET /api/enrollments/registration-window?studentId=...
+     * @param studentId 学生ID或学号
+     * @return 学生所在批次、选课时段和当前是否开放
+     */
+    @GetMapping("/registration-window")
+    public ResponseEntity<Map<String, Object>> getRegistrationWindow(@RequestParam String studentId) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "Success");
+            response.put("data", registrationWindowService.describe(studentId));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "查询选课时段失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 批量选课（购物车结算）
+     * POST /api/enrollments/batch
+     * Content-Type: application/json
+     * 请求体：{"studentId": "...", "courseIds": ["...", "..."], "mode": "ALL_OR_NOTHING" | "BEST_EFFORT"}
+     * 每门课程在各自的课程通道上执行，全有全无模式下任一课程失败时撤销已成功的课程
+     * @param request 批量选课请求
+     * @return 每门课程的选课结果
+     */
+    @Idempotent
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> enrollCourses(@RequestBody Map<String, Object> request) {
+        try {
+            Object studentIdObj = request.get("studentId");
+            Object courseIdsObj = request.get("courseIds");
+            if (!(studentIdObj instanceof String) || !(courseIdsObj instanceof List<?> courseIdList)) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "studentId 和 courseIds 不能为空");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+
+            String mode = request.get("mode") == null ? "ALL_OR_NOTHING" : request.get("mode").toString();
+            boolean allOrNothing;
+            if ("ALL_OR_NOTHING".equalsIgnoreCase(mode)) {
+                allOrNothing = true;
+            } else if ("BEST_EFFORT".equalsIgnoreCase(mode)) {
+                allOrNothing = false;
+            } else {
+                throw new IllegalArgumentException("无效的批量选课模式: " + mode);
+            }
+
+            List<String> courseIds = courseIdList.stream().map(String::valueOf).toList();
+            List<BatchEnrollmentResult> results = enrollmentService.enrollCourses((String) studentIdObj, courseIds, allOrNothing);
+            long succeeded = results.stream().filter(BatchEnrollmentResult::isSuccess).count();
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("results", results);
+            data.put("succeeded", succeeded);
+            data.put("failed", results.size() - succeeded);
+
+            boolean allSucceeded = succeeded == results.size();
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", allSucceeded ? 201 : 200);
+            response.put("message", allSucceeded ? "批量选课成功" : "批量选课部分成功");
+            response.put("data", data);
+            return ResponseEntity.status(allSucceeded ? HttpStatus.CREATED : HttpStatus.OK).body(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "批量选课失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 加入课程候补队列
+     * POST /api/enrollments/waitlist
+     * Content-Type: application/json
+     * 课程已满时加入候补，有人退课时按先后自动递补；退出候补使用按课程和学生退课接口
+     * @param request 候补请求
+     * @return 候补记录及候补位置
+     */
+    @Idempotent
+    @PostMapping("/waitlist")
+    public ResponseEntity<Map<String, Object>> joinWaitlist(@RequestBody Map<String, String> request) {
+        try {
+            String courseId = request.get("courseId");
+            String studentId = request.get("studentId");
+
+            if (courseId == null || studentId == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("code", 400);
+                response.put("message", "courseId 和 studentId 不能为空");
+                response.put("data", null);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+
+            // 抽签阶段或不在选课时段内直接拒绝，不进入课程通道
+            enrollmentService.checkDirectEnrollmentOpen(studentId);
+
+            // 与该课程的退课递补在同一通道上串行
+            Enrollment enrollment = courseCommandExecutor.execute(courseId,
+                    () -> enrollmentService.joinWaitlist(courseId, studentId));
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("enrollment", enrollment);
+            data.put("position", enrollmentService.getWaitlistPosition(courseId, studentId).orElse(null));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 201);
+            response.put("message", "已加入候补队列");
+            response.put("data", data);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "加入候补失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 查询候补位置
+     * GET /api/enrollments/waitlist/course/{courseId}/student/{studentId}
+     * 仅访问内存，供客户端轮询，代替反复提交选课请求
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 候补位置与课程候补人数
+     */
+    @GetMapping("/waitlist/course/{courseId}/student/{studentId}")
+    public ResponseEntity<Map<String, Object>> getWaitlistPosition(
+            @PathVariable String courseId,
+            @PathVariable String studentId) {
+        try {
+            Integer position = enrollmentService.getWaitlistPosition(courseId, studentId).orElse(null);
+            Map<String, Object> data = new HashMap<>();
+            data.put("waitlisted", position != null);
+            data.put("position", position);
+            data.put("waitlistSize", enrollmentService.getWaitlistSize(courseId));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 200);
+            response.put("message", "Success");
+            response.put("data", data);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 500);
+            response.put("message", "查询候补位置失败: " + e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * 学生退课
      * DELETE /api/enrollments/{id}
+     * 在课程所属的执行通道上删除，释放的座位由候补队首递补
      * @param id 选课记录ID
      * @return 退课结果
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, Object>> withdrawEnrollment(@PathVariable UUID id) {
         try {
-            boolean deleted = enrollmentService.deleteEnrollment(id);
+            Optional<Enrollment> existing = enrollmentService.getEnrollmentById(id);
+            boolean deleted = existing.isPresent() && courseCommandExecutor.execute(existing.get().getCourseId(),
+                    () -> enrollmentService.deleteEnrollment(id));
             if (deleted) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("code", 204);
@@ -153,6 +604,15 @@ public class EnrollmentController {
                 response.put("data", null);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -174,7 +634,8 @@ public class EnrollmentController {
             @PathVariable String courseId,
             @PathVariable String studentId) {
         try {
-            boolean withdrawn = enrollmentService.withdrawCourse(courseId, studentId);
+            boolean withdrawn = courseCommandExecutor.execute(courseId,
+                    () -> enrollmentService.withdrawCourse(courseId, studentId));
             if (withdrawn) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("code", 204);
@@ -194,6 +655,15 @@ public class EnrollmentController {
             response.put("message", e.getMessage());
             response.put("data", null);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -296,6 +766,7 @@ public class EnrollmentController {
     /**
      * 更新选课状态
      * PUT /api/enrollments/{id}/status
+     * 在课程所属的执行通道上更新，状态变化涉及的座位占用与释放与该课程的选课、退课串行
      * @param id 选课记录ID
      * @param request 状态更新请求
      * @return 更新后的选课记录
@@ -314,7 +785,11 @@ public class EnrollmentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            return enrollmentService.updateEnrollmentStatus(id, status)
+            Optional<Enrollment> existing = enrollmentService.getEnrollmentById(id);
+            Optional<Enrollment> updated = existing.isEmpty() ? Optional.empty()
+                    : courseCommandExecutor.execute(existing.get().getCourseId(),
+                            () -> enrollmentService.updateEnrollmentStatus(id, status));
+            return updated
                     .map(enrollment -> {
                         Map<String, Object> response = new HashMap<>();
                         response.put("code", 200);
@@ -335,6 +810,15 @@ public class EnrollmentController {
             response.put("message", e.getMessage());
             response.put("data", null);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (CourseCommandTimeoutException e) {
+            // 已开始执行的命令结果未知，返回 202 由客户端稍后查询；未开始的已取消，可直接重试
+            Map<String, Object> response = new HashMap<>();
+            HttpStatus status = e.isStarted() ? HttpStatus.ACCEPTED : HttpStatus.SERVICE_UNAVAILABLE;
+            IdempotencyAspect.markOutcomeUnknown();
+            response.put("code", status.value());
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.status(status).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -3,6 +3,7 @@ package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.controller;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.MetricsProvider;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +17,9 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * 健康检查控制器
@@ -45,6 +48,9 @@ public class HealthController {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
+    @Autowired
+    private List<MetricsProvider> metricsProviders;
+
     /**
      * 数据库健康检查接口
      * GET /health/db
@@ -134,6 +140,27 @@ public class HealthController {
         return ResponseEntity.status(status).body(health);
     }
 
+    /**
+     * 运行指标接口
+     * GET /health/metrics
+     * 汇总各组件（执行通道等）的运行指标
+     *
+     * @return 运行指标
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        for (MetricsProvider provider : metricsProviders) {
+            metrics.put(provider.getMetricsName(), provider.getMetrics());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("metrics", metrics);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 应用健康检查接口
      * GET /health
@@ -1,5 +1,7 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.controller;
 
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.Idempotent;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,19 +34,31 @@ public class StudentController {
     }
 
     /**
-     * 查询所有学生
-     * GET /api/students
-     * @return 学生列表
+     * 游标分页查询学生，按主键排序
+     * GET /api/students?after=&limit=
+     * @param after 上一页返回的 nextCursor，为空表示第一页
+     * @param limit 每页条数，默认100，最大1000
+     * @return 一页学生；nextCursor 为下一页游标，hasMore 为false时已到末页
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllStudents() {
+    public ResponseEntity<Map<String, Object>> getAllStudents(@RequestParam(required = false) String after,
+                                                              @RequestParam(required = false) Integer limit) {
         try {
-            List<Student> students = studentService.getAllStudents();
+            CursorPage<Student> page = studentService.getStudentsPage(after, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "Success");
-            response.put("data", students);
+            response.put("data", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            response.put("limit", page.getLimit());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+            response.put("data", null);
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("code", 500);
@@ -94,6 +108,7 @@ public class StudentController {
      * @param student 学生信息
      * @return 创建后的学生
      */
+    @Idempotent
     @PostMapping
     public ResponseEntity<Map<String, Object>> createStudent(@RequestBody Student student) {
         try {
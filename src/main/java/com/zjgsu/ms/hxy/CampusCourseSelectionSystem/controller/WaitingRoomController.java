@@ -0,0 +1,65 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.controller;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.config.WaitingRoomInterceptor;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service.WaitingRoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WaitingRoomController 类
+ * 选课等候室的排队查询接口，只访问内存
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/waiting-room")
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @Autowired
+    public WaitingRoomController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    /**
+     * 查询排队状态
+     * GET /api/waiting-room/status
+     * 携带排队令牌时返回当前位置，轮到时返回准入令牌；不携带时领取新的排队号
+     * @param queueToken 排队令牌（请求头 X-Queue-Token）
+     * @return 排队位置或准入令牌
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus(
+            @RequestHeader(value = WaitingRoomInterceptor.QUEUE_HEADER, required = false) String queueToken) {
+        Map<String, Object> response = new HashMap<>();
+        if (!waitingRoomService.isEnabled()) {
+            response.put("code", 200);
+            response.put("message", "等候室未启用，可直接选课");
+            response.put("data", null);
+            return ResponseEntity.ok(response);
+        }
+        WaitingRoomService.Admission admission = waitingRoomService.enter(queueToken);
+        response.put("code", 200);
+        response.put("message", admission.isAdmitted() ? "已准入，请携带准入令牌选课" : "排队中");
+        response.put("data", admission);
+        if (admission.isAdmitted()) {
+            return ResponseEntity.ok()
+                    .header(WaitingRoomInterceptor.ADMISSION_HEADER, admission.getAdmissionToken())
+                    .body(response);
+        }
+        return ResponseEntity.ok()
+                .header("Retry-After", Long.toString(admission.getEstimatedWaitSeconds()))
+                .header(WaitingRoomInterceptor.QUEUE_HEADER, admission.getQueueToken())
+                .body(response);
+    }
+}
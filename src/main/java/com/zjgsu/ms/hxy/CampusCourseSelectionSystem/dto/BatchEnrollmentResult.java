@@ -0,0 +1,42 @@
+// BatchEnrollmentResult.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+
+/**
+ * 批量选课中单门课程的处理结果
+ */
+public class BatchEnrollmentResult {
+    private String courseId;
+    private boolean success;
+    private String message;
+    private Enrollment enrollment;
+
+    public static BatchEnrollmentResult success(String courseId, Enrollment enrollment) {
+        return new BatchEnrollmentResult(courseId, true, "选课成功", enrollment);
+    }
+
+    public static BatchEnrollmentResult failure(String courseId, String message) {
+        return new BatchEnrollmentResult(courseId, false, message, null);
+    }
+
+    public BatchEnrollmentResult(String courseId, boolean success, String message, Enrollment enrollment) {
+        this.courseId = courseId;
+        this.success = success;
+        this.message = message;
+        this.enrollment = enrollment;
+    }
+
+    // getters and setters
+    public String getCourseId() { return courseId; }
+    public void setCourseId(String courseId) { this.courseId = courseId; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Enrollment getEnrollment() { return enrollment; }
+    public void setEnrollment(Enrollment enrollment) { this.enrollment = enrollment; }
+}
@@ -0,0 +1,30 @@
+// CursorPage.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * nextCursor 为下一页的游标，作为下次请求的 after 参数；没有下一页时为null
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final int limit;
+
+    public CursorPage(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    // getters
+    public List<T> getItems() { return items; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean isHasMore() { return nextCursor != null; }
+
+    public int getLimit() { return limit; }
+}
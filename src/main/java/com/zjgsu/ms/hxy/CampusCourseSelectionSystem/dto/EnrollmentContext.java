@@ -0,0 +1,34 @@
+// EnrollmentContext.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+
+import java.util.UUID;
+
+/**
+ * 选课上下文快照
+ * 由一次查询同时加载学生、课程以及该学生在该课程下已有的选课记录，
+ * 选课流程的各项校验都基于此快照完成，不再逐项查询数据库
+ */
+public class EnrollmentContext {
+    private final UUID studentUuid;
+    private final Course course;
+    private final Enrollment existingEnrollment;
+
+    public EnrollmentContext(UUID studentUuid, Course course, Enrollment existingEnrollment) {
+        this.studentUuid = studentUuid;
+        this.course = course;
+        this.existingEnrollment = existingEnrollment;
+    }
+
+    // getters
+    public UUID getStudentUuid() { return studentUuid; }
+
+    public Course getCourse() { return course; }
+
+    /**
+     * 已有的选课记录（任意状态），没有时为null
+     */
+    public Enrollment getExistingEnrollment() { return existingEnrollment; }
+}
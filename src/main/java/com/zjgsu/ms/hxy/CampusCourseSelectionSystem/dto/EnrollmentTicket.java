@@ -0,0 +1,78 @@
+// EnrollmentTicket.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 异步选课票据
+ * 选课请求入队后立即返回票据，客户端凭票据ID轮询处理结果
+ */
+public class EnrollmentTicket {
+
+    /**
+     * 票据状态
+     */
+    public enum Status {
+        /** 排队中或处理中 */
+        PENDING,
+        /** 选课成功 */
+        SUCCEEDED,
+        /** 选课失败 */
+        FAILED
+    }
+
+    private final UUID id;
+    private final String courseId;
+    private final String studentId;
+    private final LocalDateTime createdAt;
+    private volatile Status status = Status.PENDING;
+    private volatile String message = "排队处理中";
+    private volatile Enrollment enrollment;
+    private volatile LocalDateTime completedAt;
+
+    public EnrollmentTicket(String courseId, String studentId) {
+        this.id = UUID.randomUUID();
+        this.courseId = courseId;
+        this.studentId = studentId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * 标记选课成功
+     */
+    public void succeed(Enrollment enrollment) {
+        this.enrollment = enrollment;
+        this.message = "选课成功";
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.SUCCEEDED;
+    }
+
+    /**
+     * 标记选课失败
+     */
+    public void fail(String message) {
+        this.message = message;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    // getters
+    public UUID getId() { return id; }
+
+    public String getCourseId() { return courseId; }
+
+    public String getStudentId() { return studentId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Status getStatus() { return status; }
+
+    public String getMessage() { return message; }
+
+    public Enrollment getEnrollment() { return enrollment; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+}
@@ -0,0 +1,47 @@
+// LotteryAllocationResult.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次抽签批量分配的汇总结果
+ */
+public class LotteryAllocationResult {
+    private final int courses;
+    private final int entries;
+    private final int enrolled;
+    private final int waitlisted;
+    private final int skipped;
+    private final int failedCourses;
+    private final long elapsedMillis;
+    private final LocalDateTime finishedAt;
+
+    public LotteryAllocationResult(int courses, int entries, int enrolled, int waitlisted,
+                                   int skipped, int failedCourses, long elapsedMillis) {
+        this.courses = courses;
+        this.entries = entries;
+        this.enrolled = enrolled;
+        this.waitlisted = waitlisted;
+        this.skipped = skipped;
+        this.failedCourses = failedCourses;
+        this.elapsedMillis = elapsedMillis;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    // getters
+    public int getCourses() { return courses; }
+
+    public int getEntries() { return entries; }
+
+    public int getEnrolled() { return enrolled; }
+
+    public int getWaitlisted() { return waitlisted; }
+
+    public int getSkipped() { return skipped; }
+
+    public int getFailedCourses() { return failedCourses; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+}
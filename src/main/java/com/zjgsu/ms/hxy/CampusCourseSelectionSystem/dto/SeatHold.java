@@ -0,0 +1,37 @@
+// SeatHold.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 座位保留
+ * 学生在结算前为课程保留一个座位，到期未确认则自动释放
+ */
+public class SeatHold {
+
+    private final UUID id;
+    private final String courseId;
+    private final String studentId;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime expiresAt;
+
+    public SeatHold(String courseId, String studentId, LocalDateTime expiresAt) {
+        this.id = UUID.randomUUID();
+        this.courseId = courseId;
+        this.studentId = studentId;
+        this.createdAt = LocalDateTime.now();
+        this.expiresAt = expiresAt;
+    }
+
+    // getters
+    public UUID getId() { return id; }
+
+    public String getCourseId() { return courseId; }
+
+    public String getStudentId() { return studentId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+}
@@ -0,0 +1,21 @@
+// CourseCommandTimeoutException.java
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception;
+
+/**
+ * 课程通道命令等待超时
+ * started 为false时命令尚未开始执行且已被取消，可直接重试；
+ * 为true时命令仍在执行，结果未知，应稍后查询而不是重新提交
+ */
+public class CourseCommandTimeoutException extends IllegalStateException {
+
+    private final boolean started;
+
+    public CourseCommandTimeoutException(String message, boolean started) {
+        super(message);
+        this.started = started;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+}
@@ -2,6 +2,7 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception;
 
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.ApiResponse;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -105,6 +106,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(response);
     }
 
+    /**
+     * 处理并发冲突异常
+     * 自动重试次数用尽后仍发生乐观锁冲突、死锁或锁等待超时时抛出
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ApiResponse<?>> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        ApiResponse<?> response = ApiResponse.error(HttpStatus.CONFLICT.value(), "数据正在被其他操作修改，请稍后重试");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     /**
      * 处理所有未捕获的异常（兜底处理）
      */
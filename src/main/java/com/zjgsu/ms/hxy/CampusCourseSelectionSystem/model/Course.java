@@ -108,6 +108,13 @@ public class Course {
     @Column(length = 200)
     private String location;
 
+    /**
+     * 乐观锁版本号，并发修改同一条记录时后提交者会失败并由重试切面重新执行
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // 默认构造函数
     public Course() {
     }
@@ -220,6 +227,14 @@ public class Course {
         this.location = location;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Course{" +
@@ -234,6 +249,7 @@ public class Course {
                 ", description='" + description + '\'' +
                 ", credits=" + credits +
                 ", location='" + location + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -71,6 +71,19 @@ public class Enrollment {
     @Column(precision = 5)
     private Double grade;
 
+    /**
+     * 加入候补队列的时间（仅候补状态有值），候补按此时间先后递补
+     */
+    @Column(name = "waitlisted_at")
+    private LocalDateTime waitlistedAt;
+
+    /**
+     * 乐观锁版本号，并发修改同一条记录时后提交者会失败并由重试切面重新执行
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // 默认构造函数
     public Enrollment() {
     }
@@ -168,6 +181,22 @@ public class Enrollment {
         this.grade = grade;
     }
 
+    public LocalDateTime getWaitlistedAt() {
+        return waitlistedAt;
+    }
+
+    public void setWaitlistedAt(LocalDateTime waitlistedAt) {
+        this.waitlistedAt = waitlistedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Enrollment{" +
@@ -177,6 +206,8 @@ public class Enrollment {
                 ", enrolledAt=" + enrolledAt +
                 ", status='" + status + '\'' +
                 ", grade=" + grade +
+                ", waitlistedAt=" + waitlistedAt +
+                ", version=" + version +
                 '}';
     }
 
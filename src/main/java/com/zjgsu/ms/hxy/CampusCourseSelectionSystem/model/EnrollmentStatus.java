@@ -26,6 +26,11 @@ public enum EnrollmentStatus {
     /**
      * 不及格
      */
-    FAILED
+    FAILED,
+
+    /**
+     * 候补中（课程已满，等待递补）
+     */
+    WAITLISTED
 }
 
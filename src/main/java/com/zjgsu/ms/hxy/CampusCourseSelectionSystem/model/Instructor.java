@@ -2,6 +2,8 @@ package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -15,6 +17,8 @@ import java.util.UUID;
  * @since 2024
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "campus.instructor")
 @Table(name = "instructors",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = "instructorId"),
@@ -0,0 +1,128 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * LotteryEntry 实体类
+ * 抽签选课的登记记录：登记期内只追加写入，不做容量判断，
+ * 登记期结束后由批量分配任务统一抽签产生选课记录
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Entity
+@Table(name = "lottery_entries",
+        indexes = {
+                @Index(name = "idx_lottery_course_id", columnList = "course_id"),
+                @Index(name = "idx_lottery_created_at", columnList = "created_at")
+        })
+public class LotteryEntry {
+
+    /**
+     * 唯一标识符，系统自动生成 UUID
+     */
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    /**
+     * 登记的课程 ID，对应 Course 实体的 id，必填
+     */
+    @NotBlank(message = "课程ID不能为空")
+    @Column(name = "course_id", nullable = false)
+    private String courseId;
+
+    /**
+     * 登记学生的标识，与选课记录相同，可为学生 id 或学号，必填
+     */
+    @NotBlank(message = "学生ID不能为空")
+    @Column(name = "student_id", nullable = false)
+    private String studentId;
+
+    /**
+     * 登记时间戳，系统自动生成
+     */
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 分配处理时间，未分配时为null；已处理的登记（含中签、候补和被跳过的）不再参与分配
+     */
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // 默认构造函数
+    public LotteryEntry() {
+    }
+
+    /**
+     * 带参构造函数（不含id和createdAt）
+     *
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     */
+    public LotteryEntry(String courseId, String studentId) {
+        this.courseId = courseId;
+        this.studentId = studentId;
+    }
+
+    // Getter 和 Setter 方法
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(String courseId) {
+        this.courseId = courseId;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(String studentId) {
+        this.studentId = studentId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "LotteryEntry{" +
+                "id=" + id +
+                ", courseId='" + courseId + '\'' +
+                ", studentId='" + studentId + '\'' +
+                ", createdAt=" + createdAt +
+                ", processedAt=" + processedAt +
+                '}';
+    }
+}
@@ -1,8 +1,11 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
 
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +15,8 @@ import java.util.UUID;
 /**
  * CourseRepository 接口
  * 使用 Spring Data JPA 实现数据库持久化，提供课程的 CRUD 操作
+ * 课程不进入 Hibernate 二级缓存：已选人数由下方的批量 UPDATE 频繁修改，每次都会使整个课程区域和课程查询结果失效；
+ * 按ID和编号的读取由 CourseCache 缓存，选课人数变化时只失效对应课程
  *
  * @author System
  * @version 1.1.0
@@ -47,6 +52,18 @@ public interface CourseRepository extends JpaRepository<Course, UUID> {
      * @return 匹配的课程列表
      */
     List<Course> findByTitleContaining(String keyword);
+
+    /**
+     * 按关键词在课程标题、课程编号和描述中模糊查询，忽略大小写，按标题排序
+     * 与内存搜索索引匹配相同的字段，在索引不可用时使用
+     * @param pattern LIKE 模式，通配符需以反斜杠转义
+     * @param limit 最多返回的条数
+     * @return 匹配的课程列表
+     */
+    @Query("SELECT c FROM Course c WHERE LOWER(c.title) LIKE :pattern ESCAPE '\\' " +
+            "OR LOWER(c.code) LIKE :pattern ESCAPE '\\' OR LOWER(c.description) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY c.title, c.code")
+    List<Course> searchByKeyword(@Param("pattern") String pattern, Limit limit);
     
     /**
      * 根据容量范围查找课程
@@ -83,4 +100,80 @@ public interface CourseRepository extends JpaRepository<Course, UUID> {
      */
     @Query("SELECT COUNT(c) FROM Course c WHERE c.enrolled < c.capacity")
     long countCoursesWithAvailableCapacity();
-}
\ No newline at end of file
+
+    /**
+     * 条件占座：仅当已选人数小于容量时将已选人数加一
+     * 单条 UPDATE 完成判断与写入，避免先查询再保存导致的超选和更新丢失
+     * 以下批量更新均使用 VERSIONED 递增版本号，使并发的整实体保存能检测到冲突
+     * @param id 课程ID
+     * @return 受影响行数，1 表示占座成功，0 表示课程不存在或已满
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = c.enrolled + 1 WHERE c.id = :id AND c.enrolled < c.capacity")
+    int reserveSeat(@Param("id") UUID id);
+
+    /**
+     * 原子地为课程一次占用多个座位，容量不足时不做任何修改
+     * @param id 课程ID
+     * @param count 占用的座位数
+     * @return 受影响行数，1 表示占座成功，0 表示课程不存在或剩余座位不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = c.enrolled + :count WHERE c.id = :id AND c.enrolled + :count <= c.capacity")
+    int reserveSeats(@Param("id") UUID id, @Param("count") int count);
+
+    /**
+     * 释放座位：仅当已选人数大于0时将已选人数减一
+     * @param id 课程ID
+     * @return 受影响行数，1 表示释放成功，0 表示课程不存在或已选人数为0
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = c.enrolled - 1 WHERE c.id = :id AND c.enrolled > 0")
+    int releaseSeat(@Param("id") UUID id);
+
+    /**
+     * 按增量调整课程已选人数（座位台账回写使用）
+     * @param id 课程ID
+     * @param delta 已选人数增量，可为负数
+     * @return 受影响行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = c.enrolled + :delta WHERE c.id = :id")
+    int adjustEnrolled(@Param("id") UUID id, @Param("delta") int delta);
+
+    /**
+     * 直接设置课程已选人数（座位台账对账使用）
+     * @param id 课程ID
+     * @param enrolled 已选人数
+     * @return 受影响行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = :enrolled WHERE c.id = :id")
+    int updateEnrolled(@Param("id") UUID id, @Param("enrolled") int enrolled);
+
+    /**
+     * 已选人数仍为预期值时设置为新值（启动时归还丢失的座位保留使用）
+     * @param id 课程ID
+     * @param expected 预期的当前已选人数
+     * @param enrolled 新的已选人数
+     * @return 受影响行数；期间已选人数发生变化时为0
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Course c SET c.enrolled = :enrolled WHERE c.id = :id AND c.enrolled = :expected")
+    int compareAndSetEnrolled(@Param("id") UUID id, @Param("expected") int expected, @Param("enrolled") int enrolled);
+
+    /**
+     * 按主键升序查询第一页课程（游标分页）
+     * @param limit 最多返回的条数
+     * @return 课程列表
+     */
+    List<Course> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * 按主键升序查询主键大于给定值的一页课程（游标分页，沿主键索引定位）
+     * @param id 上一页最后一条记录的主键
+     * @param limit 最多返回的条数
+     * @return 课程列表
+     */
+    List<Course> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+}
@@ -1,15 +1,24 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
 
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.EnrollmentContext;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * EnrollmentRepository 接口
@@ -31,6 +40,13 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, UUID> {
      */
     List<Enrollment> findByCourseId(String courseId);
 
+    /**
+     * 批量查找多门课程的选课记录
+     * @param courseIds 课程ID集合
+     * @return 这些课程的所有选课记录列表
+     */
+    List<Enrollment> findByCourseIdIn(Collection<String> courseIds);
+
     /**
      * 根据学生ID查找选课记录
      * @param studentId 学生ID
@@ -101,4 +117,110 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, UUID> {
      * @return 如果已选课返回true
      */
     boolean existsByCourseIdAndStudentIdAndStatus(String courseId, String studentId, EnrollmentStatus status);
-}
\ No newline at end of file
+
+    /**
+     * 检查学生是否已选某课程（排除指定的多个状态，如已退课和候补中）
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @param statuses 排除的状态
+     * @return 如果选课记录存在返回true
+     */
+    boolean existsByCourseIdAndStudentIdAndStatusNotIn(String courseId, String studentId, Collection<EnrollmentStatus> statuses);
+
+    /**
+     * 获取课程的选课人数（排除指定的多个状态，如已退课和候补中）
+     * @param courseId 课程ID
+     * @param statuses 排除的状态
+     * @return 该课程的选课人数
+     */
+    long countByCourseIdAndStatusNotIn(String courseId, Collection<EnrollmentStatus> statuses);
+
+    /**
+     * 获取学生的选课数量（排除指定的多个状态，如已退课和候补中）
+     * @param studentId 学生ID
+     * @param statuses 排除的状态
+     * @return 该学生的选课数量
+     */
+    long countByStudentIdAndStatusNotIn(String studentId, Collection<EnrollmentStatus> statuses);
+
+    /**
+     * 按加入候补时间顺序查找指定状态的选课记录（用于加载候补队列）
+     * @param status 选课状态
+     * @return 按候补时间升序排列的选课记录
+     */
+    List<Enrollment> findByStatusOrderByWaitlistedAtAsc(EnrollmentStatus status);
+
+    /**
+     * 候补递补：仅当记录仍处于候补状态时将其改为已选课
+     * @param id 选课记录ID
+     * @return 受影响行数，1 表示递补成功
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Enrollment e SET e.status = com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus.ENROLLED, " +
+            "e.waitlistedAt = null WHERE e.id = :id AND e.status = com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus.WAITLISTED")
+    int promoteWaitlisted(@Param("id") UUID id);
+
+    /**
+     * 退课后重新选课：将仍处于已退课状态的记录恢复为已选课，清空成绩和候补时间并更新选课时间
+     * 只执行一条 UPDATE，不需要先加载或合并实体；执行后清空持久化上下文，已加载的记录不会再按旧版本号保存
+     * @param ids 选课记录ID集合
+     * @param enrolledAt 新的选课时间
+     * @return 受影响行数，小于ID数表示有记录已被其他操作修改
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VERSIONED Enrollment e SET e.status = com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus.ENROLLED, " +
+            "e.grade = null, e.waitlistedAt = null, e.enrolledAt = :enrolledAt " +
+            "WHERE e.id IN :ids AND e.status = com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus.WITHDRAWN")
+    int reactivateWithdrawn(@Param("ids") Collection<UUID> ids, @Param("enrolledAt") LocalDateTime enrolledAt);
+
+    /**
+     * 一次查询加载选课上下文：学生、课程以及该学生在该课程下已有的选课记录
+     * 学生或课程不存在时返回空列表
+     * @param courseId 课程ID
+     * @param courseKey 课程ID字符串（选课记录中保存的形式）
+     * @param studentUuid 学生ID（UUID格式时），否则为null
+     * @param studentKey 学生ID或学号字符串
+     * @return 选课上下文，正常情况下至多一条
+     */
+    @Query("SELECT new com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.EnrollmentContext(s.id, c, e) " +
+            "FROM Student s, Course c " +
+            "LEFT JOIN Enrollment e ON e.courseId = :courseKey AND e.studentId = :studentKey " +
+            "WHERE c.id = :courseId AND (s.id = :studentUuid OR s.studentId = :studentKey)")
+    List<EnrollmentContext> loadEnrollmentContext(@Param("courseId") UUID courseId,
+                                                  @Param("courseKey") String courseKey,
+                                                  @Param("studentUuid") UUID studentUuid,
+                                                  @Param("studentKey") String studentKey);
+
+    /**
+     * 按主键升序查询第一页选课记录（游标分页）
+     * @param limit 最多返回的条数
+     * @return 选课记录列表
+     */
+    List<Enrollment> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * 按主键升序查询主键大于给定值的一页选课记录（游标分页，沿主键索引定位）
+     * @param id 上一页最后一条记录的主键
+     * @param limit 最多返回的条数
+     * @return 选课记录列表
+     */
+    List<Enrollment> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+    /**
+     * 按状态和课程流式读取选课记录（导出用），条件为null时不过滤
+     * 按批从游标读取，不经过查询缓存；须在事务内调用并关闭返回的流
+     * @param status 选课状态，为null时不过滤
+     * @param courseId 课程ID，为null时不过滤
+     * @return 按主键排序的选课记录流
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT e FROM Enrollment e " +
+            "WHERE (:status IS NULL OR e.status = :status) AND (:courseId IS NULL OR e.courseId = :courseId) " +
+            "ORDER BY e.id")
+    Stream<Enrollment> streamForExport(@Param("status") EnrollmentStatus status,
+                                       @Param("courseId") String courseId);
+}
@@ -1,7 +1,10 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
 
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Instructor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +14,7 @@ import java.util.UUID;
 /**
  * InstructorRepository 接口
  * 使用 Spring Data JPA 实现数据库持久化，提供教师的 CRUD 操作
+ * 教师实体启用二级缓存，常用查询的结果缓存在 campus.referenceQueries 区域
  *
  * @author System
  * @version 1.1.0
@@ -19,11 +23,26 @@ import java.util.UUID;
 @Repository
 public interface InstructorRepository extends JpaRepository<Instructor, UUID> {
 
+    /**
+     * 查找全部教师（结果缓存）
+     * @return 教师列表
+     */
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
+    List<Instructor> findAll();
+
     /**
      * 根据教师ID查找教师
      * @param instructorId 教师ID
      * @return 包含教师的Optional，如果不存在则返回空Optional
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     Optional<Instructor> findByInstructorId(String instructorId);
 
     /**
@@ -31,6 +50,10 @@ public interface InstructorRepository extends JpaRepository<Instructor, UUID> {
      * @param email 邮箱地址
      * @return 包含教师的Optional，如果不存在则返回空Optional
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     Optional<Instructor> findByEmail(String email);
 
     /**
@@ -52,6 +75,10 @@ public interface InstructorRepository extends JpaRepository<Instructor, UUID> {
      * @param department 部门名称
      * @return 该部门的所有教师列表
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     List<Instructor> findByDepartment(String department);
 
     /**
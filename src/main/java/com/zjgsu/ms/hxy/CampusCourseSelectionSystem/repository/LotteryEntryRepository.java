@@ -0,0 +1,51 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.LotteryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * LotteryEntryRepository 接口
+ * 使用 Spring Data JPA 实现数据库持久化，提供抽签登记记录的追加写入和批量读取
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Repository
+public interface LotteryEntryRepository extends JpaRepository<LotteryEntry, UUID> {
+
+    /**
+     * 查找登记期内尚未分配的登记记录，按登记时间排序
+     * @param start 登记开始时间
+     * @param end 登记结束时间
+     * @return 未分配的登记记录列表
+     */
+    List<LotteryEntry> findByCreatedAtBetweenAndProcessedAtIsNullOrderByCreatedAtAsc(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * 将登记记录标记为已分配；已标记的记录保持原处理时间
+     * @param ids 登记记录ID
+     * @param processedAt 处理时间
+     * @return 受影响行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE LotteryEntry e SET e.processedAt = :processedAt WHERE e.id IN :ids AND e.processedAt IS NULL")
+    int markProcessed(@Param("ids") Collection<UUID> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * 统计登记期内的登记记录数
+     * @param start 登记开始时间
+     * @param end 登记结束时间
+     * @return 登记记录数
+     */
+    long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+}
@@ -1,7 +1,10 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
 
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.ScheduleSlot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalTime;
@@ -12,6 +15,7 @@ import java.util.UUID;
 /**
  * ScheduleSlotRepository 接口
  * 使用 Spring Data JPA 实现数据库持久化，提供课程时间安排的 CRUD 操作
+ * 时间安排实体启用二级缓存，常用查询的结果缓存在 campus.referenceQueries 区域
  *
  * @author System
  * @version 1.1.0
@@ -20,11 +24,26 @@ import java.util.UUID;
 @Repository
 public interface ScheduleSlotRepository extends JpaRepository<ScheduleSlot, UUID> {
 
+    /**
+     * 查找全部时间安排（结果缓存）
+     * @return 时间安排列表
+     */
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
+    List<ScheduleSlot> findAll();
+
     /**
      * 根据时间段ID查找时间安排
      * @param scheduleId 时间段ID
      * @return 包含时间安排的Optional，如果不存在则返回空Optional
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     Optional<ScheduleSlot> findByScheduleId(String scheduleId); //
 
     /**
@@ -32,6 +51,10 @@ public interface ScheduleSlotRepository extends JpaRepository<ScheduleSlot, UUID
      * @param dayOfWeek 星期几
      * @return 该星期几的所有时间安排列表
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     List<ScheduleSlot> findByDayOfWeek(String dayOfWeek);
 
     /**
@@ -39,6 +62,10 @@ public interface ScheduleSlotRepository extends JpaRepository<ScheduleSlot, UUID
      * @param startTime 开始时间
      * @return 从该时间开始的所有时间安排列表
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "campus.referenceQueries")
+    })
     List<ScheduleSlot> findByStartTime(LocalTime startTime); // 修正：参数改为 LocalTime
 
     /**
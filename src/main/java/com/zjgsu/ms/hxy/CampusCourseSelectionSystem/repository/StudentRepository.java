@@ -1,9 +1,11 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository;
 
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,6 +28,13 @@ public interface StudentRepository extends JpaRepository<Student, UUID> {
      */
     Optional<Student> findByStudentId(String studentId);
 
+    /**
+     * 根据学号批量查找学生
+     * @param studentIds 学号集合
+     * @return 匹配的学生列表
+     */
+    List<Student> findByStudentIdIn(Collection<String> studentIds);
+
     /**
      * 根据邮箱查找学生
      * @param email 邮箱地址
@@ -67,4 +76,19 @@ public interface StudentRepository extends JpaRepository<Student, UUID> {
      * @return 如果邮箱存在返回true，否则返回false
      */
     boolean existsByEmail(String email);
+
+    /**
+     * 按主键升序查询第一页学生（游标分页）
+     * @param limit 最多返回的条数
+     * @return 学生列表
+     */
+    List<Student> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * 按主键升序查询主键大于给定值的一页学生（游标分页，沿主键索引定位）
+     * @param id 上一页最后一条记录的主键
+     * @param limit 最多返回的条数
+     * @return 学生列表
+     */
+    List<Student> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
 }
\ No newline at end of file
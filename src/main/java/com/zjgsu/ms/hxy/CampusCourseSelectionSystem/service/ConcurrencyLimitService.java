@@ -0,0 +1,73 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.AdaptiveConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ConcurrencyLimitService 类
+ * 管理各组接口的自适应并发限制：选课写接口与课程目录读接口各自独立，
+ * 写路径因锁等待过载时不会占满读接口的并发名额
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class ConcurrencyLimitService implements MetricsProvider {
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final AdaptiveConcurrencyLimiter readLimiter;
+
+    public ConcurrencyLimitService(@Value("${campus.concurrency-limit.enabled:true}") boolean enabled,
+                                   @Value("${campus.concurrency-limit.write.initial:20}") int writeInitial,
+                                   @Value("${campus.concurrency-limit.write.min:4}") int writeMin,
+                                   @Value("${campus.concurrency-limit.write.max:200}") int writeMax,
+                                   @Value("${campus.concurrency-limit.read.initial:50}") int readInitial,
+                                   @Value("${campus.concurrency-limit.read.min:10}") int readMin,
+                                   @Value("${campus.concurrency-limit.read.max:500}") int readMax) {
+        this.enabled = enabled;
+        this.writeLimiter = new AdaptiveConcurrencyLimiter("enrollmentWrites", writeInitial, writeMin, writeMax);
+        this.readLimiter = new AdaptiveConcurrencyLimiter("courseReads", readInitial, readMin, readMax);
+    }
+
+    /**
+     * 并发限制是否启用
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 选课写接口（选课、退课、改状态、录成绩等）的并发限制
+     */
+    public AdaptiveConcurrencyLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    /**
+     * 课程目录读接口的并发限制
+     */
+    public AdaptiveConcurrencyLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "concurrencyLimits";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put(writeLimiter.getName(), writeLimiter.getMetrics());
+        metrics.put(readLimiter.getName(), readLimiter.getMetrics());
+        return metrics;
+    }
+}
@@ -0,0 +1,163 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * CourseCache 类
+ * 课程实体缓存：按课程ID缓存课程，另以课程编号索引到课程ID，容量和有效期均有上限
+ *
+ * 课程的增删改和已选人数变化（占座、退课、台账回写、抽签分配）在事务提交后使缓存失效；
+ * 失效期间正在进行的加载不会写回缓存，避免旧数据覆盖失效
+ *
+ * 缓存的课程对象由多个调用方共享，不应修改；缓存中的已选人数可能滞后于最新值，
+ * 容量判断以座位台账或数据库为准，不读缓存
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class CourseCache implements MetricsProvider {
+
+    private final boolean enabled;
+    private final LruCache<UUID, Course> coursesById;
+    private final LruCache<String, UUID> idsByCode;
+
+    /**
+     * 失效计数，加载开始后发生过失效时不写回缓存；读写需持有本对象的锁
+     */
+    private long generation;
+
+    public CourseCache(@Value("${campus.course-cache.enabled:true}") boolean enabled,
+                       @Value("${campus.course-cache.max-size:1000}") int maxSize,
+                       @Value("${campus.course-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.coursesById = new LruCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+        this.idsByCode = new LruCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取缓存的课程
+     * @param id 课程ID
+     * @return 缓存的课程；未缓存返回空Optional
+     */
+    public Optional<Course> get(UUID id) {
+        return enabled ? Optional.ofNullable(coursesById.get(id)) : Optional.empty();
+    }
+
+    /**
+     * 按课程编号读取缓存的课程
+     * @param code 课程编号
+     * @return 缓存的课程；未缓存返回空Optional
+     */
+    public Optional<Course> getByCode(String code) {
+        if (!enabled || code == null) {
+            return Optional.empty();
+        }
+        UUID id = idsByCode.get(code);
+        return id == null ? Optional.empty() : get(id).filter(course -> code.equals(course.getCode()));
+    }
+
+    /**
+     * 从数据库加载课程并写入缓存
+     * @param id 课程ID
+     * @param loader 加载函数
+     * @return 加载结果
+     */
+    public Optional<Course> load(UUID id, Function<UUID, Optional<Course>> loader) {
+        return load(() -> loader.apply(id));
+    }
+
+    /**
+     * 按课程编号从数据库加载课程并写入缓存
+     * @param code 课程编号
+     * @param loader 加载函数
+     * @return 加载结果
+     */
+    public Optional<Course> loadByCode(String code, Function<String, Optional<Course>> loader) {
+        return load(() -> loader.apply(code));
+    }
+
+    /**
+     * 课程或其已选人数发生变化，使缓存失效
+     * 在事务中调用时事务提交后生效，避免其他请求在提交前重新加载到旧数据
+     * @param id 课程ID
+     */
+    public void invalidate(UUID id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        } else {
+            evict(id);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "courseCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("byId", coursesById.getMetrics());
+        metrics.put("byCode", idsByCode.getMetrics());
+        synchronized (this) {
+            metrics.put("invalidations", generation);
+        }
+        return metrics;
+    }
+
+    private Optional<Course> load(Supplier<Optional<Course>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        Optional<Course> loaded = loader.get();
+        loaded.ifPresent(course -> {
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    coursesById.put(course.getId(), course);
+                    idsByCode.put(course.getCode(), course.getId());
+                }
+            }
+        });
+        return loaded;
+    }
+
+    private synchronized void evict(UUID id) {
+        generation++;
+        Course removed = coursesById.invalidate(id);
+        if (removed != null) {
+            idsByCode.invalidate(removed.getCode());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * CourseCommandExecutor 类
+ * 按课程分片的单写者执行器：根据课程ID哈希选择一条单线程通道，
+ * 同一课程的选课、退课和容量修改在同一通道上串行执行，不同课程在多个通道上并行执行
+ *
+ * 等待超时时尚未开始执行的命令会被取消，已开始的命令继续执行，调用方据此区分“未执行”和“处理中”
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class CourseCommandExecutor implements MetricsProvider {
+
+    /**
+     * 当前线程所属的通道，用于在通道内部重入时直接执行
+     */
+    private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+    private final Lane[] lanes;
+    private final long timeoutMillis;
+
+    public CourseCommandExecutor(@Value("${campus.course-executor.lanes:0}") int laneCount,
+                                 @Value("${campus.course-executor.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${campus.course-executor.timeout-ms:10000}") long timeoutMillis) {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 将课程命令提交到该课程所属的通道
+     * @param courseKey 课程ID
+     * @param command 课程命令
+     * @return 命令执行结果的Future
+     */
+    public <T> CompletableFuture<T> submit(String courseKey, Supplier<T> command) {
+        Lane lane = laneFor(courseKey);
+        if (CURRENT_LANE.get() == lane) {
+            // 已在该通道线程中（如退课时递补），直接执行避免自我等待
+            try {
+                return CompletableFuture.completedFuture(command.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return lane.submit(command);
+    }
+
+    /**
+     * 将课程命令排入该课程所属通道的队尾
+     * 与 submit 不同，已在该通道线程中时也不直接执行，用于在事务提交后追加后续命令
+     * @param courseKey 课程ID
+     * @param command 课程命令
+     * @return 命令执行结果的Future
+     */
+    public <T> CompletableFuture<T> enqueue(String courseKey, Supplier<T> command) {
+        return laneFor(courseKey).submit(command);
+    }
+
+    /**
+     * 在课程所属通道上执行命令并等待结果
+     * 命令抛出的运行时异常原样抛出，调用方可按原有方式处理
+     * @param courseKey 课程ID
+     * @param command 课程命令
+     * @return 命令执行结果
+     * @throws IllegalStateException 如果通道队列已满
+     * @throws CourseCommandTimeoutException 如果等待超时：命令尚未开始时已取消，已开始时仍在执行
+     */
+    public <T> T execute(String courseKey, Supplier<T> command) {
+        return await(submit(courseKey, command));
+    }
+
+    /**
+     * 等待已提交命令的结果，超时处理与 execute 相同
+     * @param future submit 返回的Future
+     * @return 命令执行结果
+     * @throws CourseCommandTimeoutException 如果等待超时：命令尚未开始时已取消，已开始时仍在执行
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            if (future instanceof LaneFuture<T> laneFuture && laneFuture.cancelIfNotStarted()) {
+                throw new CourseCommandTimeoutException("课程操作排队超时，未执行，请稍后重试", false);
+            }
+            throw new CourseCommandTimeoutException("课程操作仍在处理中，请稍后查询结果", true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("课程操作等待被中断");
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "courseExecutor";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> laneMetrics = new ArrayList<>();
+        long totalQueued = 0;
+        for (Lane lane : lanes) {
+            Map<String, Object> metrics = lane.metrics();
+            totalQueued += (int) metrics.get("queueDepth");
+            laneMetrics.add(metrics);
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("lanes", lanes.length);
+        metrics.put("queueDepth", totalQueued);
+        metrics.put("laneDetails", laneMetrics);
+        return metrics;
+    }
+
+    /**
+     * 应用关闭时停止全部通道，已排队的命令会执行完毕
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            lane.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 按课程ID选择通道；UUID 格式的ID先解析，大小写不同的写法落在同一通道
+     */
+    private Lane laneFor(String courseKey) {
+        if (courseKey == null) {
+            return lanes[0];
+        }
+        String key = courseKey.trim();
+        UUID id = UuidUtils.parseOrNull(key);
+        int hash = id != null ? id.hashCode() : key.toLowerCase(Locale.ROOT).hashCode();
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * 单线程通道，记录队列深度和命令服务时间
+     */
+    private static final class Lane {
+
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder totalServiceNanos = new LongAdder();
+        private final AtomicLong maxServiceNanos = new AtomicLong();
+
+        private Lane(int index, int queueCapacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(() -> {
+                            CURRENT_LANE.set(this);
+                            runnable.run();
+                        }, "course-lane-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<T> command) {
+            LaneFuture<T> future = new LaneFuture<>();
+            try {
+                executor.execute(() -> {
+                    if (!future.start()) {
+                        // 调用方等待超时时已取消
+                        cancelled.increment();
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    T result = null;
+                    Throwable failure = null;
+                    try {
+                        result = command.get();
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                    // 先记录指标再通知调用方，保证调用方看到的指标已包含本次命令
+                    long elapsed = System.nanoTime() - start;
+                    completed.increment();
+                    totalServiceNanos.add(elapsed);
+                    maxServiceNanos.accumulateAndGet(elapsed, Math::max);
+                    if (failure == null) {
+                        future.complete(result);
+                    } else {
+                        future.completeExceptionally(failure);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                future.completeExceptionally(new IllegalStateException("课程操作队列已满，请稍后重试"));
+            }
+            return future;
+        }
+
+        private Map<String, Object> metrics() {
+            long count = completed.sum();
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("lane", index);
+            metrics.put("queueDepth", executor.getQueue().size());
+            metrics.put("completed", count);
+            metrics.put("rejected", rejected.sum());
+            metrics.put("cancelled", cancelled.sum());
+            metrics.put("avgServiceMicros", count == 0 ? 0 : totalServiceNanos.sum() / count / 1000);
+            metrics.put("maxServiceMicros", maxServiceNanos.get() / 1000);
+            return metrics;
+        }
+    }
+
+    /**
+     * 通道命令的 Future，记录命令是否已开始执行
+     */
+    private static final class LaneFuture<T> extends CompletableFuture<T> {
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        /**
+         * 通道线程开始执行前调用
+         * @return 未被取消返回true
+         */
+        private boolean start() {
+            return state.compareAndSet(NEW, RUNNING);
+        }
+
+        /**
+         * 命令尚未开始时取消
+         * @return 取消成功返回true；命令已开始执行返回false
+         */
+        private boolean cancelIfNotStarted() {
+            if (!state.compareAndSet(NEW, CANCELLED)) {
+                return false;
+            }
+            completeExceptionally(new CancellationException("课程操作排队超时，已取消"));
+            return true;
+        }
+    }
+}
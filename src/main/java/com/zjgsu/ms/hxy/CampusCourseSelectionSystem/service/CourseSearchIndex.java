@@ -0,0 +1,263 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.NGramIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CourseSearchIndex 类
+ * 课程关键词搜索的内存倒排索引，索引课程标题、课程编号和课程描述，按二元组查找后校验子串
+ *
+ * 启动完成后由全部课程构建，并定期全量重建；课程的创建、修改和删除在事务提交后增量更新索引。
+ * 构建期间提交的修改先记录下来，构建完成后按提交顺序补入新索引
+ *
+ * 结果按命中字段排序：标题优先于课程编号，课程编号优先于描述；同一字段内完全相同优先于开头匹配，
+ * 开头匹配优先于包含，再按字段长度从短到长，只返回排名靠前的若干条。索引未构建或未启用时返回空，
+ * 由调用方回退到数据库查询（匹配相同的字段和条数上限）
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class CourseSearchIndex implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseSearchIndex.class);
+
+    /**
+     * 命中的字段顺序：标题、课程编号、描述
+     */
+    private static final Comparator<NGramIndex.Hit<UUID>> RANKING =
+            Comparator.<NGramIndex.Hit<UUID>>comparingInt(NGramIndex.Hit::field)
+                    .thenComparing(hit -> !hit.exact())
+                    .thenComparing(hit -> hit.position() != 0)
+                    .thenComparingInt(NGramIndex.Hit::fieldLength)
+                    .thenComparing(NGramIndex.Hit::key);
+
+    private final CourseRepository courseRepository;
+    private final boolean enabled;
+    private final int maxResults;
+
+    /**
+     * 当前索引，构建完成前为null；替换与修改需持有 lock
+     */
+    private volatile NGramIndex<UUID> index;
+
+    /**
+     * 构建期间提交的修改，构建完成后补入新索引；首次构建前即开始收集
+     */
+    private List<Change> pendingDuringRebuild = new ArrayList<>();
+    private final Object lock = new Object();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final AtomicLong lastBuildMs = new AtomicLong();
+
+    public CourseSearchIndex(CourseRepository courseRepository,
+                             @Value("${campus.course-search.enabled:true}") boolean enabled,
+                             @Value("${campus.course-search.max-results:100}") int maxResults) {
+        this.courseRepository = courseRepository;
+        this.enabled = enabled;
+        this.maxResults = Math.max(maxResults, 1);
+    }
+
+    /**
+     * 单次搜索最多返回的课程数，数据库回退查询使用相同的上限
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * 启动完成后由全部课程构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 定期全量重建，纠正绕过 CourseService 直接修改数据库造成的偏差
+     */
+    @Scheduled(fixedDelayString = "${campus.course-search.rebuild-interval-ms:600000}",
+            initialDelayString = "${campus.course-search.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (enabled && index != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 按关键词查找课程
+     * @param keyword 关键词
+     * @return 按相关度排序的课程ID，至多 maxResults 条；索引不可用时为空，调用方应回退到数据库查询
+     */
+    public Optional<List<UUID>> search(String keyword) {
+        NGramIndex<UUID> current = index;
+        if (!enabled || current == null) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        long startedAt = System.nanoTime();
+        List<NGramIndex.Hit<UUID>> hits = new ArrayList<>(current.search(keyword));
+        hits.sort(RANKING);
+        int count = Math.min(hits.size(), maxResults);
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(hits.get(i).key());
+        }
+        searchNanos.add(System.nanoTime() - startedAt);
+        searches.increment();
+        return Optional.of(ids);
+    }
+
+    /**
+     * 课程创建或修改后更新索引；在事务中调用时事务提交后生效
+     * @param course 保存后的课程
+     */
+    public void index(Course course) {
+        if (!enabled || course == null || course.getId() == null) {
+            return;
+        }
+        Change change = new Change(course.getId(), false, course.getTitle(), course.getCode(), course.getDescription());
+        afterCommit(() -> apply(change));
+    }
+
+    /**
+     * 课程删除后从索引中移除；在事务中调用时事务提交后生效
+     * @param id 课程ID
+     */
+    public void remove(UUID id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        Change change = new Change(id, true, null, null, null);
+        afterCommit(() -> apply(change));
+    }
+
+    /**
+     * 由数据库中的全部课程重建索引
+     */
+    public void rebuild() {
+        synchronized (lock) {
+            if (pendingDuringRebuild == null) {
+                pendingDuringRebuild = new ArrayList<>();
+            }
+        }
+        long startedAt = System.currentTimeMillis();
+        NGramIndex<UUID> rebuilt = new NGramIndex<>();
+        try {
+            for (Course course : courseRepository.findAll()) {
+                rebuilt.put(course.getId(), course.getTitle(), course.getCode(), course.getDescription());
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                // 首次构建失败时继续收集，等待下一次构建
+                if (index != null) {
+                    pendingDuringRebuild = null;
+                }
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            for (Change change : pendingDuringRebuild) {
+                change.applyTo(rebuilt);
+            }
+            pendingDuringRebuild = null;
+            index = rebuilt;
+        }
+        rebuilds.increment();
+        lastBuildMs.set(System.currentTimeMillis() - startedAt);
+        log.info("课程搜索索引已构建，{} 门课程，{} 个二元组，耗时 {} ms", rebuilt.size(),
+                rebuilt.getGramCount(), lastBuildMs.get());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "courseSearchIndex";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("maxResults", maxResults);
+        NGramIndex<UUID> current = index;
+        if (current != null) {
+            metrics.put("documents", current.size());
+            metrics.put("grams", current.getGramCount());
+        }
+        long searched = searches.sum();
+        metrics.put("searches", searched);
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("avgSearchMicros", searched == 0 ? 0.0 : Math.round(searchNanos.sum() / 10.0 / searched) / 100.0);
+        metrics.put("updates", updates.sum());
+        metrics.put("rebuilds", rebuilds.sum());
+        metrics.put("lastBuildMs", lastBuildMs.get());
+        return metrics;
+    }
+
+    private void apply(Change change) {
+        synchronized (lock) {
+            NGramIndex<UUID> current = index;
+            if (current != null) {
+                change.applyTo(current);
+            }
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        }
+        updates.increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 一次提交后的索引修改
+     */
+    private record Change(UUID id, boolean removed, String title, String code, String description) {
+
+        private void applyTo(NGramIndex<UUID> target) {
+            if (removed) {
+                target.remove(id);
+            } else {
+                target.put(id, title, code, description);
+            }
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
 
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.RetryOnConflict;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.NGramIndex;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,12 +35,46 @@ import java.util.UUID;
  * @since 2024
  */
 @Service
-public class CourseService {
+public class CourseService implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseService.class);
 
     private final CourseRepository courseRepository;
+    private final SeatLedger seatLedger;
+    private final CourseCommandExecutor courseCommandExecutor;
+    private final CourseCache courseCache;
+    private final IdentityResolver identityResolver;
+    private final KeysetPaginator keysetPaginator;
+    private final CourseSearchIndex courseSearchIndex;
+    private final WaitlistService waitlistService;
+
+    /**
+     * 自身的代理，通道内的命令经代理调用以应用事务和冲突重试
+     */
+    private final CourseService self;
+    private final boolean singleFlightEnabled;
 
-    public CourseService(CourseRepository courseRepository) {
+    /**
+     * 合并同一课程的并发按ID查询
+     */
+    private final SingleFlight<UUID, Optional<Course>> courseLookups = new SingleFlight<>();
+
+    public CourseService(CourseRepository courseRepository, SeatLedger seatLedger,
+                         CourseCommandExecutor courseCommandExecutor, CourseCache courseCache,
+                         IdentityResolver identityResolver, KeysetPaginator keysetPaginator,
+                         CourseSearchIndex courseSearchIndex, WaitlistService waitlistService,
+                         @Lazy CourseService self,
+                         @Value("${campus.single-flight.enabled:true}") boolean singleFlightEnabled) {
         this.courseRepository = courseRepository;
+        this.seatLedger = seatLedger;
+        this.courseCommandExecutor = courseCommandExecutor;
+        this.courseCache = courseCache;
+        this.identityResolver = identityResolver;
+        this.keysetPaginator = keysetPaginator;
+        this.courseSearchIndex = courseSearchIndex;
+        this.waitlistService = waitlistService;
+        this.self = self;
+        this.singleFlightEnabled = singleFlightEnabled;
     }
 
     /**
@@ -36,22 +85,60 @@ public class CourseService {
         return courseRepository.findAll();
     }
 
+    /**
+     * 游标分页查询课程，按主键排序
+     * @param after 上一页返回的游标，为空表示第一页
+     * @param limit 每页条数，为空使用默认值
+     * @return 一页课程及下一页游标
+     * @throws IllegalArgumentException 如果游标无效或每页条数不是正数
+     */
+    public CursorPage<Course> getCoursesPage(String after, Integer limit) {
+        return keysetPaginator.page(after, limit, courseRepository::findAllByOrderByIdAsc,
+                courseRepository::findByIdGreaterThanOrderByIdAsc, Course::getId);
+    }
+
     /**
      * 根据ID获取课程
+     * 不在事务中调用时先读课程缓存，未命中时同一课程的并发查询合并为一次数据库查询并写入缓存，
+     * 调用方共享同一个课程对象，不应修改；事务中调用需要本事务管理的实体，直接查询数据库
      * @param id 课程ID
      * @return 包含课程的Optional
      */
     public Optional<Course> getCourseById(UUID id) {
-        return courseRepository.findById(id);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return courseRepository.findById(id);
+        }
+        Optional<Course> cached = courseCache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (!singleFlightEnabled) {
+            return courseCache.load(id, courseRepository::findById);
+        }
+        return courseLookups.execute(id, () -> courseCache.load(id, courseRepository::findById));
+    }
+
+    /**
+     * 根据ID批量获取课程（一次查询）
+     * @param ids 课程ID集合
+     * @return 存在的课程列表
+     */
+    public List<Course> getCoursesByIds(Collection<UUID> ids) {
+        return courseRepository.findAllById(ids);
     }
 
     /**
      * 根据课程编号获取课程
+     * 与按ID查询相同，不在事务中调用时先读课程缓存
      * @param code 课程编号
      * @return 包含课程的Optional
      */
     public Optional<Course> getCourseByCode(String code) {
-        return courseRepository.findByCode(code);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return courseRepository.findByCode(code);
+        }
+        Optional<Course> cached = courseCache.getByCode(code);
+        return cached.isPresent() ? cached : courseCache.loadByCode(code, courseRepository::findByCode);
     }
 
     /**
@@ -73,7 +160,12 @@ public class CourseService {
         // 设置ID为null，确保创建新课程
         course.setId(null);
 
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        seatLedger.refresh(saved);
+        courseCache.invalidate(saved.getId());
+        identityResolver.invalidateCourse(saved.getId(), saved.getCode());
+        courseSearchIndex.index(saved);
+        return saved;
     }
 
     /**
@@ -83,16 +175,24 @@ public class CourseService {
      * @return 更新后的课程Optional
      * @throws IllegalArgumentException 如果数据验证失败或课程不存在
      */
+    @RetryOnConflict
     @Transactional
     public Optional<Course> updateCourse(UUID id, Course course) {
         // 验证课程是否存在
-        if (!courseRepository.existsById(id)) {
+        Optional<Course> existing = courseRepository.findById(id);
+        if (existing.isEmpty()) {
             throw new IllegalArgumentException("课程不存在，ID: " + id);
         }
 
         // 验证课程数据
         validateCourse(course);
 
+        // 请求携带的版本号已过期：客户端基于旧数据修改，重试也无法成功
+        Course target = existing.get();
+        if (course.getVersion() != null && !course.getVersion().equals(target.getVersion())) {
+            throw new IllegalArgumentException("课程已被其他操作修改，请刷新后重试");
+        }
+
         // 检查课程编号是否被其他课程使用
         Optional<Course> existingCourseWithSameCode = courseRepository.findByCode(course.getCode());
         if (existingCourseWithSameCode.isPresent() &&
@@ -100,74 +200,106 @@ public class CourseService {
             throw new IllegalArgumentException("课程编号已被其他课程使用: " + course.getCode());
         }
 
-        // 设置ID并保存
-        course.setId(id);
-        return Optional.of(courseRepository.save(course));
+        // 将更新内容复制到已加载的课程上保存，提交时按加载时的版本号检测并发修改
+        target.setCode(course.getCode());
+        target.setTitle(course.getTitle());
+        target.setInstructorId(course.getInstructorId());
+        target.setScheduleId(course.getScheduleId());
+        // 已选人数只由选课、退课维护，不采用请求中的值
+        int previousCapacity = target.getCapacity();
+        checkCapacityCoversOccupied(target, course.getCapacity());
+        target.setCapacity(course.getCapacity());
+        target.setDescription(course.getDescription());
+        target.setCredits(course.getCredits());
+        target.setLocation(course.getLocation());
+        Course saved = courseRepository.save(target);
+        seatLedger.refresh(saved);
+        courseCache.invalidate(id);
+        identityResolver.invalidateCourse(id, saved.getCode());
+        courseSearchIndex.index(saved);
+        if (saved.getCapacity() > previousCapacity) {
+            fillFromWaitlist(id);
+        }
+        return Optional.of(saved);
     }
 
     /**
      * 部分更新课程信息
+     * 在课程所属的执行通道上执行，与该课程的选课、退课串行
      * @param id 课程ID
      * @param updates 包含更新字段的Map
      * @return 更新后的课程Optional
      * @throws IllegalArgumentException 如果课程不存在或数据验证失败
      */
     public Optional<Course> partialUpdateCourse(UUID id, Map<String, Object> updates) {
-        // 验证课程是否存在
-        if (!courseRepository.existsById(id)) {
-            throw new IllegalArgumentException("课程不存在，ID: " + id);
-        }
+        return courseCommandExecutor.execute(id.toString(), () -> self.applyPartialUpdate(id, updates));
+    }
 
+    /**
+     * 应用部分更新，由 partialUpdateCourse 在课程通道上经代理调用
+     * 读取和保存在同一事务中完成，发生并发冲突时在通道内重试，不重新排队
+     * @param id 课程ID
+     * @param updates 包含更新字段的Map
+     * @return 更新后的课程Optional
+     * @throws IllegalArgumentException 如果课程不存在或数据验证失败
+     */
+    @RetryOnConflict
+    @Transactional
+    public Optional<Course> applyPartialUpdate(UUID id, Map<String, Object> updates) {
         // 验证更新数据
         validatePartialUpdates(updates);
 
         // 获取现有课程
-        Optional<Course> existingCourse = courseRepository.findById(id);
-        if (existingCourse.isPresent()) {
-            Course course = existingCourse.get();
-            
-            // 应用部分更新
-            for (Map.Entry<String, Object> entry : updates.entrySet()) {
-                String field = entry.getKey();
-                Object value = entry.getValue();
-                
-                switch (field) {
-                    case "code":
-                        course.setCode((String) value);
-                        break;
-                    case "title":
-                        course.setTitle((String) value);
-                        break;
-                    case "description":
-                        course.setDescription((String) value);
-                        break;
-                    case "credits":
-                        course.setCredits((Integer) value);
-                        break;
-                    case "capacity":
-                        course.setCapacity((Integer) value);
-                        break;
-                    case "enrolled":
-                        course.setEnrolled((Integer) value);
-                        break;
-                    case "instructorId":
-                        course.setInstructorId((String) value);
-                        break;
-                    case "scheduleId":
-                        course.setScheduleId((String) value);
-                        break;
-                    case "location":
-                        course.setLocation((String) value);
-                        break;
-                    // 可以根据需要添加更多字段
-                }
+        Course course = courseRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("课程不存在，ID: " + id));
+
+        int previousCapacity = course.getCapacity();
+
+        // 应用部分更新
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            String field = entry.getKey();
+            Object value = entry.getValue();
+
+            switch (field) {
+                case "code":
+                    course.setCode((String) value);
+                    break;
+                case "title":
+                    course.setTitle((String) value);
+                    break;
+                case "description":
+                    course.setDescription((String) value);
+                    break;
+                case "credits":
+                    course.setCredits((Integer) value);
+                    break;
+                case "capacity":
+                    checkCapacityCoversOccupied(course, (Integer) value);
+                    course.setCapacity((Integer) value);
+                    break;
+                case "instructorId":
+                    course.setInstructorId((String) value);
+                    break;
+                case "scheduleId":
+                    course.setScheduleId((String) value);
+                    break;
+                case "location":
+                    course.setLocation((String) value);
+                    break;
+                // 可以根据需要添加更多字段
             }
-            
-            // 保存更新后的课程
-            return Optional.of(courseRepository.save(course));
         }
-        
-        return Optional.empty();
+
+        // 保存更新后的课程
+        Course saved = courseRepository.save(course);
+        seatLedger.refresh(saved);
+        courseCache.invalidate(id);
+        identityResolver.invalidateCourse(id, saved.getCode());
+        courseSearchIndex.index(saved);
+        if (saved.getCapacity() > previousCapacity) {
+            fillFromWaitlist(id);
+        }
+        return Optional.of(saved);
     }
 
     /**
@@ -175,10 +307,15 @@ public class CourseService {
      * @param id 课程ID
      * @return 如果删除成功返回true，否则返回false
      */
+    @RetryOnConflict
     @Transactional
     public boolean deleteCourse(UUID id) {
         if (courseRepository.existsById(id)) {
             courseRepository.deleteById(id);
+            seatLedger.remove(id);
+            courseCache.invalidate(id);
+            identityResolver.invalidateCourse(id, null);
+            courseSearchIndex.remove(id);
             return true;
         }
         return false;
@@ -190,7 +327,15 @@ public class CourseService {
      * @return 如果删除成功返回true，否则返回false
      */
     public boolean deleteCourseByCode(String code) {
-        return courseRepository.deleteByCode(code);
+        Optional<Course> course = courseRepository.findByCode(code);
+        boolean deleted = courseRepository.deleteByCode(code);
+        course.ifPresent(c -> {
+            seatLedger.remove(c.getId());
+            courseCache.invalidate(c.getId());
+            identityResolver.invalidateCourse(c.getId(), code);
+            courseSearchIndex.remove(c.getId());
+        });
+        return deleted;
     }
 
     /**
@@ -218,7 +363,9 @@ public class CourseService {
     }
 
     /**
-     * 根据标题关键词搜索课程
+     * 根据关键词搜索课程
+     * 在内存索引中匹配课程标题、编号和描述，按相关度排序；索引不可用时回退到数据库对相同字段模糊查询（按标题排序）
+     * 两种方式都只返回前 campus.course-search.max-results 条
      * @param keyword 关键词
      * @return 匹配的课程列表
      */
@@ -226,7 +373,50 @@ public class CourseService {
         if (!StringUtils.hasText(keyword)) {
             throw new IllegalArgumentException("搜索关键词不能为空");
         }
-        return courseRepository.findByTitleContaining(keyword);
+        Optional<List<UUID>> ranked = courseSearchIndex.search(keyword);
+        if (ranked.isEmpty()) {
+            return courseRepository.searchByKeyword(likePattern(keyword),
+                    Limit.of(courseSearchIndex.getMaxResults()));
+        }
+        List<UUID> ids = ranked.get();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // 课程数据不取自索引：先读课程缓存，未命中的课程一次按ID批量查询，已选人数等字段不受索引更新时机影响
+        Map<UUID, Course> coursesById = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            Optional<Course> cached = courseCache.get(id);
+            if (cached.isPresent()) {
+                coursesById.put(id, cached.get());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Course course : courseRepository.findAllById(missing)) {
+                coursesById.put(course.getId(), course);
+            }
+        }
+        List<Course> courses = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Course course = coursesById.get(id);
+            if (course != null) {
+                courses.add(course);
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * 关键词按索引相同的规则规范化后转为包含匹配的 LIKE 模式，关键词中的通配符按字面匹配
+     */
+    private static String likePattern(String keyword) {
+        String escaped = NGramIndex.normalize(keyword)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 
     /**
@@ -252,10 +442,14 @@ public class CourseService {
 
     /**
      * 检查课程是否存在
+     * 不在事务中调用时缓存命中即视为存在（课程删除后缓存随之失效）
      * @param id 课程ID
      * @return 如果课程存在返回true
      */
     public boolean courseExists(UUID id) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive() && courseCache.get(id).isPresent()) {
+            return true;
+        }
         return courseRepository.existsById(id);
     }
 
@@ -311,6 +505,19 @@ public class CourseService {
         }
     }
 
+    /**
+     * 检查新容量不低于已占用的座位数
+     * 启用座位台账时以台账为准（包含保留中的座位），否则以 courses.enrolled 为准
+     */
+    private void checkCapacityCoversOccupied(Course course, int capacity) {
+        int occupied = seatLedger.isEnabled()
+                ? course.getCapacity() - seatLedger.remaining(course.getId())
+                : course.getEnrolled();
+        if (capacity < occupied) {
+            throw new IllegalArgumentException("课程容量不能小于已占用的座位数: " + occupied);
+        }
+    }
+
     /**
      * 验证部分更新数据的有效性
      * @param updates 更新字段Map
@@ -336,6 +543,11 @@ public class CourseService {
             }
         }
 
+        // 已选人数只由选课、退课维护
+        if (updates.containsKey("enrolled")) {
+            throw new IllegalArgumentException("已选人数由系统维护，不能直接修改");
+        }
+
         // 验证课程编号字段
         if (updates.containsKey("code")) {
             Object codeObj = updates.get("code");
@@ -371,44 +583,161 @@ public class CourseService {
     }
 
     /**
-     * 增加课程选课人数
+     * 为课程占用一个座位
+     * 启用座位台账时在内存中完成准入判断，已选人数由台账批量回写；
+     * 否则由数据库在一条条件 UPDATE 中完成容量判断与计数，不存在读后写窗口
      * @param courseId 课程ID
-     * @return 更新后的课程Optional
+     * @return 如果占座成功返回true；课程不存在或已满返回false
      */
+    @RetryOnConflict
     @Transactional
-    public Optional<Course> incrementEnrolled(UUID courseId) {
-        Optional<Course> courseOpt = courseRepository.findById(courseId);
-        if (courseOpt.isPresent()) {
-            Course course = courseOpt.get();
-            course.setEnrolled(course.getEnrolled() + 1);
-            return Optional.of(courseRepository.save(course));
+    public boolean reserveSeat(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            return seatLedger.tryAcquire(courseId);
         }
-        return Optional.empty();
+        return updatedEnrolled(courseId, courseRepository.reserveSeat(courseId));
     }
 
     /**
-     * 减少课程选课人数
+     * 释放课程的一个座位
      * @param courseId 课程ID
-     * @return 更新后的课程Optional
+     * @return 如果释放成功返回true
      */
+    @RetryOnConflict
     @Transactional
-    public Optional<Course> decrementEnrolled(UUID courseId) {
-        Optional<Course> courseOpt = courseRepository.findById(courseId);
-        if (courseOpt.isPresent()) {
-            Course course = courseOpt.get();
-            int newEnrolled = Math.max(0, course.getEnrolled() - 1);
-            course.setEnrolled(newEnrolled);
-            return Optional.of(courseRepository.save(course));
+    public boolean releaseSeat(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            return seatLedger.release(courseId);
         }
-        return Optional.empty();
+        return updatedEnrolled(courseId, courseRepository.releaseSeat(courseId));
     }
 
     /**
-     * 检查课程是否已满（基于 enrolled 字段）
+     * 为座位保留占用一个座位
+     * 启用座位台账时只扣减内存中的剩余座位，不计入已选人数；
+     * 否则与选课占座相同，由条件 UPDATE 计入 courses.enrolled，保留期间即视为已占用
+     * @param courseId 课程ID
+     * @return 如果保留成功返回true；课程不存在或已满返回false
+     */
+    @RetryOnConflict
+    @Transactional
+    public boolean holdSeat(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            return seatLedger.tryHold(courseId);
+        }
+        return updatedEnrolled(courseId, courseRepository.reserveSeat(courseId));
+    }
+
+    /**
+     * 座位保留过期或取消，归还保留的座位
+     * @param courseId 课程ID
+     */
+    @RetryOnConflict
+    @Transactional
+    public void releaseHeldSeat(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            seatLedger.releaseHold(courseId);
+            return;
+        }
+        updatedEnrolled(courseId, courseRepository.releaseSeat(courseId));
+    }
+
+    /**
+     * 将课程已选人数修正为按选课记录统计的实际值
+     * 只在已选人数仍为预期值时修改，期间有选课、退课或保留的课程保持不变
+     * @param courseId 课程ID
+     * @param expected 读取到的已选人数
+     * @param actual 实际占座的选课记录数
+     * @return 如果修正成功返回true
+     */
+    @Transactional
+    public boolean correctEnrolled(UUID courseId, int expected, int actual) {
+        return updatedEnrolled(courseId, courseRepository.compareAndSetEnrolled(courseId, expected, actual));
+    }
+
+    /**
+     * 条件 UPDATE 修改了已选人数时使课程缓存失效
+     * @return 是否修改成功
+     */
+    private boolean updatedEnrolled(UUID courseId, int updatedRows) {
+        if (updatedRows == 1) {
+            courseCache.invalidate(courseId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 座位保留转为选课，保留的座位改记为已选座位
+     * 关闭座位台账时保留的座位已计入 courses.enrolled，无需再操作
+     * @param courseId 课程ID
+     */
+    public void claimHeldSeat(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            seatLedger.claimHold(courseId);
+        }
+    }
+
+    /**
+     * 课程有座位空出（保留过期或取消、扩容）后，用空余座位依次递补候补队列中的学生
+     * 递补命令在课程通道上执行，与该课程的选课、退课串行；在事务中调用时于事务提交后才排入通道，不等待递补完成
+     * @param courseId 课程ID
+     */
+    public void fillFromWaitlist(UUID courseId) {
+        Runnable fill = () -> courseCommandExecutor.enqueue(courseId.toString(), () -> {
+            int promoted = 0;
+            while (self.promoteIntoFreeSeat(courseId)) {
+                promoted++;
+            }
+            return promoted;
+        }).whenComplete((promoted, e) -> {
+            if (e != null) {
+                log.warn("候补递补失败，课程ID: {}: {}", courseId, e.getMessage());
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fill.run();
+                }
+            });
+        } else {
+            fill.run();
+        }
+    }
+
+    /**
+     * 占用一个空余座位并递补候补队首，由 fillFromWaitlist 在课程通道上经代理调用
+     * 每次递补一名学生并单独提交，候补队列在提交后出队
+     * @param courseId 课程ID
+     * @return 如果递补了一名学生返回true；没有候补学生或没有空余座位返回false
+     */
+    @RetryOnConflict
+    @Transactional
+    public boolean promoteIntoFreeSeat(UUID courseId) {
+        String courseKey = courseId.toString();
+        if (waitlistService.getWaitlistSize(courseKey) == 0 || !reserveSeat(courseId)) {
+            return false;
+        }
+        if (waitlistService.promoteNext(courseKey)) {
+            return true;
+        }
+        // 候补队列中已没有有效的候补记录，归还刚占用的座位
+        releaseSeat(courseId);
+        return false;
+    }
+
+    /**
+     * 检查课程是否已满（保留中的座位视为已占用）
+     * 不读课程缓存：启用座位台账时以台账为准（courses.enrolled 为批量回写，可能短暂滞后），否则查询数据库
      * @param courseId 课程ID
      * @return 如果课程已满返回true
      */
     public boolean isCourseFull(UUID courseId) {
+        if (seatLedger.isEnabled()) {
+            return seatLedger.remaining(courseId) <= 0;
+        }
         Optional<Course> course = courseRepository.findById(courseId);
         return course.map(c -> c.getEnrolled() >= c.getCapacity()).orElse(true);
     }
@@ -418,4 +747,18 @@ public class CourseService {
         return courseRepository.count() > 0;
     }
 
-}
\ No newline at end of file
+
+    @Override
+    public String getMetricsName() {
+        return "courseQueries";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("singleFlightEnabled", singleFlightEnabled);
+        metrics.put("getCourseById", courseLookups.getMetrics());
+        metrics.put("cacheEnabled", courseCache.isEnabled());
+        return metrics;
+    }
+}
@@ -0,0 +1,142 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * EnrollmentExportService 类
+ * 以 NDJSON（每行一条 JSON）流式导出选课记录，可按状态和课程过滤
+ *
+ * 记录从数据库游标按批读取，逐条序列化后直接写入输出流并从持久化上下文中分离，
+ * 内存占用与导出的记录数无关；每写出一定条数刷新一次输出流
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class EnrollmentExportService implements MetricsProvider {
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final ObjectWriter writer;
+    private final int flushRows;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicInteger activeExports = new AtomicInteger();
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder failedExports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private final AtomicLong lastDurationMs = new AtomicLong();
+
+    public EnrollmentExportService(EnrollmentRepository enrollmentRepository,
+                                   ObjectMapper objectMapper,
+                                   @Value("${campus.export.flush-rows:500}") int flushRows) {
+        this.enrollmentRepository = enrollmentRepository;
+        // 逐条写入时不刷新，由导出循环按批刷新
+        this.writer = objectMapper.writerFor(Enrollment.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.flushRows = Math.max(flushRows, 1);
+    }
+
+    /**
+     * 校验并解析导出的状态条件
+     * @param status 选课状态字符串，为空表示不过滤
+     * @return 选课状态枚举，不过滤时为null
+     * @throws IllegalArgumentException 如果状态无效
+     */
+    public EnrollmentStatus parseStatus(String status) {
+        if (!StringUtils.hasText(status)) {
+            return null;
+        }
+        try {
+            return EnrollmentStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的选课状态: " + status);
+        }
+    }
+
+    /**
+     * 将符合条件的选课记录按主键顺序以 NDJSON 写入输出流；输出流由调用方关闭
+     * @param status 选课状态，为null时不过滤
+     * @param courseId 课程ID，为空时不过滤
+     * @param out 输出流
+     * @return 导出的记录数
+     * @throws IOException 写入输出流失败（如客户端断开）
+     */
+    @Transactional(readOnly = true)
+    public long export(EnrollmentStatus status, String courseId, OutputStream out) throws IOException {
+        String courseFilter = StringUtils.hasText(courseId) ? courseId.trim() : null;
+        long startedAt = System.currentTimeMillis();
+        long rows = 0;
+        activeExports.incrementAndGet();
+        boolean completed = false;
+        try (Stream<Enrollment> enrollments = enrollmentRepository.streamForExport(status, courseFilter);
+             JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 每条记录后自行写换行，不使用默认的空格分隔
+            generator.setRootValueSeparator(null);
+            Iterator<Enrollment> iterator = enrollments.iterator();
+            while (iterator.hasNext()) {
+                Enrollment enrollment = iterator.next();
+                writer.writeValue(generator, enrollment);
+                generator.writeRaw('\n');
+                entityManager.detach(enrollment);
+                if (++rows % flushRows == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+            completed = true;
+            return rows;
+        } finally {
+            activeExports.decrementAndGet();
+            exportedRows.add(rows);
+            if (completed) {
+                exports.increment();
+            } else {
+                failedExports.increment();
+            }
+            lastDurationMs.set(System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "enrollmentExport";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeExports", activeExports.get());
+        metrics.put("exports", exports.sum());
+        metrics.put("failedExports", failedExports.sum());
+        metrics.put("exportedRows", exportedRows.sum());
+        metrics.put("lastDurationMs", lastDurationMs.get());
+        metrics.put("flushRows", flushRows);
+        return metrics;
+    }
+}
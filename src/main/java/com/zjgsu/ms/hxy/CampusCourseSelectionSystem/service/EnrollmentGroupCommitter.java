@@ -0,0 +1,295 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * EnrollmentGroupCommitter 类
+ * 选课组提交：把短时间窗口内并发到达的选课合并为一个事务，每个选课的校验、占座和插入都在该事务中执行，
+ * 新的选课记录以一次 JDBC 批处理写入，多个选课共享一次提交（一次日志刷盘），每个调用方仍单独得到自己的结果
+ * 占座与插入同时提交或同时回滚，不存在座位已计入而选课记录未写入的窗口
+ * 校验未通过的选课只让自己失败；批次因其他原因失败时退回逐个选课单独事务执行，只有真正有问题的选课失败
+ *
+ * 组提交线程串行执行全部选课，调用方不应在课程通道线程上等待结果，也不应在事务中提交
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class EnrollmentGroupCommitter implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentGroupCommitter.class);
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+    private final LinkedBlockingQueue<PendingEnrollment> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final AtomicInteger maxObservedBatch = new AtomicInteger();
+
+    public EnrollmentGroupCommitter(EnrollmentRepository enrollmentRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${campus.group-commit.enabled:false}") boolean enabled,
+                                    @Value("${campus.group-commit.window-micros:2000}") long windowMicros,
+                                    @Value("${campus.group-commit.max-batch-size:64}") int maxBatchSize,
+                                    @Value("${campus.group-commit.timeout-ms:5000}") long timeoutMillis) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.timeoutMillis = timeoutMillis;
+        this.flusher = new Thread(this::run, "enrollment-group-commit");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            flusher.start();
+        }
+    }
+
+    /**
+     * 组提交是否启用
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 将选课交给组提交执行，不等待结果
+     * 选课在批次事务中执行：返回ID为空的新记录时由批次统一插入，返回已保存的记录（如恢复已退课记录）时原样作为结果；
+     * 抛出 IllegalArgumentException 表示校验未通过，抛出前不得有任何写入
+     * @param enrollment 在批次事务中执行的校验、占座和写入
+     * @return 批次提交后完成的Future
+     */
+    public CompletableFuture<Enrollment> submit(Supplier<Enrollment> enrollment) {
+        PendingEnrollment pending = new PendingEnrollment(enrollment);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * 将选课交给组提交执行，并等待所在批次提交
+     * 等待超时时，尚未开始执行的选课会被撤销；已开始执行的选课继续等待其结果，保证调用方得到确定的结论
+     * @param enrollment 在批次事务中执行的校验、占座和写入
+     * @return 已提交的选课记录
+     * @throws CourseCommandTimeoutException 如果等待超时且选课已撤销
+     */
+    public Enrollment execute(Supplier<Enrollment> enrollment) {
+        PendingEnrollment pending = new PendingEnrollment(enrollment);
+        queue.add(pending);
+        try {
+            try {
+                return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.state.compareAndSet(PendingEnrollment.QUEUED, PendingEnrollment.CANCELLED)) {
+                    throw new CourseCommandTimeoutException("选课排队超时，未执行，请稍后重试", false);
+                }
+                return pending.future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("选课等待被中断");
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "groupCommit";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("queueDepth", queue.size());
+        metrics.put("batches", batchCount);
+        metrics.put("rows", rows.sum());
+        metrics.put("avgBatchSize", batchCount == 0 ? 0 : rows.sum() / batchCount);
+        metrics.put("maxBatchSize", maxObservedBatch.get());
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("failedRows", failedRows.sum());
+        return metrics;
+    }
+
+    /**
+     * 应用关闭时执行完已排队的选课
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher.isAlive()) {
+            flusher.join(timeoutMillis);
+        }
+    }
+
+    /**
+     * 组提交线程主循环：等到第一个选课后开启时间窗口，窗口结束或攒满一批即执行
+     */
+    private void run() {
+        List<PendingEnrollment> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEnrollment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !pollInto(batch, remaining)) {
+                        break;
+                    }
+                }
+                // 只执行调用方仍在等待的选课
+                batch.removeIf(pending -> !pending.state.compareAndSet(PendingEnrollment.QUEUED, PendingEnrollment.WRITING));
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean pollInto(List<PendingEnrollment> batch, long remainingNanos) throws InterruptedException {
+        PendingEnrollment next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+        if (next == null) {
+            return false;
+        }
+        batch.add(next);
+        return true;
+    }
+
+    /**
+     * 在一个事务中执行整批选课，新记录一次 saveAll 写入；批次失败时逐个在各自事务中重新执行
+     */
+    private void write(List<PendingEnrollment> batch) {
+        batches.increment();
+        rows.add(batch.size());
+        maxObservedBatch.accumulateAndGet(batch.size(), Math::max);
+        Object[] outcomes = new Object[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Enrollment> inserts = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        Enrollment enrollment = batch.get(i).enrollment.get();
+                        outcomes[i] = enrollment;
+                        if (enrollment.getId() == null) {
+                            inserts.add(enrollment);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // 校验未通过，尚未写入任何数据，不影响同批其他选课
+                        outcomes[i] = e;
+                    }
+                }
+                enrollmentRepository.saveAll(inserts);
+            });
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("选课批次执行失败，{} 个选课改为逐个执行: {}", batch.size(), e.getMessage());
+            for (PendingEnrollment pending : batch) {
+                writeSingle(pending);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes[i] instanceof Enrollment enrollment) {
+                batch.get(i).future.complete(enrollment);
+            } else {
+                batch.get(i).future.completeExceptionally((RuntimeException) outcomes[i]);
+            }
+        }
+    }
+
+    /**
+     * 单独执行一个选课；并发插入同一学生和课程或乐观锁冲突时重新执行一次，按最新数据处理
+     */
+    private void writeSingle(PendingEnrollment pending) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                pending.future.complete(transactionTemplate.execute(status -> {
+                    Enrollment enrollment = pending.enrollment.get();
+                    return enrollment.getId() == null ? enrollmentRepository.save(enrollment) : enrollment;
+                }));
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (attempt < 2) {
+                    continue;
+                }
+                failedRows.increment();
+                pending.future.completeExceptionally(e);
+                return;
+            } catch (RuntimeException e) {
+                if (!(e instanceof IllegalArgumentException)) {
+                    failedRows.increment();
+                }
+                pending.future.completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 等待组提交的单个选课
+     */
+    private static final class PendingEnrollment {
+        private static final int QUEUED = 0;
+        private static final int WRITING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Supplier<Enrollment> enrollment;
+        private final CompletableFuture<Enrollment> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private PendingEnrollment(Supplier<Enrollment> enrollment) {
+            this.enrollment = enrollment;
+        }
+    }
+}
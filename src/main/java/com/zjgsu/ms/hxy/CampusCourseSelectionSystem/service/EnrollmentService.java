@@ -1,18 +1,37 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
 
-import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect.RetryOnConflict;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.BatchEnrollmentResult;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.EnrollmentContext;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.SeatHold;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.SingleFlight;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * EnrollmentService 类
@@ -24,18 +43,66 @@ import java.util.UUID;
  * @since 2024
  */
 @Service
-public class EnrollmentService {
+public class EnrollmentService implements MetricsProvider {
+
+    /**
+     * 不占用座位的选课状态：已退课和候补中
+     */
+    private static final List<EnrollmentStatus> SEATLESS_STATUSES =
+            List.of(EnrollmentStatus.WITHDRAWN, EnrollmentStatus.WAITLISTED);
 
     private final EnrollmentRepository enrollmentRepository;
-    private final StudentService studentService;
     private final CourseService courseService;
+    private final WaitlistService waitlistService;
+    private final EnrollmentGroupCommitter groupCommitter;
+    private final SeatHoldService seatHoldService;
+    private final LotteryService lotteryService;
+    private final RegistrationWindowService registrationWindowService;
+    private final IdentityResolver identityResolver;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final KeysetPaginator keysetPaginator;
+    private final CourseCommandExecutor courseCommandExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 自身的代理，通道内的命令经代理调用以应用事务和冲突重试
+     */
+    private final EnrollmentService self;
+    private final boolean singleFlightEnabled;
+
+    /**
+     * 合并同一课程的并发选课人数查询
+     */
+    private final SingleFlight<String, Long> courseCounts = new SingleFlight<>();
 
     public EnrollmentService(EnrollmentRepository enrollmentRepository,
-                             @Lazy StudentService studentService,  // 添加 @Lazy  // ← 这里依赖了StudentService 导致了循环依赖
-                             CourseService courseService) {
+                             CourseService courseService,
+                             WaitlistService waitlistService,
+                             EnrollmentGroupCommitter groupCommitter,
+                             SeatHoldService seatHoldService,
+                             LotteryService lotteryService,
+                             RegistrationWindowService registrationWindowService,
+                             IdentityResolver identityResolver,
+                             StudentEnrollmentCache studentEnrollmentCache,
+                             KeysetPaginator keysetPaginator,
+                             CourseCommandExecutor courseCommandExecutor,
+                             PlatformTransactionManager transactionManager,
+                             @Lazy EnrollmentService self,
+                             @Value("${campus.single-flight.enabled:true}") boolean singleFlightEnabled) {
         this.enrollmentRepository = enrollmentRepository;
-        this.studentService = studentService;
         this.courseService = courseService;
+        this.waitlistService = waitlistService;
+        this.groupCommitter = groupCommitter;
+        this.seatHoldService = seatHoldService;
+        this.lotteryService = lotteryService;
+        this.registrationWindowService = registrationWindowService;
+        this.identityResolver = identityResolver;
+        this.studentEnrollmentCache = studentEnrollmentCache;
+        this.keysetPaginator = keysetPaginator;
+        this.courseCommandExecutor = courseCommandExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.self = self;
+        this.singleFlightEnabled = singleFlightEnabled;
     }
     /**
      * 获取所有选课记录
@@ -45,6 +112,18 @@ public class EnrollmentService {
         return enrollmentRepository.findAll();
     }
 
+    /**
+     * 游标分页查询选课记录，按主键排序
+     * @param after 上一页返回的游标，为空表示第一页
+     * @param limit 每页条数，为空使用默认值
+     * @return 一页选课记录及下一页游标
+     * @throws IllegalArgumentException 如果游标无效或每页条数不是正数
+     */
+    public CursorPage<Enrollment> getEnrollmentsPage(String after, Integer limit) {
+        return keysetPaginator.page(after, limit, enrollmentRepository::findAllByOrderByIdAsc,
+                enrollmentRepository::findByIdGreaterThanOrderByIdAsc, Enrollment::getId);
+    }
+
     /**
      * 根据ID获取选课记录
      * @param id 选课记录ID
@@ -68,6 +147,7 @@ public class EnrollmentService {
 
     /**
      * 根据学生ID获取选课记录
+     * 事务外的读取走按学生的缓存，事务内直接查询数据库
      * @param studentId 学生ID
      * @return 该学生的所有选课记录列表
      */
@@ -75,7 +155,14 @@ public class EnrollmentService {
         if (!StringUtils.hasText(studentId)) {
             throw new IllegalArgumentException("学生ID不能为空");
         }
-        return enrollmentRepository.findByStudentId(studentId);
+        return findEnrollmentsByStudent(studentId);
+    }
+
+    private List<Enrollment> findEnrollmentsByStudent(String studentId) {
+        if (!StringUtils.hasText(studentId) || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return enrollmentRepository.findByStudentId(studentId);
+        }
+        return studentEnrollmentCache.get(studentId, enrollmentRepository::findByStudentId);
     }
 
     /**
@@ -109,6 +196,7 @@ public class EnrollmentService {
 
     /**
      * 获取课程的选课人数
+     * 不在事务中调用时，同一课程的并发查询合并为一次数据库查询
      * @param courseId 课程ID
      * @return 该课程的选课人数
      */
@@ -116,7 +204,11 @@ public class EnrollmentService {
         if (!StringUtils.hasText(courseId)) {
             throw new IllegalArgumentException("课程ID不能为空");
         }
-        return enrollmentRepository.countByCourseIdAndStatusNot(courseId, EnrollmentStatus.WITHDRAWN);
+        if (!singleFlightEnabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return enrollmentRepository.countByCourseIdAndStatusNotIn(courseId, SEATLESS_STATUSES);
+        }
+        return courseCounts.execute(courseId,
+                () -> enrollmentRepository.countByCourseIdAndStatusNotIn(courseId, SEATLESS_STATUSES));
     }
 
     /**
@@ -128,7 +220,7 @@ public class EnrollmentService {
         if (!StringUtils.hasText(studentId)) {
             throw new IllegalArgumentException("学生ID不能为空");
         }
-        return enrollmentRepository.countByStudentIdAndStatusNot(studentId, EnrollmentStatus.WITHDRAWN);
+        return enrollmentRepository.countByStudentIdAndStatusNotIn(studentId, SEATLESS_STATUSES);
     }
 
     /**
@@ -137,25 +229,30 @@ public class EnrollmentService {
      * @param status 新状态字符串
      * @return 更新后的选课记录Optional
      */
+    @RetryOnConflict
     @Transactional
     public Optional<Enrollment> updateEnrollmentStatus(UUID id, String status) {
         if (!StringUtils.hasText(status)) {
             throw new IllegalArgumentException("状态不能为空");
         }
+        EnrollmentStatus statusEnum;
         try {
-            EnrollmentStatus statusEnum = EnrollmentStatus.valueOf(status.toUpperCase());
-            return updateEnrollmentStatus(id, statusEnum);
+            statusEnum = EnrollmentStatus.valueOf(status.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("无效的选课状态: " + status);
         }
+        return updateEnrollmentStatus(id, statusEnum);
     }
 
     /**
      * 更新选课状态（枚举版本）
+     * 从占座状态改为已退课时释放座位并递补候补队首；从已退课或候补改为占座状态时需占用一个座位
      * @param id 选课记录ID
      * @param status 新状态枚举
      * @return 更新后的选课记录Optional
+     * @throws IllegalArgumentException 如果改为候补状态，或需要占座而课程已满
      */
+    @RetryOnConflict
     @Transactional
     public Optional<Enrollment> updateEnrollmentStatus(UUID id, EnrollmentStatus status) {
         if (status == null) {
@@ -165,8 +262,26 @@ public class EnrollmentService {
         Optional<Enrollment> enrollment = enrollmentRepository.findById(id);
         if (enrollment.isPresent()) {
             Enrollment enroll = enrollment.get();
+            EnrollmentStatus previous = enroll.getStatus();
+            if (EnrollmentStatus.WAITLISTED.equals(status) && !EnrollmentStatus.WAITLISTED.equals(previous)) {
+                throw new IllegalArgumentException("不能直接改为候补状态，请通过候补接口加入候补队列");
+            }
+            boolean heldSeat = !SEATLESS_STATUSES.contains(previous);
+            boolean holdsSeat = !SEATLESS_STATUSES.contains(status);
+            if (holdsSeat && !heldSeat && !courseService.reserveSeat(parseUUID(enroll.getCourseId()))) {
+                throw new IllegalArgumentException("课程容量已满");
+            }
+            if (EnrollmentStatus.WAITLISTED.equals(previous) && !EnrollmentStatus.WAITLISTED.equals(status)) {
+                enroll.setWaitlistedAt(null);
+                waitlistService.dequeue(enroll.getCourseId(), enroll.getStudentId());
+            }
+            if (heldSeat && !holdsSeat) {
+                freeSeat(enroll.getCourseId());
+            }
             enroll.setStatus(status);
-            return Optional.of(enrollmentRepository.save(enroll));
+            Enrollment saved = enrollmentRepository.save(enroll);
+            studentEnrollmentCache.record(saved);
+            return Optional.of(saved);
         }
         return Optional.empty();
     }
@@ -177,6 +292,7 @@ public class EnrollmentService {
      * @param grade 成绩
      * @return 更新后的选课记录Optional
      */
+    @RetryOnConflict
     @Transactional
     public Optional<Enrollment> updateGrade(UUID id, Double grade) {
         if (grade == null) {
@@ -192,7 +308,9 @@ public class EnrollmentService {
             // 只有在特定状态下才能更新成绩
             if (canUpdateGrade(enroll)) {
                 enroll.setGrade(grade);
-                return Optional.of(enrollmentRepository.save(enroll));
+                Enrollment saved = enrollmentRepository.save(enroll);
+                studentEnrollmentCache.record(saved);
+                return Optional.of(saved);
             } else {
                 throw new IllegalArgumentException("当前无法更新成绩，选课状态为: " + enroll.getStatus());
             }
@@ -207,6 +325,7 @@ public class EnrollmentService {
      * @param grades 学生ID到成绩的映射
      * @return 更新成功的数量
      */
+    @RetryOnConflict
     @Transactional
     public int updateGradesForCourse(String courseId, Map<String, Double> grades) {
         if (!StringUtils.hasText(courseId)) {
@@ -231,7 +350,7 @@ public class EnrollmentService {
             String studentId = enrollment.getStudentId();
             if (grades.containsKey(studentId) && canUpdateGrade(enrollment)) {
                 enrollment.setGrade(grades.get(studentId));
-                enrollmentRepository.save(enrollment);
+                studentEnrollmentCache.record(enrollmentRepository.save(enrollment));
                 updatedCount++;
             }
         }
@@ -241,13 +360,23 @@ public class EnrollmentService {
 
     /**
      * 删除选课记录
+     * 删除占座的记录时释放座位并由候补队首递补，删除候补记录时移出候补队列
      * @param id 选课记录ID
      * @return 如果删除成功返回true，否则返回false
      */
+    @RetryOnConflict
     @Transactional
     public boolean deleteEnrollment(UUID id) {
-        if (enrollmentRepository.existsById(id)) {
-            enrollmentRepository.deleteById(id);
+        Optional<Enrollment> enrollment = enrollmentRepository.findById(id);
+        if (enrollment.isPresent()) {
+            Enrollment enroll = enrollment.get();
+            enrollmentRepository.delete(enroll);
+            studentEnrollmentCache.evict(enroll.getStudentId());
+            if (EnrollmentStatus.WAITLISTED.equals(enroll.getStatus())) {
+                waitlistService.dequeue(enroll.getCourseId(), enroll.getStudentId());
+            } else if (!SEATLESS_STATUSES.contains(enroll.getStatus())) {
+                freeSeat(enroll.getCourseId());
+            }
             return true;
         }
         return false;
@@ -263,7 +392,7 @@ public class EnrollmentService {
         if (!StringUtils.hasText(courseId) || !StringUtils.hasText(studentId)) {
             return false;
         }
-        return enrollmentRepository.existsByCourseIdAndStudentIdAndStatusNot(courseId, studentId, EnrollmentStatus.WITHDRAWN);
+        return enrollmentRepository.existsByCourseIdAndStudentIdAndStatusNotIn(courseId, studentId, SEATLESS_STATUSES);
     }
 
     /**
@@ -283,7 +412,7 @@ public class EnrollmentService {
      * @return 平均成绩，如果没有成绩返回空Optional
      */
     public Optional<Double> getStudentAverageGrade(String studentId) {
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(studentId);
+        List<Enrollment> enrollments = findEnrollmentsByStudent(studentId);
 
         List<Double> grades = enrollments.stream()
                 .filter(enrollment -> enrollment.getGrade() != null &&
@@ -316,45 +445,24 @@ public class EnrollmentService {
     }
 
     /**
-     * 检查学生是否存在
+     * 检查学生是否存在（学生ID或学号）
      */
     private boolean studentExists(String studentId) {
-        // 这里假设studentId是UUID字符串，需要转换为UUID查询
-        try {
-            UUID studentUUID = UUID.fromString(studentId);
-            return studentService.studentExists(studentUUID);
-        } catch (IllegalArgumentException e) {
-            // 如果studentId不是UUID格式，可能需要其他查询方式
-            return studentService.getStudentByStudentId(studentId).isPresent();
-        }
+        return identityResolver.studentExists(studentId);
     }
 
     /**
-     * 检查课程是否存在
+     * 检查课程是否存在（课程ID或课程编号）
      */
     private boolean courseExists(String courseId) {
-        // 这里假设courseId是UUID字符串，需要转换为UUID查询
-        try {
-            UUID courseUUID = UUID.fromString(courseId);
-            return courseService.courseExists(courseUUID);
-        } catch (IllegalArgumentException e) {
-            // 如果courseId不是UUID格式，可能需要其他查询方式
-            return courseService.getCourseByCode(courseId).isPresent();
-        }
+        return identityResolver.courseExists(courseId);
     }
 
     /**
-     * 检查课程是否已满（优化版）
+     * 检查课程是否已满（课程ID或课程编号），课程不存在视为已满
      */
-    private boolean isCourseFull(String courseId, long currentEnrollment) {
-        try {
-            UUID courseUUID = UUID.fromString(courseId);
-            return courseService.isCourseFull(courseUUID);
-        } catch (IllegalArgumentException e) {
-            // 处理非UUID格式的courseId
-            Optional<Course> course = courseService.getCourseByCode(courseId);
-            return course.map(c -> currentEnrollment >= c.getCapacity()).orElse(true);
-        }
+    private boolean isCourseFull(String courseId) {
+        return identityResolver.resolveCourse(courseId).map(courseService::isCourseFull).orElse(true);
     }
 
     /**
@@ -387,57 +495,441 @@ public class EnrollmentService {
      * 解析UUID，处理字符串格式的ID
      */
     private UUID parseUUID(String id) {
-        try {
-            return UUID.fromString(id);
-        } catch (IllegalArgumentException e) {
-            // 如果不是UUID格式，可能需要其他处理方式
+        UUID uuid = UuidUtils.parseOrNull(id);
+        if (uuid == null) {
             throw new IllegalArgumentException("无效的ID格式: " + id);
         }
+        return uuid;
     }
 
 
     /**
      * 学生选课（完善版）
+     * 学生、课程和已有选课记录由一次查询加载，后续校验都基于该快照；
+     * 成功选课只执行该查询和一条插入语句（关闭座位台账时另加一条条件占座 UPDATE）
+     * 退课后重新选课时复用原有的已退课记录，以一条条件 UPDATE 代替插入，不加载、不合并实体；
+     * 并发插入同一学生和课程导致唯一约束冲突时由重试切面重新执行，按已存在记录处理
+     *
+     * 启用组提交时，校验、占座和插入交给组提交线程在批次事务中执行，调用线程等待批次提交；
+     * 此时不应在课程通道线程上调用，以免等待期间阻塞通道
      */
-    @Transactional
+    @RetryOnConflict(retryOnDuplicateKey = true)
     public Enrollment enrollCourse(String courseId, String studentId) {
+        checkDirectEnrollmentOpen(studentId);
+        // 已在外层事务中时不能脱离该事务写入，直接在事务内保存
+        if (isGroupCommitEnabled() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return recorded(groupCommitter.execute(() -> prepareEnrollment(courseId, studentId, true, null)));
+        }
+        return transactionTemplate.execute(status -> prepareEnrollment(courseId, studentId, false, null));
+    }
+
+    /**
+     * 提交选课，不等待结果
+     * 启用组提交时交给组提交线程执行，返回批次提交后完成的Future；未启用时在调用线程上同步执行
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 选课结果的Future，校验失败时以 IllegalArgumentException 异常完成
+     */
+    public CompletableFuture<Enrollment> submitEnrollment(String courseId, String studentId) {
+        try {
+            if (!isGroupCommitEnabled()) {
+                return CompletableFuture.completedFuture(enrollCourse(courseId, studentId));
+            }
+            checkDirectEnrollmentOpen(studentId);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return groupCommitter.submit(() -> prepareEnrollment(courseId, studentId, true, null)).thenApply(this::recorded);
+    }
+
+    /**
+     * 是否启用选课组提交
+     * 启用时选课在组提交线程上串行执行，调用方不必再经过课程通道
+     * @return 启用返回true
+     */
+    public boolean isGroupCommitEnabled() {
+        return groupCommitter.isEnabled();
+    }
+
+    /**
+     * 组提交完成后记录到按学生的选课缓存
+     */
+    private Enrollment recorded(Enrollment saved) {
+        studentEnrollmentCache.record(saved);
+        return saved;
+    }
+
+    /**
+     * 确认座位保留：将保留的座位转为选课记录，不再重新占座
+     * 保留在本事务中被消费，事务回滚时座位归还，需重新保留或直接选课
+     * @param courseId 课程ID
+     * @param holdId 保留ID
+     * @return 选课记录
+     * @throws IllegalArgumentException 如果保留不存在、已过期或不属于该课程，或学生已选该课程
+     */
+    @RetryOnConflict(retryOnDuplicateKey = true)
+    @Transactional
+    public Enrollment confirmSeatHold(String courseId, UUID holdId) {
+        SeatHold hold = seatHoldService.getHold(holdId)
+                .filter(h -> h.getCourseId().equals(courseId))
+                .orElseThrow(() -> new IllegalArgumentException("座位保留不存在或已过期，ID: " + holdId));
+        return prepareEnrollment(courseId, hold.getStudentId(), false, holdId);
+    }
+
+    /**
+     * 校验并占座，保存选课记录
+     * 校验未通过时在任何写入之前抛出 IllegalArgumentException，组提交据此只让该选课失败
+     * @param deferInsert 为true时新的选课记录不在本方法中插入，而是原样返回（ID为空）由组提交在同一事务中批量插入
+     * @param holdId 座位保留ID，不为空时消费该保留代替占座
+     */
+    private Enrollment prepareEnrollment(String courseId, String studentId, boolean deferInsert, UUID holdId) {
         // 验证输入参数
         validateCourseAndStudentIds(courseId, studentId);
 
-        // 检查学生是否存在
+        UUID courseUUID = parseUUID(courseId);
+
+        // 一次查询加载学生、课程和已有选课记录
+        EnrollmentContext context = loadEnrollmentContext(courseUUID, courseId, studentId);
+
+        // 检查是否已经选过该课程
+        Enrollment existing = context.getExistingEnrollment();
+        if (existing != null && !EnrollmentStatus.WITHDRAWN.equals(existing.getStatus())) {
+            throw new IllegalArgumentException("学生已选该课程，无法重复选课");
+        }
+
+        // 原子占座：台账内存计数或一条条件 UPDATE 同时完成容量判断和选课人数加一
+        if (holdId != null) {
+            if (seatHoldService.claim(holdId).isEmpty()) {
+                throw new IllegalArgumentException("座位保留不存在或已过期，ID: " + holdId);
+            }
+        } else if (!courseService.reserveSeat(courseUUID)) {
+            throw new IllegalArgumentException("课程容量已满，无法选课，可加入候补队列");
+        }
+
+        // 已退课的记录直接恢复为已选课（course_id + student_id 唯一）
+        // 与占座处于同一事务，写入失败时座位随事务回滚
+        if (existing != null) {
+            Enrollment saved = reactivateAll(List.of(existing)).get(0);
+            studentEnrollmentCache.record(saved);
+            return saved;
+        }
+
+        // 创建新记录
+        Enrollment enrollment = new Enrollment(courseId, studentId);
+        if (deferInsert) {
+            return enrollment;
+        }
+        Enrollment saved = enrollmentRepository.save(enrollment);
+        studentEnrollmentCache.record(saved);
+        return saved;
+    }
+
+    /**
+     * 抽签登记期开始后直到抽签分配完成，不开放先到先得选课和候补；
+     * 启用分批选课时段时，学生只能在所在批次的时段内选课
+     * 只访问内存，控制器可在提交到课程通道之前调用，未开放时不占用通道
+     * @param studentId 学生ID
+     * @throws IllegalArgumentException 如果当前不开放选课
+     */
+    public void checkDirectEnrollmentOpen(String studentId) {
+        if (lotteryService.blocksDirectEnrollment()) {
+            throw new IllegalArgumentException("当前为抽签选课阶段，请提交抽签登记，结果在登记截止后统一分配");
+        }
+        registrationWindowService.checkOpen(studentId);
+    }
+
+    /**
+     * 将已退课的选课记录一次性恢复为已选课状态：一条条件 UPDATE 写入，返回同步修改后的记录
+     * @throws OptimisticLockingFailureException 如果有记录已不是已退课状态，由重试切面重新执行
+     */
+    private List<Enrollment> reactivateAll(List<Enrollment> withdrawn) {
+        if (withdrawn.isEmpty()) {
+            return withdrawn;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> ids = withdrawn.stream().map(Enrollment::getId).toList();
+        if (enrollmentRepository.reactivateWithdrawn(ids, now) != ids.size()) {
+            throw new OptimisticLockingFailureException("选课记录已被其他操作修改");
+        }
+        for (Enrollment enrollment : withdrawn) {
+            reactivate(enrollment);
+            enrollment.setEnrolledAt(now);
+            enrollment.setVersion(enrollment.getVersion() + 1);
+        }
+        return withdrawn;
+    }
+
+    /**
+     * 将已退课的选课记录恢复为已选课状态，保存时按版本号更新原记录
+     */
+    private Enrollment reactivate(Enrollment withdrawn) {
+        withdrawn.setStatus(EnrollmentStatus.ENROLLED);
+        withdrawn.setGrade(null);
+        withdrawn.setWaitlistedAt(null);
+        return withdrawn;
+    }
+
+    /**
+     * 加载选课上下文
+     * @throws IllegalArgumentException 如果学生或课程不存在
+     */
+    private EnrollmentContext loadEnrollmentContext(UUID courseUUID, String courseId, String studentId) {
+        // 非UUID格式按学号匹配
+        UUID studentUUID = UuidUtils.parseOrNull(studentId);
+
+        List<EnrollmentContext> contexts =
+                enrollmentRepository.loadEnrollmentContext(courseUUID, courseId, studentUUID, studentId);
+        if (contexts.isEmpty()) {
+            // 仅在加载失败时区分学生不存在与课程不存在
+            if (!studentExists(studentId)) {
+                throw new IllegalArgumentException("学生不存在，ID: " + studentId);
+            }
+            throw new IllegalArgumentException("课程不存在，ID: " + courseId);
+        }
+        return contexts.get(0);
+    }
+
+    /**
+     * 批量选课（购物车结算）
+     * 学生只校验一次；每门课程的校验、占座和写入作为一条命令提交到该课程的执行通道，与该课程的单门选课、退课串行，
+     * 不同课程的通道并行处理。规则与单门选课相同：已退课的记录以一条 UPDATE 恢复，课程已满时提示加入候补队列
+     * 全有全无模式下任一课程失败时，已成功的课程在各自通道上撤销，释放的座位由候补队首递补
+     * @param studentId 学生ID
+     * @param courseIds 课程ID列表
+     * @param allOrNothing true 表示任一课程失败则全部撤销；false 表示尽力而为，跳过失败的课程
+     * @return 每门课程的处理结果（按课程ID排序）
+     * @throws IllegalArgumentException 如果参数无效、学生不存在，或全有全无模式下任一课程失败
+     */
+    public List<BatchEnrollmentResult> enrollCourses(String studentId, List<String> courseIds, boolean allOrNothing) {
+        if (!StringUtils.hasText(studentId)) {
+            throw new IllegalArgumentException("学生ID不能为空");
+        }
+        if (courseIds == null || courseIds.isEmpty()) {
+            throw new IllegalArgumentException("课程列表不能为空");
+        }
+        checkDirectEnrollmentOpen(studentId);
+
+        // 学生只校验一次
+        if (!studentExists(studentId)) {
+            throw new IllegalArgumentException("学生不存在，ID: " + studentId);
+        }
+
+        // 去重并排序，结果按课程ID排列
+        List<String> orderedCourseIds = courseIds.stream()
+                .filter(StringUtils::hasText)
+                .distinct()
+                .sorted()
+                .toList();
+
+        List<BatchEnrollmentResult> results = new ArrayList<>();
+        List<String> validCourseIds = new ArrayList<>();
+        for (String courseId : orderedCourseIds) {
+            if (UuidUtils.parseOrNull(courseId) != null) {
+                validCourseIds.add(courseId);
+            } else if (allOrNothing) {
+                // 尚未提交任何课程，直接失败
+                throw new IllegalArgumentException("批量选课失败，课程 " + courseId + ": 无效的ID格式: " + courseId);
+            } else {
+                results.add(BatchEnrollmentResult.failure(courseId, "无效的ID格式: " + courseId));
+            }
+        }
+
+        // 撤销时据此区分新插入的记录和恢复的已退课记录
+        Set<String> existingCourseIds = enrollmentRepository.findByStudentId(studentId).stream()
+                .map(Enrollment::getCourseId)
+                .collect(Collectors.toSet());
+
+        Map<String, CompletableFuture<Enrollment>> pending = new LinkedHashMap<>();
+        for (String courseId : validCourseIds) {
+            try {
+                pending.put(courseId, courseCommandExecutor.submit(courseId, () -> self.enrollInBatch(courseId, studentId)));
+            } catch (IllegalStateException e) {
+                // 通道队列已满
+                results.add(BatchEnrollmentResult.failure(courseId, e.getMessage()));
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<Enrollment>> entry : pending.entrySet()) {
+            results.add(awaitBatchResult(entry.getKey(), entry.getValue()));
+        }
+        results.sort((a, b) -> a.getCourseId().compareTo(b.getCourseId()));
+
+        if (allOrNothing) {
+            Optional<BatchEnrollmentResult> failed = results.stream().filter(r -> !r.isSuccess()).findFirst();
+            if (failed.isPresent()) {
+                revokeBatch(results, existingCourseIds);
+                throw new IllegalArgumentException("批量选课失败，课程 " + failed.get().getCourseId() + ": "
+                        + failed.get().getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 批量选课中的单门课程，由 enrollCourses 在课程通道上经代理调用
+     * 校验、占座和写入在一个事务中完成；并发插入同一学生和课程时由重试切面重新执行，按已存在记录处理
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 选课记录
+     * @throws IllegalArgumentException 如果学生或课程不存在、已选该课程，或课程已满
+     */
+    @RetryOnConflict(retryOnDuplicateKey = true)
+    @Transactional
+    public Enrollment enrollInBatch(String courseId, String studentId) {
+        return prepareEnrollment(courseId, studentId, false, null);
+    }
+
+    /**
+     * 撤销批量选课中已成功的一门课程，由 enrollCourses 在课程通道上经代理调用
+     * 新插入的记录直接删除，恢复的已退课记录改回已退课；释放的座位由候补队首递补，无人候补时归还
+     * @param enrollmentId 选课记录ID
+     * @param inserted 记录是否为本次批量选课新插入
+     */
+    @RetryOnConflict
+    @Transactional
+    public void revokeBatchEnrollment(UUID enrollmentId, boolean inserted) {
+        Optional<Enrollment> found = enrollmentRepository.findById(enrollmentId);
+        if (found.isEmpty() || !EnrollmentStatus.ENROLLED.equals(found.get().getStatus())) {
+            return;
+        }
+        Enrollment enrollment = found.get();
+        if (inserted) {
+            enrollmentRepository.delete(enrollment);
+            studentEnrollmentCache.evict(enrollment.getStudentId());
+        } else {
+            enrollment.setStatus(EnrollmentStatus.WITHDRAWN);
+            studentEnrollmentCache.record(enrollmentRepository.save(enrollment));
+        }
+        freeSeat(enrollment.getCourseId());
+    }
+
+    /**
+     * 等待批量选课中一门课程的结果；已开始执行的命令等到结束，保证批量结果确定
+     */
+    private BatchEnrollmentResult awaitBatchResult(String courseId, CompletableFuture<Enrollment> future) {
+        try {
+            return BatchEnrollmentResult.success(courseId, recorded(courseCommandExecutor.await(future)));
+        } catch (CourseCommandTimeoutException e) {
+            if (!e.isStarted()) {
+                return BatchEnrollmentResult.failure(courseId, e.getMessage());
+            }
+            try {
+                return BatchEnrollmentResult.success(courseId, recorded(future.join()));
+            } catch (CompletionException completion) {
+                return BatchEnrollmentResult.failure(courseId, batchFailureMessage(completion.getCause()));
+            }
+        } catch (RuntimeException e) {
+            return BatchEnrollmentResult.failure(courseId, batchFailureMessage(e));
+        }
+    }
+
+    private static String batchFailureMessage(Throwable error) {
+        return error instanceof IllegalArgumentException ? error.getMessage() : "选课失败: " + error.getMessage();
+    }
+
+    /**
+     * 全有全无模式下撤销已成功的课程，每门课程在各自通道上执行
+     * @throws IllegalStateException 如果有课程撤销失败
+     */
+    private void revokeBatch(List<BatchEnrollmentResult> results, Set<String> existingCourseIds) {
+        Map<String, CompletableFuture<Void>> revocations = new LinkedHashMap<>();
+        for (BatchEnrollmentResult result : results) {
+            if (result.isSuccess()) {
+                UUID enrollmentId = result.getEnrollment().getId();
+                boolean inserted = !existingCourseIds.contains(result.getCourseId());
+                revocations.put(result.getCourseId(), courseCommandExecutor.submit(result.getCourseId(), () -> {
+                    self.revokeBatchEnrollment(enrollmentId, inserted);
+                    return null;
+                }));
+            }
+        }
+        List<String> unrevoked = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : revocations.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                unrevoked.add(entry.getKey());
+            }
+        }
+        if (!unrevoked.isEmpty()) {
+            throw new IllegalStateException("批量选课失败，以下课程的选课未能撤销，请退课后重试: " + unrevoked);
+        }
+    }
+
+    /**
+     * 加入课程候补队列
+     * 课程已满时学生可以候补，有人退课时按候补先后自动递补
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 候补状态的选课记录
+     * @throws IllegalArgumentException 如果不在选课时段内、学生或课程不存在、已选该课程、已在候补中，或课程仍有空余座位
+     */
+    @RetryOnConflict
+    @Transactional
+    public Enrollment joinWaitlist(String courseId, String studentId) {
+        validateCourseAndStudentIds(courseId, studentId);
+        checkDirectEnrollmentOpen(studentId);
+
         if (!studentExists(studentId)) {
             throw new IllegalArgumentException("学生不存在，ID: " + studentId);
         }
 
-        // 检查课程是否存在
         UUID courseUUID = parseUUID(courseId);
-        if (!courseService.courseExists(courseUUID)) {
+        if (!courseExists(courseId)) {
             throw new IllegalArgumentException("课程不存在，ID: " + courseId);
         }
 
-        // 检查是否已经选过该课程
-        if (enrollmentRepository.existsByCourseIdAndStudentIdAndStatusNot(courseId, studentId, EnrollmentStatus.WITHDRAWN)) {
+        Optional<Enrollment> existing = enrollmentRepository.findByCourseIdAndStudentId(courseId, studentId);
+        if (existing.isPresent() && EnrollmentStatus.WAITLISTED.equals(existing.get().getStatus())) {
+            throw new IllegalArgumentException("学生已在该课程的候补队列中");
+        }
+        if (existing.isPresent() && !EnrollmentStatus.WITHDRAWN.equals(existing.get().getStatus())) {
             throw new IllegalArgumentException("学生已选该课程，无法重复选课");
         }
 
-        // 检查课程容量（使用 enrolled 字段）
-        if (courseService.isCourseFull(courseUUID)) {
-            throw new IllegalArgumentException("课程容量已满，无法选课");
+        if (!courseService.isCourseFull(courseUUID)) {
+            throw new IllegalArgumentException("课程仍有空余容量，请直接选课");
         }
 
-        // 创建选课记录
-        Enrollment enrollment = new Enrollment(courseId, studentId);
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        // 已退课的记录直接复用（course_id + student_id 唯一）
+        Enrollment enrollment = existing.orElseGet(() -> new Enrollment(courseId, studentId));
+        enrollment.setStatus(EnrollmentStatus.WAITLISTED);
+        enrollment.setGrade(null);
+        enrollment.setWaitlistedAt(LocalDateTime.now());
+        Enrollment saved = enrollmentRepository.save(enrollment);
+        studentEnrollmentCache.record(saved);
+
+        waitlistService.enqueue(saved);
+        return saved;
+    }
 
-        // 级联更新：增加课程选课人数
-        courseService.incrementEnrolled(courseUUID);
+    /**
+     * 查询学生在课程候补队列中的位置（仅访问内存）
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 从1开始的位置；不在候补队列中返回空Optional
+     */
+    public Optional<Integer> getWaitlistPosition(String courseId, String studentId) {
+        validateCourseAndStudentIds(courseId, studentId);
+        return waitlistService.getPosition(courseId, studentId);
+    }
 
-        return savedEnrollment;
+    /**
+     * 获取课程候补人数（仅访问内存）
+     * @param courseId 课程ID
+     * @return 候补人数
+     */
+    public int getWaitlistSize(String courseId) {
+        if (!StringUtils.hasText(courseId)) {
+            throw new IllegalArgumentException("课程ID不能为空");
+        }
+        return waitlistService.getWaitlistSize(courseId);
     }
 
     /**
      * 学生退课（完善版）
+     * 退课释放的座位由候补队首在同一事务中递补
      */
+    @RetryOnConflict
     @Transactional
     public boolean withdrawCourse(String courseId, String studentId) {
         // 验证输入参数
@@ -447,14 +939,23 @@ public class EnrollmentService {
 
         if (enrollment.isPresent()) {
             Enrollment enroll = enrollment.get();
+
+            // 候补中的学生退出候补队列，不涉及座位
+            if (EnrollmentStatus.WAITLISTED.equals(enroll.getStatus())) {
+                enroll.setStatus(EnrollmentStatus.WITHDRAWN);
+                enroll.setWaitlistedAt(null);
+                studentEnrollmentCache.record(enrollmentRepository.save(enroll));
+                waitlistService.dequeue(courseId, studentId);
+                return true;
+            }
+
             // 检查是否可以退课
             if (canWithdrawCourse(enroll)) {
                 enroll.setStatus(EnrollmentStatus.WITHDRAWN);
-                enrollmentRepository.save(enroll);
+                studentEnrollmentCache.record(enrollmentRepository.save(enroll));
 
-                // 级联更新：减少课程选课人数
-                UUID courseUUID = parseUUID(courseId);
-                courseService.decrementEnrolled(courseUUID);
+                // 候补队首在同一事务中递补并接替该座位；无人候补时原子释放座位
+                freeSeat(courseId);
 
                 return true;
             } else {
@@ -465,4 +966,25 @@ public class EnrollmentService {
         return false;
     }
 
-}
\ No newline at end of file
+    /**
+     * 释放一个已选座位：候补队首在调用方事务中递补并接替该座位，无人候补时归还座位
+     */
+    private void freeSeat(String courseId) {
+        if (!waitlistService.promoteNext(courseId)) {
+            courseService.releaseSeat(parseUUID(courseId));
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "enrollmentQueries";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("singleFlightEnabled", singleFlightEnabled);
+        metrics.put("getEnrollmentCountByCourse", courseCounts.getMetrics());
+        return metrics;
+    }
+}
@@ -0,0 +1,221 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.EnrollmentTicket;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EnrollmentTicketService 类
+ * 异步选课：请求进入有界队列后立即返回票据，由少量工作线程按小批次取出，
+ * 分发到各课程的执行通道处理，等待本批完成后再取下一批
+ * HTTP 并发与数据库并发由此解耦，同时处理中的选课数不超过 工作线程数 × 批大小
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class EnrollmentTicketService implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentTicketService.class);
+
+    private final EnrollmentService enrollmentService;
+    private final CourseCommandExecutor courseCommandExecutor;
+    private final BlockingQueue<EnrollmentTicket> queue;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final Duration retention;
+    private volatile boolean running = true;
+
+    /**
+     * 票据ID -> 票据，已完成的票据保留一段时间供查询
+     */
+    private final ConcurrentHashMap<UUID, EnrollmentTicket> tickets = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+
+    public EnrollmentTicketService(EnrollmentService enrollmentService,
+                                   CourseCommandExecutor courseCommandExecutor,
+                                   @Value("${campus.enrollment-tickets.queue-capacity:20000}") int queueCapacity,
+                                   @Value("${campus.enrollment-tickets.workers:2}") int workerCount,
+                                   @Value("${campus.enrollment-tickets.batch-size:32}") int batchSize,
+                                   @Value("${campus.enrollment-tickets.retention-ms:600000}") long retentionMillis) {
+        this.enrollmentService = enrollmentService;
+        this.courseCommandExecutor = courseCommandExecutor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(batchSize, 1);
+        this.retention = Duration.ofMillis(retentionMillis);
+        int count = Math.max(workerCount, 1);
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "enrollment-ticket-worker-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    /**
+     * 提交异步选课请求
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 处理中的票据
+     * @throws IllegalStateException 如果排队已满
+     */
+    public EnrollmentTicket submit(String courseId, String studentId) {
+        EnrollmentTicket ticket = new EnrollmentTicket(courseId, studentId);
+        tickets.put(ticket.getId(), ticket);
+        if (!running || !queue.offer(ticket)) {
+            tickets.remove(ticket.getId());
+            rejected.increment();
+            throw new IllegalStateException("选课请求排队已满，请稍后重试");
+        }
+        submitted.increment();
+        return ticket;
+    }
+
+    /**
+     * 查询票据
+     * @param id 票据ID
+     * @return 包含票据的Optional；不存在或已过期返回空Optional
+     */
+    public Optional<EnrollmentTicket> getTicket(UUID id) {
+        return Optional.ofNullable(tickets.get(id));
+    }
+
+    /**
+     * 清理超过保留时间的已完成票据
+     */
+    @Scheduled(fixedDelayString = "${campus.enrollment-tickets.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        LocalDateTime deadline = LocalDateTime.now().minus(retention);
+        tickets.values().removeIf(ticket -> ticket.getCompletedAt() != null
+                && ticket.getCompletedAt().isBefore(deadline));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "enrollmentTickets";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long completed = succeeded.sum() + failed.sum();
+        long batchCount = batches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("trackedTickets", tickets.size());
+        metrics.put("submitted", submitted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("succeeded", succeeded.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("avgBatchSize", batchCount == 0 ? 0 : completed / batchCount);
+        metrics.put("avgLatencyMillis", completed == 0 ? 0 : totalLatencyMillis.sum() / completed);
+        return metrics;
+    }
+
+    /**
+     * 应用关闭时停止接收新请求，已排队的请求处理完毕后退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 工作线程主循环：阻塞等待第一条请求，再一次性取出至多一批
+     */
+    private void drain() {
+        List<EnrollmentTicket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EnrollmentTicket first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("异步选课批次处理异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 将一批请求分发到各自课程的执行通道（启用组提交时交给组提交），等待全部完成
+     */
+    private void process(List<EnrollmentTicket> batch) {
+        batches.increment();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            EnrollmentTicket ticket = batch.get(i);
+            CompletableFuture<Enrollment> result = enrollmentService.isGroupCommitEnabled()
+                    ? enrollmentService.submitEnrollment(ticket.getCourseId(), ticket.getStudentId())
+                    : courseCommandExecutor.submit(ticket.getCourseId(),
+                            () -> enrollmentService.enrollCourse(ticket.getCourseId(), ticket.getStudentId()));
+            futures[i] = result
+                    .handle((enrollment, error) -> {
+                        complete(ticket, enrollment, error);
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void complete(EnrollmentTicket ticket, Enrollment enrollment, Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error == null) {
+            ticket.succeed(enrollment);
+            succeeded.increment();
+        } else if (error instanceof IllegalArgumentException || error instanceof IllegalStateException) {
+            ticket.fail(error.getMessage());
+            failed.increment();
+        } else {
+            ticket.fail("选课失败: " + error.getMessage());
+            failed.increment();
+        }
+        totalLatencyMillis.add(Duration.between(ticket.getCreatedAt(), ticket.getCompletedAt()).toMillis());
+    }
+}
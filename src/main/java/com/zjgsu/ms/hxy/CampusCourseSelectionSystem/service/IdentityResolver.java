@@ -0,0 +1,253 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.LruCache;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * IdentityResolver 类
+ * 学生、课程的标识解析：接口参数既可能是 UUID，也可能是学号或课程编号，
+ * 在此统一解析为 UUID 并可反查业务ID，结果带缓存
+ *
+ * 按格式判断是否为 UUID，不再以捕获异常区分两种标识；
+ * 不存在的标识短时间内缓存为“不存在”，重复请求不再查询数据库
+ *
+ * 学生、课程的新增、修改、删除在事务提交后使相关标识失效
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class IdentityResolver implements MetricsProvider {
+
+    private final StudentRepository studentRepository;
+    private final CourseRepository courseRepository;
+    private final boolean enabled;
+    private final IdentityCache students;
+    private final IdentityCache courses;
+
+    public IdentityResolver(StudentRepository studentRepository,
+                            CourseRepository courseRepository,
+                            @Value("${campus.identity-cache.enabled:true}") boolean enabled,
+                            @Value("${campus.identity-cache.max-size:10000}") int maxSize,
+                            @Value("${campus.identity-cache.ttl-seconds:600}") long ttlSeconds,
+                            @Value("${campus.identity-cache.negative-ttl-seconds:5}") long negativeTtlSeconds) {
+        this.studentRepository = studentRepository;
+        this.courseRepository = courseRepository;
+        this.enabled = enabled;
+        this.students = new IdentityCache(maxSize, ttlSeconds, negativeTtlSeconds);
+        this.courses = new IdentityCache(maxSize, ttlSeconds, negativeTtlSeconds);
+    }
+
+    /**
+     * 解析学生标识
+     * @param studentId 学生ID（UUID）或学号
+     * @return 学生的UUID；学生不存在返回空Optional
+     */
+    public Optional<UUID> resolveStudent(String studentId) {
+        return students.resolve(studentId, this::loadStudent).map(identity -> identity.id);
+    }
+
+    /**
+     * 根据学生UUID反查学号
+     * @param id 学生ID
+     * @return 学号；学生不存在返回空Optional
+     */
+    public Optional<String> studentNumberOf(UUID id) {
+        return students.resolve(id.toString(), this::loadStudent).map(identity -> identity.businessKey);
+    }
+
+    /**
+     * 学生是否存在
+     * @param studentId 学生ID（UUID）或学号
+     * @return 存在返回true
+     */
+    public boolean studentExists(String studentId) {
+        return resolveStudent(studentId).isPresent();
+    }
+
+    /**
+     * 解析课程标识
+     * @param courseId 课程ID（UUID）或课程编号
+     * @return 课程的UUID；课程不存在返回空Optional
+     */
+    public Optional<UUID> resolveCourse(String courseId) {
+        return courses.resolve(courseId, this::loadCourse).map(identity -> identity.id);
+    }
+
+    /**
+     * 根据课程UUID反查课程编号
+     * @param id 课程ID
+     * @return 课程编号；课程不存在返回空Optional
+     */
+    public Optional<String> courseCodeOf(UUID id) {
+        return courses.resolve(id.toString(), this::loadCourse).map(identity -> identity.businessKey);
+    }
+
+    /**
+     * 课程是否存在
+     * @param courseId 课程ID（UUID）或课程编号
+     * @return 存在返回true
+     */
+    public boolean courseExists(String courseId) {
+        return resolveCourse(courseId).isPresent();
+    }
+
+    /**
+     * 学生新增、修改或删除后使其标识失效
+     * @param id 学生ID
+     * @param studentNumber 学号（修改时为新学号）
+     */
+    public void invalidateStudent(UUID id, String studentNumber) {
+        afterCommit(() -> students.evict(id, studentNumber));
+    }
+
+    /**
+     * 课程新增、修改或删除后使其标识失效
+     * @param id 课程ID
+     * @param code 课程编号（修改时为新编号）
+     */
+    public void invalidateCourse(UUID id, String code) {
+        afterCommit(() -> courses.evict(id, code));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "identityResolver";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("students", students.getMetrics());
+        metrics.put("courses", courses.getMetrics());
+        return metrics;
+    }
+
+    private Optional<Identity> loadStudent(String key) {
+        UUID id = UuidUtils.parseOrNull(key);
+        return (id != null ? studentRepository.findById(id) : studentRepository.findByStudentId(key))
+                .map(student -> new Identity(student.getId(), student.getStudentId()));
+    }
+
+    private Optional<Identity> loadCourse(String key) {
+        UUID id = UuidUtils.parseOrNull(key);
+        return (id != null ? courseRepository.findById(id) : courseRepository.findByCode(key))
+                .map(course -> new Identity(course.getId(), course.getCode()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 解析出的标识：UUID 与业务ID（学号或课程编号）
+     */
+    private static final class Identity {
+        private final UUID id;
+        private final String businessKey;
+
+        private Identity(UUID id, String businessKey) {
+            this.id = id;
+            this.businessKey = businessKey;
+        }
+    }
+
+    /**
+     * 一类实体的标识缓存：存在的标识同时以 UUID 和业务ID为键，不存在的标识单独缓存且有效期更短
+     */
+    private final class IdentityCache {
+        private final LruCache<String, Identity> found;
+        private final LruCache<String, Boolean> missing;
+
+        /**
+         * 失效计数，加载开始后发生过失效时不写回缓存；读写需持有本对象的锁
+         */
+        private long generation;
+
+        private IdentityCache(int maxSize, long ttlSeconds, long negativeTtlSeconds) {
+            this.found = new LruCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+            this.missing = new LruCache<>(maxSize, negativeTtlSeconds, TimeUnit.SECONDS);
+        }
+
+        private Optional<Identity> resolve(String key, Function<String, Optional<Identity>> loader) {
+            if (!StringUtils.hasText(key)) {
+                return Optional.empty();
+            }
+            if (!enabled) {
+                return loader.apply(key);
+            }
+            Identity cached = found.get(key);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            if (missing.get(key) != null) {
+                return Optional.empty();
+            }
+
+            long startGeneration;
+            synchronized (this) {
+                startGeneration = generation;
+            }
+            Optional<Identity> loaded = loader.apply(key);
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    if (loaded.isPresent()) {
+                        found.put(loaded.get().id.toString(), loaded.get());
+                        found.put(loaded.get().businessKey, loaded.get());
+                    } else {
+                        missing.put(key, Boolean.TRUE);
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        private synchronized void evict(UUID id, String businessKey) {
+            generation++;
+            Identity previous = found.invalidate(id.toString());
+            if (previous != null) {
+                found.invalidate(previous.businessKey);
+            }
+            missing.invalidate(id.toString());
+            if (businessKey != null) {
+                found.invalidate(businessKey);
+                missing.invalidate(businessKey);
+            }
+        }
+
+        private Map<String, Object> getMetrics() {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("found", found.getMetrics());
+            metrics.put("missing", missing.getMetrics());
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * KeysetPaginator 类
+ * 列表接口的游标（keyset）分页：按主键排序，下一页以 id > 上一页最后一条的 id 查询，
+ * 沿主键索引定位，不使用 OFFSET 扫描跳过的行
+ *
+ * 游标是上一页最后一条记录主键的不透明编码，并发插入不会使已返回的页错位或重复；
+ * 遍历开始后插入且主键排在游标之前的记录不会出现在本次遍历中
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class KeysetPaginator {
+
+    /**
+     * 游标格式版本，格式变化时旧游标按无效处理
+     */
+    private static final byte CURSOR_VERSION = 1;
+
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public KeysetPaginator(@Value("${campus.pagination.default-limit:100}") int defaultLimit,
+                           @Value("${campus.pagination.max-limit:1000}") int maxLimit) {
+        this.maxLimit = Math.max(maxLimit, 1);
+        this.defaultLimit = Math.min(Math.max(defaultLimit, 1), this.maxLimit);
+    }
+
+    /**
+     * 查询一页
+     * @param after 上一页返回的游标，为空表示第一页
+     * @param limit 每页条数，为空使用默认值，超过上限按上限处理
+     * @param firstPage 按主键升序查询第一页
+     * @param nextPage 按主键升序查询主键大于给定值的一页
+     * @param idOf 取记录主键
+     * @return 分页结果
+     * @throws IllegalArgumentException 如果游标无效或每页条数不是正数
+     */
+    public <T> CursorPage<T> page(String after, Integer limit,
+                                  Function<Limit, List<T>> firstPage,
+                                  BiFunction<UUID, Limit, List<T>> nextPage,
+                                  Function<T, UUID> idOf) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("每页条数必须大于0");
+        }
+        int size = limit == null ? defaultLimit : Math.min(limit, maxLimit);
+        // 多取一条判断是否还有下一页
+        Limit fetch = Limit.of(size + 1);
+        List<T> rows = StringUtils.hasText(after) ? nextPage.apply(decode(after), fetch) : firstPage.apply(fetch);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null, size);
+        }
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(List.copyOf(items), encode(idOf.apply(items.get(size - 1))), size);
+    }
+
+    private static String encode(UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(17);
+        buffer.put(CURSOR_VERSION).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    private static UUID decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+        if (bytes.length != 17 || bytes[0] != CURSOR_VERSION) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 16);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
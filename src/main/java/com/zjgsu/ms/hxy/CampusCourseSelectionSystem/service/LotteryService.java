@@ -0,0 +1,526 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.LotteryAllocationResult;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.LotteryEntry;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.LotteryEntryRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * LotteryService 类
+ * 抽签选课：登记期内选课请求只追加写入 lottery_entries，不做任何容量判断；
+ * 登记截止后由一次批量任务统一分配座位——按课程并行（fork/join）随机抽签，可按年级加权，
+ * 中签者写入已选课记录，未中签者按抽签顺序进入候补队列，每门课程一个事务、批量插入
+ *
+ * 登记期开始后直到分配完成，先到先得的选课入口关闭。登记在所属课程的分配事务中标记为已处理，
+ * 重启或重复执行时只处理尚未分配的登记；已有该课程选课记录（含已退课）的学生不参与抽签
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class LotteryService implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(LotteryService.class);
+
+    private final LotteryEntryRepository lotteryEntryRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final StudentRepository studentRepository;
+    private final CourseRepository courseRepository;
+    private final SeatLedger seatLedger;
+    private final CourseCache courseCache;
+    private final WaitlistService waitlistService;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final LocalDateTime windowStart;
+    private final LocalDateTime windowEnd;
+    private final boolean gradeWeighted;
+    private final int parallelism;
+
+    private final AtomicBoolean allocating = new AtomicBoolean();
+
+    /**
+     * 本实例是否已执行过分配；重启后为false，由下一次定时检查重新执行（已处理的登记会被跳过）
+     */
+    private volatile boolean allocated;
+    private volatile LotteryAllocationResult lastResult;
+    private final LongAdder entriesRecorded = new LongAdder();
+
+    public LotteryService(LotteryEntryRepository lotteryEntryRepository,
+                          EnrollmentRepository enrollmentRepository,
+                          StudentRepository studentRepository,
+                          CourseRepository courseRepository,
+                          SeatLedger seatLedger,
+                          CourseCache courseCache,
+                          WaitlistService waitlistService,
+                          StudentEnrollmentCache studentEnrollmentCache,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${campus.lottery.enabled:false}") boolean enabled,
+                          @Value("${campus.lottery.window-start:}") String windowStart,
+                          @Value("${campus.lottery.window-end:}") String windowEnd,
+                          @Value("${campus.lottery.grade-weighted:false}") boolean gradeWeighted,
+                          @Value("${campus.lottery.parallelism:0}") int parallelism) {
+        this.lotteryEntryRepository = lotteryEntryRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.studentRepository = studentRepository;
+        this.courseRepository = courseRepository;
+        this.seatLedger = seatLedger;
+        this.courseCache = courseCache;
+        this.waitlistService = waitlistService;
+        this.studentEnrollmentCache = studentEnrollmentCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowStart = StringUtils.hasText(windowStart) ? LocalDateTime.parse(windowStart) : null;
+        this.windowEnd = StringUtils.hasText(windowEnd) ? LocalDateTime.parse(windowEnd) : null;
+        this.enabled = enabled && this.windowStart != null && this.windowEnd != null;
+        if (enabled && !this.enabled) {
+            log.warn("抽签选课已启用但未配置登记期（window-start / window-end），抽签模式不生效");
+        }
+        this.gradeWeighted = gradeWeighted;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 当前是否处于抽签登记期
+     * @return 登记期内返回true
+     */
+    public boolean isCollecting() {
+        if (!enabled) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return !now.isBefore(windowStart) && now.isBefore(windowEnd);
+    }
+
+    /**
+     * 先到先得选课是否关闭：登记期开始后直到抽签分配完成
+     * @return 关闭返回true
+     */
+    public boolean blocksDirectEnrollment() {
+        return enabled && !allocated && !LocalDateTime.now().isBefore(windowStart);
+    }
+
+    /**
+     * 登记抽签选课，只追加一条登记记录
+     * 同一学生重复登记同一课程时分配阶段只计一次；学生是否存在在分配阶段统一校验
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 登记记录
+     * @throws IllegalArgumentException 如果参数无效或不在登记期内
+     */
+    public LotteryEntry submitEntry(String courseId, String studentId) {
+        if (!StringUtils.hasText(courseId) || !StringUtils.hasText(studentId)) {
+            throw new IllegalArgumentException("课程ID和学生ID不能为空");
+        }
+        UUID courseUUID = UuidUtils.parseOrNull(courseId);
+        if (courseUUID == null) {
+            throw new IllegalArgumentException("无效的ID格式: " + courseId);
+        }
+        if (!isCollecting()) {
+            throw new IllegalArgumentException("当前不在抽签登记时间内");
+        }
+        LotteryEntry entry = lotteryEntryRepository.save(new LotteryEntry(courseUUID.toString(), studentId));
+        entriesRecorded.increment();
+        return entry;
+    }
+
+    /**
+     * 登记截止后自动执行一次分配
+     */
+    @Scheduled(fixedDelayString = "${campus.lottery.check-interval-ms:5000}")
+    public void allocateWhenClosed() {
+        if (!enabled || allocated || LocalDateTime.now().isBefore(windowEnd)) {
+            return;
+        }
+        try {
+            allocate();
+        } catch (IllegalStateException e) {
+            log.debug("抽签分配未执行: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 对登记期内尚未分配的登记执行批量分配
+     * 已分配的登记和已有选课记录的学生跳过，因此重复执行是安全的，可用于重跑失败的课程
+     * @return 分配结果汇总
+     * @throws IllegalStateException 如果未启用抽签、登记尚未截止或分配正在进行
+     */
+    public LotteryAllocationResult allocate() {
+        if (!enabled) {
+            throw new IllegalStateException("抽签选课未启用");
+        }
+        if (LocalDateTime.now().isBefore(windowEnd)) {
+            throw new IllegalStateException("抽签登记尚未截止");
+        }
+        if (!allocating.compareAndSet(false, true)) {
+            throw new IllegalStateException("抽签分配正在进行中");
+        }
+        long startNanos = System.nanoTime();
+        try {
+            List<LotteryEntry> entries =
+                    lotteryEntryRepository.findByCreatedAtBetweenAndProcessedAtIsNullOrderByCreatedAtAsc(windowStart, windowEnd);
+            List<CourseDraw> draws = prepareDraws(entries);
+            markOrphansProcessed(entries, draws);
+
+            List<CourseOutcome> outcomes;
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                outcomes = draws.isEmpty() ? List.of() : pool.invoke(new AllocationTask(draws, 0, draws.size()));
+            } finally {
+                pool.shutdown();
+            }
+
+            int drawnEntries = draws.stream().mapToInt(draw -> draw.entries.size()).sum();
+            int enrolled = 0;
+            int waitlisted = 0;
+            int skipped = entries.size() - drawnEntries;
+            int failed = 0;
+            for (CourseOutcome outcome : outcomes) {
+                enrolled += outcome.enrolled;
+                waitlisted += outcome.waitlisted;
+                skipped += outcome.skipped;
+                if (outcome.failed) {
+                    failed++;
+                }
+            }
+            LotteryAllocationResult result = new LotteryAllocationResult(draws.size(), entries.size(), enrolled,
+                    waitlisted, skipped, failed, (System.nanoTime() - startNanos) / 1_000_000);
+            lastResult = result;
+            allocated = true;
+            log.info("抽签分配完成：{} 门课程，{} 条登记，中签 {}，候补 {}，跳过 {}，失败课程 {}，耗时 {} ms",
+                    result.getCourses(), result.getEntries(), enrolled, waitlisted, skipped, failed,
+                    result.getElapsedMillis());
+            return result;
+        } finally {
+            allocating.set(false);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "lottery";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("windowStart", windowStart);
+        metrics.put("windowEnd", windowEnd);
+        metrics.put("collecting", isCollecting());
+        metrics.put("entriesRecorded", entriesRecorded.sum());
+        metrics.put("allocated", allocated);
+        metrics.put("lastAllocation", lastResult);
+        return metrics;
+    }
+
+    /**
+     * 一次性加载分配所需的课程、学生和已有选课记录，按课程分组登记
+     * 课程不存在的登记直接跳过
+     */
+    private List<CourseDraw> prepareDraws(List<LotteryEntry> entries) {
+        Map<String, List<LotteryEntry>> entriesByCourse = entries.stream()
+                .collect(Collectors.groupingBy(entry -> normalizeId(entry.getCourseId()), LinkedHashMap::new,
+                        Collectors.toList()));
+        if (entriesByCourse.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> courseIds = new HashSet<>();
+        for (String courseId : entriesByCourse.keySet()) {
+            UUID courseUUID = UuidUtils.parseOrNull(courseId);
+            if (courseUUID != null) {
+                courseIds.add(courseUUID);
+            }
+        }
+        Map<String, Course> courses = courseRepository.findAllById(courseIds).stream()
+                .collect(Collectors.toMap(course -> course.getId().toString(), course -> course));
+        Map<String, Student> students = loadStudents(entries);
+        // 任何状态的已有记录（含已退课）都不再参与抽签；学生标识可能是 id 或学号，统一规范化后比较
+        Map<String, Set<String>> existing = enrollmentRepository.findByCourseIdIn(courses.keySet()).stream()
+                .collect(Collectors.groupingBy(enrollment -> normalizeId(enrollment.getCourseId()),
+                        Collectors.mapping(enrollment -> normalizeId(enrollment.getStudentId()), Collectors.toSet())));
+
+        List<CourseDraw> draws = new ArrayList<>();
+        entriesByCourse.forEach((courseId, courseEntries) -> {
+            Course course = courses.get(courseId);
+            if (course != null) {
+                draws.add(new CourseDraw(course, courseEntries, students,
+                        existing.getOrDefault(courseId, Set.of())));
+            }
+        });
+        return draws;
+    }
+
+    /**
+     * 课程不存在的登记不会进入任何课程的分配事务，单独标记为已处理
+     */
+    private void markOrphansProcessed(List<LotteryEntry> entries, List<CourseDraw> draws) {
+        Set<UUID> drawn = new HashSet<>();
+        for (CourseDraw draw : draws) {
+            for (LotteryEntry entry : draw.entries) {
+                drawn.add(entry.getId());
+            }
+        }
+        List<UUID> orphans = new ArrayList<>();
+        for (LotteryEntry entry : entries) {
+            if (!drawn.contains(entry.getId())) {
+                orphans.add(entry.getId());
+            }
+        }
+        if (!orphans.isEmpty()) {
+            LocalDateTime processedAt = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status ->
+                    lotteryEntryRepository.markProcessed(orphans, processedAt));
+        }
+    }
+
+    /**
+     * 批量加载登记中出现的学生，按登记时使用的标识（规范化后的学生 id 或学号）索引
+     */
+    private Map<String, Student> loadStudents(List<LotteryEntry> entries) {
+        Set<UUID> ids = new HashSet<>();
+        Set<String> studentNumbers = new HashSet<>();
+        for (LotteryEntry entry : entries) {
+            UUID id = UuidUtils.parseOrNull(entry.getStudentId());
+            if (id != null) {
+                ids.add(id);
+            } else {
+                studentNumbers.add(entry.getStudentId());
+            }
+        }
+        Map<String, Student> students = new HashMap<>();
+        if (!ids.isEmpty()) {
+            studentRepository.findAllById(ids).forEach(student -> students.put(student.getId().toString(), student));
+        }
+        if (!studentNumbers.isEmpty()) {
+            studentRepository.findByStudentIdIn(studentNumbers).forEach(student -> students.put(student.getStudentId(), student));
+        }
+        return students;
+    }
+
+    /**
+     * 单门课程抽签：按学生去重、过滤后加权随机排序，前若干名中签，其余按顺序候补
+     * 同一学生分别用 id 和学号登记时只计一次；已有该课程选课记录（含已退课）的学生跳过
+     * 每门课程在独立事务中写入并标记登记已处理，失败只影响该课程
+     */
+    private CourseOutcome draw(CourseDraw draw) {
+        Map<UUID, Candidate> candidates = new LinkedHashMap<>();
+        int skipped = 0;
+        for (LotteryEntry entry : draw.entries) {
+            Student student = draw.students.get(normalizeId(entry.getStudentId()));
+            if (student == null
+                    || draw.existing.contains(student.getId().toString())
+                    || draw.existing.contains(student.getStudentId())
+                    || candidates.putIfAbsent(student.getId(), new Candidate(entry.getStudentId(), student)) != null) {
+                skipped++;
+            }
+        }
+        List<Candidate> order = weightedShuffle(candidates.values());
+        try {
+            CourseOutcome outcome = transactionTemplate.execute(status -> write(draw, order));
+            outcome.skipped = skipped;
+            return outcome;
+        } catch (RuntimeException e) {
+            log.warn("课程 {} 抽签分配失败，可重新执行分配: {}", draw.course.getId(), e.getMessage());
+            CourseOutcome outcome = new CourseOutcome();
+            outcome.skipped = skipped + order.size();
+            outcome.failed = true;
+            return outcome;
+        }
+    }
+
+    /**
+     * 加权随机排序（Efraimidis-Spirakis）：每人取键 -ln(U)/w，按键升序即为按权重无放回抽样的顺序
+     * 不加权时所有权重为1，等价于均匀洗牌
+     */
+    private List<Candidate> weightedShuffle(Collection<Candidate> candidates) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Candidate, Double> keys = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            keys.put(candidate, -Math.log(1.0 - random.nextDouble()) / weight(candidate.student()));
+        }
+        List<Candidate> order = new ArrayList<>(candidates);
+        order.sort(Comparator.comparingDouble(keys::get));
+        return order;
+    }
+
+    /**
+     * 抽签权重：按年级加权时高年级（入学年份早）权重更大，每早一年加一
+     */
+    private double weight(Student student) {
+        if (!gradeWeighted || student.getGrade() == null) {
+            return 1.0;
+        }
+        return Math.max(1, LocalDateTime.now().getYear() - student.getGrade() + 1);
+    }
+
+    /**
+     * 标记登记已处理，占座并批量写入一门课程的抽签结果
+     */
+    private CourseOutcome write(CourseDraw draw, List<Candidate> order) {
+        CourseOutcome outcome = new CourseOutcome();
+        List<UUID> entryIds = new ArrayList<>(draw.entries.size());
+        for (LotteryEntry entry : draw.entries) {
+            entryIds.add(entry.getId());
+        }
+        LocalDateTime drawnAt = LocalDateTime.now();
+        lotteryEntryRepository.markProcessed(entryIds, drawnAt);
+        if (order.isEmpty()) {
+            return outcome;
+        }
+        String courseId = draw.course.getId().toString();
+        int seats = reserveSeats(draw.course.getId(), order.size());
+        List<Enrollment> rows = new ArrayList<>(order.size());
+        for (int rank = 0; rank < order.size(); rank++) {
+            Enrollment enrollment = new Enrollment(courseId, order.get(rank).studentId());
+            if (rank < seats) {
+                enrollment.setStatus(EnrollmentStatus.ENROLLED);
+            } else {
+                // 候补时间按抽签名次递增，候补队列顺序即抽签顺序
+                enrollment.setStatus(EnrollmentStatus.WAITLISTED);
+                enrollment.setWaitlistedAt(drawnAt.plusNanos((rank - seats) * 1000L));
+            }
+            rows.add(enrollment);
+        }
+        for (Enrollment saved : enrollmentRepository.saveAll(rows)) {
+            studentEnrollmentCache.record(saved);
+            if (EnrollmentStatus.WAITLISTED.equals(saved.getStatus())) {
+                waitlistService.enqueue(saved);
+                outcome.waitlisted++;
+            } else {
+                outcome.enrolled++;
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * UUID 格式的标识统一为小写标准形式，其他标识（学号）原样返回
+     */
+    private static String normalizeId(String id) {
+        UUID uuid = UuidUtils.parseOrNull(id);
+        return uuid != null ? uuid.toString() : id;
+    }
+
+    /**
+     * 为课程占用至多 wanted 个座位，返回实际占到的座位数
+     * 关闭座位台账时以一条条件 UPDATE 一次性占座，期间课程被并发修改则该课程失败，留待重跑
+     */
+    private int reserveSeats(UUID courseId, int wanted) {
+        if (seatLedger.isEnabled()) {
+            int seats = 0;
+            while (seats < wanted && seatLedger.tryAcquire(courseId)) {
+                seats++;
+            }
+            return seats;
+        }
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new IllegalArgumentException("课程不存在，ID: " + courseId));
+        int seats = Math.max(Math.min(wanted, course.getCapacity() - course.getEnrolled()), 0);
+        if (seats > 0 && courseRepository.reserveSeats(courseId, seats) == 0) {
+            throw new OptimisticLockingFailureException("课程座位在抽签期间发生变化，ID: " + courseId);
+        }
+        courseCache.invalidate(courseId);
+        return seats;
+    }
+
+    /**
+     * 单门课程的抽签输入
+     */
+    private static final class CourseDraw {
+        private final Course course;
+        private final List<LotteryEntry> entries;
+        private final Map<String, Student> students;
+        private final Set<String> existing;
+
+        private CourseDraw(Course course, List<LotteryEntry> entries,
+                           Map<String, Student> students, Set<String> existing) {
+            this.course = course;
+            this.entries = entries;
+            this.students = students;
+            this.existing = existing;
+        }
+    }
+
+    /**
+     * 抽签候选人：登记时使用的学生标识（写入选课记录）及其对应的学生
+     */
+    private record Candidate(String studentId, Student student) {
+    }
+
+    /**
+     * 单门课程的抽签结果
+     */
+    private static final class CourseOutcome {
+        private int enrolled;
+        private int waitlisted;
+        private int skipped;
+        private boolean failed;
+    }
+
+    /**
+     * 按课程二分的 fork/join 任务，每门课程为一个叶子任务
+     */
+    private final class AllocationTask extends RecursiveTask<List<CourseOutcome>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<CourseDraw> draws;
+        private final int from;
+        private final int to;
+
+        private AllocationTask(List<CourseDraw> draws, int from, int to) {
+            this.draws = draws;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<CourseOutcome> compute() {
+            if (to - from == 1) {
+                return List.of(draw(draws.get(from)));
+            }
+            int mid = (from + to) >>> 1;
+            AllocationTask left = new AllocationTask(draws, from, mid);
+            left.fork();
+            List<CourseOutcome> right = new AllocationTask(draws, mid, to).compute();
+            List<CourseOutcome> outcomes = new ArrayList<>(left.join());
+            outcomes.addAll(right);
+            return outcomes;
+        }
+    }
+}
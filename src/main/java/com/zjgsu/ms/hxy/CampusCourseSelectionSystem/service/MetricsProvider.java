@@ -0,0 +1,26 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import java.util.Map;
+
+/**
+ * 运行指标提供者接口
+ * 实现该接口的组件会被汇总到 GET /health/metrics 接口中
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public interface MetricsProvider {
+
+    /**
+     * 指标分组名称
+     * @return 分组名称，作为 /health/metrics 响应中的键
+     */
+    String getMetricsName();
+
+    /**
+     * 当前指标快照
+     * @return 指标名称到指标值的映射
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,310 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RegistrationWindowService 类
+ * 分批选课时段：按批次错开选课开放时间，把一次性的选课高峰拆成若干个较小的波次
+ *
+ * 批次默认为学生的入学年份（Student.grade），也可以把指定学生划入自定义批次（如荣誉学院、毕业班）；
+ * 学生所在批次没有配置时段时使用默认时段（*），默认时段也未配置时不受限制
+ *
+ * 时段表和学生批次目录都在内存中，启动完成后加载一次学生目录，之后随学生的增删改更新；
+ * 时段外的请求在访问数据库之前拒绝
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class RegistrationWindowService implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistrationWindowService.class);
+
+    /**
+     * 默认时段的批次名
+     */
+    private static final String DEFAULT_COHORT = "*";
+
+    private final StudentRepository studentRepository;
+    private final IdentityResolver identityResolver;
+    private final boolean enabled;
+
+    /**
+     * 批次 -> 选课时段
+     */
+    private final Map<String, Window> windows;
+
+    /**
+     * 学号 -> 自定义批次
+     */
+    private final Map<String, String> cohortMembers;
+
+    /**
+     * 学生ID或学号 -> 入学年份
+     */
+    private final ConcurrentHashMap<String, Integer> grades = new ConcurrentHashMap<>();
+
+    /**
+     * 学生ID -> 学号，学号变更或删除学生时用于清理旧的目录项
+     */
+    private final ConcurrentHashMap<UUID, String> studentNumbers = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LongAdder> rejectedByCohort = new ConcurrentHashMap<>();
+    private final LongAdder directoryMisses = new LongAdder();
+
+    public RegistrationWindowService(StudentRepository studentRepository,
+                                     IdentityResolver identityResolver,
+                                     @Value("${campus.registration-window.enabled:false}") boolean enabled,
+                                     @Value("${campus.registration-window.windows:}") String windows,
+                                     @Value("${campus.registration-window.cohorts:}") String cohorts) {
+        this.studentRepository = studentRepository;
+        this.identityResolver = identityResolver;
+        this.windows = parseWindows(windows);
+        this.cohortMembers = parseCohorts(cohorts);
+        this.enabled = enabled && !this.windows.isEmpty();
+        if (enabled && !this.enabled) {
+            log.warn("分批选课时段已启用但未配置任何时段（windows），不做限制");
+        }
+    }
+
+    /**
+     * 分批选课时段是否生效
+     * @return 生效返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启动完成后加载学生批次目录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        if (!enabled) {
+            return;
+        }
+        studentRepository.findAll().forEach(this::recordStudent);
+        log.info("分批选课时段已加载 {} 个时段、{} 名学生", windows.size(), studentNumbers.size());
+    }
+
+    /**
+     * 检查学生当前是否在其选课时段内
+     * 目录中没有该学生时（如绕过服务直接写入的学生）查询一次数据库并记入目录；
+     * 学生不存在时不在此处拒绝，由后续选课校验报告
+     * @param studentId 学生ID或学号
+     * @throws IllegalArgumentException 如果当前不在学生所在批次的选课时段内
+     */
+    public void checkOpen(String studentId) {
+        if (!enabled || !StringUtils.hasText(studentId)) {
+            return;
+        }
+        String cohort = resolveCohort(studentId);
+        Window window = windowFor(cohort);
+        if (window == null || window.isOpen(LocalDateTime.now())) {
+            return;
+        }
+        rejectedByCohort.computeIfAbsent(cohort, key -> new LongAdder()).increment();
+        throw new IllegalArgumentException("当前不在选课时段内，批次 " + cohort + " 的选课时段为 " + window);
+    }
+
+    /**
+     * 查询学生所在批次及其选课时段
+     * @param studentId 学生ID或学号
+     * @return 批次、时段和当前是否开放
+     */
+    public Map<String, Object> describe(String studentId) {
+        String cohort = resolveCohort(studentId);
+        Window window = windowFor(cohort);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("cohort", cohort);
+        result.put("start", window == null ? null : window.start);
+        result.put("end", window == null ? null : window.end);
+        result.put("open", !enabled || window == null || window.isOpen(LocalDateTime.now()));
+        return result;
+    }
+
+    /**
+     * 学生创建或更新后同步批次目录
+     * @param student 已保存的学生
+     */
+    public void recordStudent(Student student) {
+        if (!enabled || student == null || student.getId() == null) {
+            return;
+        }
+        String previousNumber = studentNumbers.put(student.getId(), student.getStudentId());
+        if (previousNumber != null && !previousNumber.equals(student.getStudentId())) {
+            grades.remove(previousNumber);
+        }
+        if (student.getGrade() != null) {
+            grades.put(student.getId().toString(), student.getGrade());
+            grades.put(student.getStudentId(), student.getGrade());
+        }
+    }
+
+    /**
+     * 学生删除后从批次目录移除
+     * @param id 学生ID
+     */
+    public void forgetStudent(UUID id) {
+        String studentNumber = studentNumbers.remove(id);
+        grades.remove(id.toString());
+        if (studentNumber != null) {
+            grades.remove(studentNumber);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "registrationWindows";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        Map<String, Object> table = new LinkedHashMap<>();
+        windows.forEach((cohort, window) -> table.put(cohort, window.toString()));
+        metrics.put("windows", table);
+        metrics.put("directorySize", studentNumbers.size());
+        metrics.put("directoryMisses", directoryMisses.sum());
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejectedByCohort.forEach((cohort, count) -> rejected.put(cohort, count.sum()));
+        metrics.put("rejected", rejected);
+        return metrics;
+    }
+
+    /**
+     * 自定义批次优先，其次为入学年份；目录中找不到学生时返回默认批次
+     */
+    private String resolveCohort(String studentId) {
+        Integer grade = grades.get(studentId);
+        if (grade == null && enabled) {
+            grade = loadGrade(studentId).orElse(null);
+        }
+        String cohort = cohortMembers.get(studentNumberOf(studentId));
+        if (cohort != null) {
+            return cohort;
+        }
+        return grade == null ? DEFAULT_COHORT : grade.toString();
+    }
+
+    private Window windowFor(String cohort) {
+        Window window = windows.get(cohort);
+        return window != null ? window : windows.get(DEFAULT_COHORT);
+    }
+
+    private String studentNumberOf(String studentId) {
+        UUID id = UuidUtils.parseOrNull(studentId);
+        String studentNumber = id == null ? null : studentNumbers.get(id);
+        return studentNumber != null ? studentNumber : studentId;
+    }
+
+    /**
+     * 目录未命中时加载学生；不存在的学生由标识解析的缓存挡住，不重复查询
+     */
+    private Optional<Integer> loadGrade(String studentId) {
+        Optional<UUID> id = identityResolver.resolveStudent(studentId);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        directoryMisses.increment();
+        Optional<Student> student = studentRepository.findById(id.get());
+        student.ifPresent(this::recordStudent);
+        return student.map(Student::getGrade);
+    }
+
+    /**
+     * 解析时段表，格式为 批次=开始时间 或 批次=开始时间~结束时间，多个时段以逗号分隔，
+     * 如 2021=2024-09-01T08:00:00,2022=2024-09-01T14:00:00,*=2024-09-02T08:00:00
+     */
+    private static Map<String, Window> parseWindows(String value) {
+        Map<String, Window> result = new LinkedHashMap<>();
+        if (!StringUtils.hasText(value)) {
+            return result;
+        }
+        for (String item : value.split(",")) {
+            String[] parts = item.trim().split("=", 2);
+            if (parts.length != 2 || !StringUtils.hasText(parts[0]) || !StringUtils.hasText(parts[1])) {
+                throw new IllegalArgumentException("选课时段格式错误: " + item);
+            }
+            String[] range = parts[1].trim().split("~", 2);
+            try {
+                LocalDateTime start = LocalDateTime.parse(range[0].trim());
+                LocalDateTime end = range.length > 1 ? LocalDateTime.parse(range[1].trim()) : null;
+                if (end != null && !end.isAfter(start)) {
+                    throw new IllegalArgumentException("选课时段结束时间必须晚于开始时间: " + item);
+                }
+                result.put(parts[0].trim(), new Window(start, end));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("选课时段时间格式错误: " + item);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 解析自定义批次，格式为 批次=学号|学号，多个批次以分号分隔，如 honors=S2022001|S2022002;athletes=S2023010
+     */
+    private static Map<String, String> parseCohorts(String value) {
+        Map<String, String> result = new HashMap<>();
+        if (!StringUtils.hasText(value)) {
+            return result;
+        }
+        for (String item : value.split(";")) {
+            String[] parts = item.trim().split("=", 2);
+            if (parts.length != 2 || !StringUtils.hasText(parts[0])) {
+                throw new IllegalArgumentException("自定义批次格式错误: " + item);
+            }
+            for (String studentNumber : parts[1].split("\\|")) {
+                if (StringUtils.hasText(studentNumber)) {
+                    result.put(studentNumber.trim(), parts[0].trim());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 选课时段，结束时间为空表示开放后一直开放
+     */
+    private static final class Window {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        private Window(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean isOpen(LocalDateTime now) {
+            return !now.isBefore(start) && (end == null || now.isBefore(end));
+        }
+
+        @Override
+        public String toString() {
+            return end == null ? start + " 起" : start + " 至 " + end;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.SeatHold;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.HierarchicalTimerWheel;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.UuidUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SeatHoldService 类
+ * 座位保留：学生加入购物车时为课程保留一个座位，保留期间该座位视为已占用，
+ * 确认后转为选课记录，到期未确认自动释放
+ *
+ * 保留只存在于内存中，到期由分层时间轮触发，不做周期性扫表；
+ * 启用座位台账时释放保留只修改内存计数，不访问数据库。
+ * 关闭座位台账时保留的座位计入 courses.enrolled：归还失败时按固定间隔重试，
+ * 进程异常退出未能归还的座位在下次启动时按选课记录重算已选人数收回
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class SeatHoldService implements MetricsProvider, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldService.class);
+
+    /**
+     * 归还座位失败后的重试间隔（秒）
+     */
+    private static final int RELEASE_RETRY_SECONDS = 1;
+
+    private final CourseService courseService;
+    private final SeatLedger seatLedger;
+    private final IdentityResolver identityResolver;
+    private final EnrollmentRepository enrollmentRepository;
+    private final LotteryService lotteryService;
+    private final RegistrationWindowService registrationWindowService;
+    private final int defaultMinutes;
+    private final int maxMinutes;
+    private final HierarchicalTimerWheel timerWheel;
+
+    /**
+     * 关闭座位台账时归还座位需要写数据库，交给单独的线程，避免阻塞时间轮
+     */
+    private final ExecutorService releaseExecutor;
+
+    /**
+     * 保留ID -> 生效中的保留
+     */
+    private final ConcurrentHashMap<UUID, ActiveHold> holds = new ConcurrentHashMap<>();
+
+    /**
+     * 课程ID:学生ID -> 保留ID，同一学生对同一课程只保留一个座位
+     */
+    private final ConcurrentHashMap<String, UUID> holdIdsByPair = new ConcurrentHashMap<>();
+
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder releaseRetries = new LongAdder();
+
+    public SeatHoldService(CourseService courseService,
+                           SeatLedger seatLedger,
+                           IdentityResolver identityResolver,
+                           EnrollmentRepository enrollmentRepository,
+                           LotteryService lotteryService,
+                           RegistrationWindowService registrationWindowService,
+                           @Value("${campus.seat-hold.default-minutes:10}") int defaultMinutes,
+                           @Value("${campus.seat-hold.max-minutes:30}") int maxMinutes,
+                           @Value("${campus.seat-hold.tick-ms:100}") long tickMillis,
+                           @Value("${campus.seat-hold.wheel-size:512}") int wheelSize,
+                           @Value("${campus.seat-hold.wheel-levels:3}") int wheelLevels) {
+        this.courseService = courseService;
+        this.seatLedger = seatLedger;
+        this.identityResolver = identityResolver;
+        this.enrollmentRepository = enrollmentRepository;
+        this.lotteryService = lotteryService;
+        this.registrationWindowService = registrationWindowService;
+        this.maxMinutes = Math.max(maxMinutes, 1);
+        this.defaultMinutes = Math.min(Math.max(defaultMinutes, 1), this.maxMinutes);
+        this.timerWheel = new HierarchicalTimerWheel("seat-hold-timer", tickMillis, TimeUnit.MILLISECONDS,
+                wheelSize, wheelLevels);
+        this.releaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-release");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 为学生保留课程座位
+     * 同一学生对同一课程已有生效中的保留时直接返回该保留
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @param minutes 保留时长（分钟），为空时使用默认时长
+     * @return 座位保留
+     * @throws IllegalArgumentException 如果参数无效、不在选课时段内、学生或课程不存在、已选该课程或课程已满
+     */
+    public SeatHold placeHold(String courseId, String studentId, Integer minutes) {
+        if (!StringUtils.hasText(courseId) || !StringUtils.hasText(studentId)) {
+            throw new IllegalArgumentException("课程ID和学生ID不能为空");
+        }
+        int duration = minutes == null ? defaultMinutes : minutes;
+        if (duration <= 0 || duration > maxMinutes) {
+            throw new IllegalArgumentException("保留时长必须在 1 到 " + maxMinutes + " 分钟之间");
+        }
+        UUID courseUUID = parseUUID(courseId);
+        if (lotteryService.blocksDirectEnrollment()) {
+            throw new IllegalArgumentException("当前为抽签选课阶段，暂不开放座位保留");
+        }
+        registrationWindowService.checkOpen(studentId);
+        if (!identityResolver.studentExists(studentId)) {
+            throw new IllegalArgumentException("学生不存在，ID: " + studentId);
+        }
+        if (enrollmentRepository.existsByCourseIdAndStudentIdAndStatusNot(courseId, studentId, EnrollmentStatus.WITHDRAWN)) {
+            throw new IllegalArgumentException("学生已选该课程或已在候补队列中，无需保留座位");
+        }
+
+        String pair = pairKey(courseId, studentId);
+        ActiveHold existing = activeHold(pair);
+        if (existing != null) {
+            return existing.seatHold;
+        }
+        // 占座可能访问数据库，不能放在 ConcurrentHashMap 的 compute 中执行，否则会阻塞同一分段上的其他学生
+        if (!courseService.holdSeat(courseUUID)) {
+            rejected.increment();
+            if (!courseService.courseExists(courseUUID)) {
+                throw new IllegalArgumentException("课程不存在，ID: " + courseId);
+            }
+            throw new IllegalArgumentException("课程容量已满，无法保留座位");
+        }
+
+        ActiveHold hold = new ActiveHold(new SeatHold(courseId, studentId, LocalDateTime.now().plusMinutes(duration)));
+        UUID holdId = hold.seatHold.getId();
+        hold.timeout = timerWheel.schedule(() -> expire(hold), duration, TimeUnit.MINUTES);
+        holds.put(holdId, hold);
+        while (true) {
+            UUID winnerId = holdIdsByPair.putIfAbsent(pair, holdId);
+            if (winnerId == null) {
+                placed.increment();
+                return hold.seatHold;
+            }
+            ActiveHold winner = holds.get(winnerId);
+            if (winner != null) {
+                // 同一学生的并发请求已先保留成功，归还本次占用的座位
+                if (holds.remove(holdId, hold)) {
+                    hold.timeout.cancel();
+                    releaseSeat(hold);
+                }
+                return winner.seatHold;
+            }
+            // 映射指向的保留刚结束，清除后重试
+            holdIdsByPair.remove(pair, winnerId);
+        }
+    }
+
+    /**
+     * 查询生效中的座位保留
+     * @param holdId 保留ID
+     * @return 包含保留的Optional；不存在、已确认或已过期返回空Optional
+     */
+    public Optional<SeatHold> getHold(UUID holdId) {
+        ActiveHold hold = holds.get(holdId);
+        return hold == null ? Optional.empty() : Optional.of(hold.seatHold);
+    }
+
+    /**
+     * 取消座位保留，立即归还座位
+     * @param holdId 保留ID
+     * @return 取消成功返回true；保留不存在或已结束返回false
+     */
+    public boolean cancelHold(UUID holdId) {
+        ActiveHold hold = remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        hold.timeout.cancel();
+        releaseSeat(hold);
+        cancelled.increment();
+        return true;
+    }
+
+    /**
+     * 消费座位保留，将保留的座位转为已选座位
+     * 应在写入选课记录的事务中调用：事务回滚时座位归还，保留不再恢复
+     * @param holdId 保留ID
+     * @return 消费成功返回被消费的保留；保留不存在或已过期返回空Optional
+     */
+    public Optional<SeatHold> claim(UUID holdId) {
+        ActiveHold hold = remove(holdId);
+        if (hold == null) {
+            return Optional.empty();
+        }
+        hold.timeout.cancel();
+        courseService.claimHeldSeat(UUID.fromString(hold.seatHold.getCourseId()));
+        if (!seatLedger.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 数据库模式下座位已计入 courses.enrolled，事务回滚时需另行归还
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        releaseSeat(hold);
+                    }
+                }
+            });
+        }
+        confirmed.increment();
+        return Optional.of(hold.seatHold);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "seatHolds";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("active", holds.size());
+        metrics.put("placed", placed.sum());
+        metrics.put("confirmed", confirmed.sum());
+        metrics.put("cancelled", cancelled.sum());
+        metrics.put("expired", expired.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("releaseRetries", releaseRetries.sum());
+        metrics.put("timerPending", timerWheel.pendingCount());
+        return metrics;
+    }
+
+    /**
+     * 所有单例创建完成、Web 服务开始接收请求之前，收回上次运行丢失的座位保留
+     * 关闭座位台账时保留的座位计入 courses.enrolled，进程异常退出时未到期的保留无法归还；
+     * 此时还没有生效中的保留，已选人数应等于占座的选课记录数，多出的即为丢失的保留
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (seatLedger.isEnabled()) {
+            return;
+        }
+        int corrected = 0;
+        for (Course course : courseService.getAllCourses()) {
+            int actual = (int) enrollmentRepository.countByCourseIdAndStatusNotIn(course.getId().toString(),
+                    List.of(EnrollmentStatus.WITHDRAWN, EnrollmentStatus.WAITLISTED));
+            if (course.getEnrolled() != actual
+                    && courseService.correctEnrolled(course.getId(), course.getEnrolled(), actual)) {
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            log.warn("启动时按选课记录修正了 {} 门课程的已选人数（上次运行未归还的座位保留）", corrected);
+        }
+    }
+
+    /**
+     * 应用关闭时停止时间轮，归还全部未到期的保留
+     * 关闭座位台账时保留的座位已计入 courses.enrolled，必须在退出前归还
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        timerWheel.close();
+        releaseExecutor.shutdown();
+        releaseExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        for (UUID holdId : holds.keySet()) {
+            ActiveHold hold = remove(holdId);
+            if (hold == null) {
+                continue;
+            }
+            try {
+                courseService.releaseHeldSeat(UUID.fromString(hold.seatHold.getCourseId()));
+            } catch (RuntimeException e) {
+                log.warn("座位保留释放失败，课程ID: {}: {}", hold.seatHold.getCourseId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 时间轮到期回调：保留仍生效时移除并归还座位
+     */
+    private void expire(ActiveHold hold) {
+        if (holds.remove(hold.seatHold.getId(), hold)) {
+            holdIdsByPair.remove(pairKey(hold.seatHold.getCourseId(), hold.seatHold.getStudentId()), hold.seatHold.getId());
+            releaseSeat(hold);
+            expired.increment();
+        }
+    }
+
+    /**
+     * 学生对课程生效中的保留
+     */
+    private ActiveHold activeHold(String pair) {
+        UUID holdId = holdIdsByPair.get(pair);
+        return holdId == null ? null : holds.get(holdId);
+    }
+
+    private ActiveHold remove(UUID holdId) {
+        ActiveHold hold = holds.remove(holdId);
+        if (hold != null) {
+            holdIdsByPair.remove(pairKey(hold.seatHold.getCourseId(), hold.seatHold.getStudentId()), holdId);
+        }
+        return hold;
+    }
+
+    /**
+     * 归还保留的座位，并在课程通道上用空出的座位递补候补学生；
+     * 可能在时间轮线程上调用，不能开启事务或占用数据库连接
+     */
+    private void releaseSeat(ActiveHold hold) {
+        UUID courseUUID = UUID.fromString(hold.seatHold.getCourseId());
+        if (seatLedger.isEnabled()) {
+            seatLedger.releaseHold(courseUUID);
+            courseService.fillFromWaitlist(courseUUID);
+            return;
+        }
+        releaseExecutor.execute(() -> {
+            try {
+                courseService.releaseHeldSeat(courseUUID);
+            } catch (RuntimeException e) {
+                log.warn("座位保留释放失败，{} 秒后重试，课程ID: {}: {}", RELEASE_RETRY_SECONDS, courseUUID, e.getMessage());
+                retryRelease(hold);
+                return;
+            }
+            courseService.fillFromWaitlist(courseUUID);
+        });
+    }
+
+    /**
+     * 归还失败的座位稍后在时间轮上重新提交；应用关闭时不再重试，由下次启动时的重算收回
+     */
+    private void retryRelease(ActiveHold hold) {
+        try {
+            timerWheel.schedule(() -> releaseSeat(hold), RELEASE_RETRY_SECONDS, TimeUnit.SECONDS);
+            releaseRetries.increment();
+        } catch (IllegalStateException e) {
+            log.warn("应用正在关闭，座位保留未归还，课程ID: {}", hold.seatHold.getCourseId());
+        }
+    }
+
+    private UUID parseUUID(String id) {
+        UUID uuid = UuidUtils.parseOrNull(id);
+        if (uuid == null) {
+            throw new IllegalArgumentException("无效的ID格式: " + id);
+        }
+        return uuid;
+    }
+
+    private static String pairKey(String courseId, String studentId) {
+        return courseId + ":" + studentId;
+    }
+
+    /**
+     * 生效中的保留及其到期定时任务
+     */
+    private static final class ActiveHold {
+        private final SeatHold seatHold;
+        private HierarchicalTimerWheel.Timeout timeout;
+
+        private ActiveHold(SeatHold seatHold) {
+            this.seatHold = seatHold;
+        }
+    }
+}
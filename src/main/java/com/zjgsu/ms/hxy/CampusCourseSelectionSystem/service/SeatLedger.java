@@ -0,0 +1,506 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SeatLedger 类
+ * 课程座位台账：在内存中按课程ID维护剩余座位计数，选课准入判断不再访问数据库
+ * 已选人数的变化先累积为增量，由定时任务批量回写 courses.enrolled，并定期与选课记录对账
+ *
+ * 台账假设应用为单实例部署；多实例部署时应关闭台账，退回数据库条件更新占座
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class SeatLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatLedger.class);
+
+    private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final CourseCache courseCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    /**
+     * 课程ID -> 座位计数器
+     */
+    private final ConcurrentHashMap<UUID, SeatCounter> counters = new ConcurrentHashMap<>();
+
+    public SeatLedger(CourseRepository courseRepository,
+                      EnrollmentRepository enrollmentRepository,
+                      CourseCache courseCache,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${campus.seat-ledger.enabled:false}") boolean enabled) {
+        this.courseRepository = courseRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.courseCache = courseCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    /**
+     * 台账是否启用
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启动完成后根据 Course.capacity / Course.enrolled 加载全部课程的座位计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        if (!enabled) {
+            return;
+        }
+        for (Course course : courseRepository.findAll()) {
+            counters.putIfAbsent(course.getId(), new SeatCounter(course.getCapacity(), course.getEnrolled()));
+        }
+        log.info("座位台账已加载 {} 门课程", counters.size());
+    }
+
+    /**
+     * 尝试占用一个座位
+     * 在事务中调用时，事务提交后记录增量，回滚时归还座位
+     * @param courseId 课程ID
+     * @return 占座成功返回true；课程不存在或已满返回false
+     */
+    public boolean tryAcquire(UUID courseId) {
+        SeatCounter counter = counterFor(courseId);
+        if (counter == null) {
+            return false;
+        }
+        // 扣减剩余座位和登记进行中的占座之间不能让对账看到中间状态
+        counter.begin();
+        boolean taken = false;
+        try {
+            taken = counter.tryTake();
+            if (taken) {
+                recordTaken(counter);
+            }
+            return taken;
+        } finally {
+            counter.end(taken);
+        }
+    }
+
+    /**
+     * 尝试为座位保留占用一个座位
+     * 保留的座位从剩余座位中扣除，但不计入已选人数，也不回写数据库
+     * @param courseId 课程ID
+     * @return 保留成功返回true；课程不存在或已满返回false
+     */
+    public boolean tryHold(UUID courseId) {
+        SeatCounter counter = counterFor(courseId);
+        if (counter == null) {
+            return false;
+        }
+        counter.begin();
+        boolean taken = false;
+        try {
+            taken = counter.tryTake();
+            if (taken) {
+                counter.held.incrementAndGet();
+            }
+            return taken;
+        } finally {
+            counter.end(taken);
+        }
+    }
+
+    /**
+     * 座位保留过期或取消，归还保留的座位
+     * @param courseId 课程ID
+     */
+    public void releaseHold(UUID courseId) {
+        SeatCounter counter = counters.get(courseId);
+        if (counter == null) {
+            return;
+        }
+        counter.begin();
+        try {
+            counter.held.decrementAndGet();
+            counter.giveBack();
+        } finally {
+            counter.end(true);
+        }
+    }
+
+    /**
+     * 座位保留转为选课：保留的座位改记为已选座位
+     * 在事务中调用时，事务提交后记录增量，回滚时座位归还到剩余座位（保留已被消费，不再恢复）
+     * @param courseId 课程ID
+     * @return 课程存在于台账中返回true
+     */
+    public boolean claimHold(UUID courseId) {
+        SeatCounter counter = counters.get(courseId);
+        if (counter == null) {
+            return false;
+        }
+        counter.begin();
+        try {
+            counter.held.decrementAndGet();
+            recordTaken(counter);
+        } finally {
+            counter.end(true);
+        }
+        return true;
+    }
+
+    /**
+     * 记录一个已从剩余座位中扣除的选课座位，调用方负责 begin/end
+     */
+    private void recordTaken(SeatCounter counter) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.inflight.incrementAndGet();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    counter.begin();
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            counter.pendingDelta.incrementAndGet();
+                        } else {
+                            counter.remaining.incrementAndGet();
+                        }
+                        counter.inflight.decrementAndGet();
+                    } finally {
+                        counter.end(true);
+                    }
+                }
+            });
+        } else {
+            counter.pendingDelta.incrementAndGet();
+        }
+    }
+
+    /**
+     * 释放一个座位
+     * 在事务中调用时，事务提交后才归还座位
+     * @param courseId 课程ID
+     * @return 课程存在于台账中返回true
+     */
+    public boolean release(UUID courseId) {
+        SeatCounter counter = counterFor(courseId);
+        if (counter == null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.give();
+                }
+            });
+        } else {
+            counter.give();
+        }
+        return true;
+    }
+
+    /**
+     * 获取课程剩余座位数
+     * @param courseId 课程ID
+     * @return 剩余座位数；课程不存在返回0
+     */
+    public int remaining(UUID courseId) {
+        SeatCounter counter = counterFor(courseId);
+        return counter == null ? 0 : Math.max(counter.remaining.get(), 0);
+    }
+
+    /**
+     * 课程新建或修改后刷新座位计数
+     * 已选人数只由台账维护，这里只按容量的变化量调整剩余座位；
+     * 不读取课程上的已选人数，回写尚未提交时也不会把同一笔增量算两次
+     * 在事务中调用时，事务提交后生效
+     * @param course 保存后的课程
+     */
+    public void refresh(Course course) {
+        if (!enabled || course == null || course.getId() == null) {
+            return;
+        }
+        Runnable action = () -> {
+            SeatCounter counter = counters.get(course.getId());
+            if (counter == null) {
+                // 新建的课程直接登记，首次选课无需再查询数据库
+                counters.putIfAbsent(course.getId(), new SeatCounter(course.getCapacity(), course.getEnrolled()));
+                return;
+            }
+            synchronized (counter) {
+                counter.begin();
+                try {
+                    int change = course.getCapacity() - counter.capacity;
+                    counter.capacity = course.getCapacity();
+                    counter.remaining.addAndGet(change);
+                } finally {
+                    counter.end(true);
+                }
+            }
+        };
+        afterCommit(action);
+    }
+
+    /**
+     * 课程被删除后移除座位计数
+     * @param courseId 课程ID
+     */
+    public void remove(UUID courseId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> counters.remove(courseId));
+    }
+
+    /**
+     * 将累积的已选人数增量回写到 courses 表
+     * 每门课程单独一个事务，一门课程回写失败不影响其他课程
+     */
+    @Scheduled(fixedDelayString = "${campus.seat-ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        int failed = 0;
+        for (Map.Entry<UUID, SeatCounter> entry : counters.entrySet()) {
+            UUID id = entry.getKey();
+            SeatCounter counter = entry.getValue();
+            int delta = counter.pendingDelta.get();
+            if (delta == 0) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> courseRepository.adjustEnrolled(id, delta));
+            } catch (RuntimeException e) {
+                // 回写失败时增量保持不变，等待下一轮
+                failed++;
+                log.warn("座位台账回写失败，课程 {} 的增量 {} 将在下一轮重试: {}", id, delta, e.getMessage());
+                continue;
+            }
+            // 提交之后才扣除已回写的增量，期间新增的增量留给下一轮
+            counter.pendingDelta.addAndGet(-delta);
+            courseCache.invalidate(id);
+        }
+        if (failed > 0) {
+            log.warn("座位台账本轮有 {} 门课程回写失败", failed);
+        }
+    }
+
+    /**
+     * 与选课记录对账：以未退课的选课记录数为准修正 courses.enrolled 和内存计数（保留中的座位另行扣除）
+     * 存在未完成事务或对账期间计数发生变化的课程会跳过，留待下一轮
+     */
+    @Scheduled(initialDelayString = "${campus.seat-ledger.reconcile-interval-ms:300000}",
+            fixedDelayString = "${campus.seat-ledger.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        int corrected = 0;
+        for (Map.Entry<UUID, SeatCounter> entry : counters.entrySet()) {
+            UUID id = entry.getKey();
+            SeatCounter counter = entry.getValue();
+            long before = counter.mutations.get();
+            if (counter.updating.get() != 0 || counter.inflight.get() != 0 || counter.pendingDelta.get() != 0) {
+                continue;
+            }
+            int actual = (int) enrollmentRepository.countByCourseIdAndStatusNotIn(id.toString(),
+                    List.of(EnrollmentStatus.WITHDRAWN, EnrollmentStatus.WAITLISTED));
+            int observed = counter.remaining.get();
+            int held = counter.held.get();
+            // 先检查进行中的修改，再检查修改计数：读取期间开始或结束的修改都会被发现
+            if (counter.updating.get() != 0 || counter.mutations.get() != before || counter.inflight.get() != 0) {
+                continue;
+            }
+            int correction = counter.capacity - actual - held - observed;
+            if (correction != 0) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> courseRepository.updateEnrolled(id, actual));
+                } catch (RuntimeException e) {
+                    log.warn("座位台账对账回写失败，课程 {}: {}", id, e.getMessage());
+                    continue;
+                }
+                courseCache.invalidate(id);
+                // 以增量修正：回写期间的占座和退课不会被覆盖
+                counter.begin();
+                try {
+                    counter.remaining.addAndGet(correction);
+                } finally {
+                    counter.end(true);
+                }
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            log.warn("座位台账对账修正了 {} 门课程的已选人数", corrected);
+        }
+    }
+
+    /**
+     * 应用关闭前回写剩余增量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 获取课程的座位计数器，不存在时从数据库加载
+     */
+    private SeatCounter counterFor(UUID courseId) {
+        SeatCounter counter = counters.get(courseId);
+        if (counter != null) {
+            return counter;
+        }
+        return courseRepository.findById(courseId)
+                .map(course -> counters.computeIfAbsent(courseId,
+                        id -> new SeatCounter(course.getCapacity(), course.getEnrolled())))
+                .orElse(null);
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单门课程的座位计数器，全部字段无锁更新
+     */
+    private static final class SeatCounter {
+
+        /**
+         * 课程容量
+         */
+        private volatile int capacity;
+
+        /**
+         * 剩余座位数（已扣除已提交和进行中的占座）
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * 已提交但尚未回写数据库的已选人数增量
+         */
+        private final AtomicInteger pendingDelta = new AtomicInteger();
+
+        /**
+         * 已占座但事务尚未结束的数量
+         */
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        /**
+         * 座位保留占用的座位数，不计入已选人数
+         */
+        private final AtomicInteger held = new AtomicInteger();
+
+        /**
+         * 修改计数，对账时用于检测并发变化
+         */
+        private final AtomicLong mutations = new AtomicLong();
+
+        /**
+         * 正在进行的修改数，不为0时对账不做修正
+         */
+        private final AtomicInteger updating = new AtomicInteger();
+
+        private SeatCounter(int capacity, int enrolled) {
+            this.capacity = capacity;
+            this.remaining = new AtomicInteger(capacity - enrolled);
+        }
+
+        /**
+         * 开始修改：先登记进行中的修改，再改动计数
+         */
+        private void begin() {
+            updating.incrementAndGet();
+        }
+
+        /**
+         * 结束修改：有实际改动时先增加修改计数，再撤销进行中的登记
+         * @param changed 计数是否被改动
+         */
+        private void end(boolean changed) {
+            if (changed) {
+                mutations.incrementAndGet();
+            }
+            updating.decrementAndGet();
+        }
+
+        private boolean tryTake() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        /**
+         * 归还一个已选座位；已选人数的减少总是记入增量，剩余座位不超过容量
+         */
+        private void give() {
+            begin();
+            try {
+                int current;
+                do {
+                    current = remaining.get();
+                } while (current < capacity && !remaining.compareAndSet(current, current + 1));
+                pendingDelta.decrementAndGet();
+            } finally {
+                end(true);
+            }
+        }
+
+        /**
+         * 归还一个未计入已选人数的座位，调用方负责 begin/end
+         */
+        private void giveBack() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current >= capacity) {
+                    return;
+                }
+            } while (!remaining.compareAndSet(current, current + 1));
+        }
+    }
+}
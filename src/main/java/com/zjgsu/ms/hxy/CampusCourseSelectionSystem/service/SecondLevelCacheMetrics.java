@@ -0,0 +1,68 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SecondLevelCacheMetrics 类
+ * 汇总 Hibernate 二级缓存与查询缓存的命中情况：各实体区域、查询区域的命中、未命中、写入次数和命中率
+ * 区域配置见 ehcache.xml，统计依赖 hibernate.generate_statistics（只在开发环境开启，其他环境计数为0）
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class SecondLevelCacheMetrics implements MetricsProvider {
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "secondLevelCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        metrics.put("entity", counts(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        metrics.put("query", counts(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.put(region, counts(regionStatistics));
+            }
+        }
+        metrics.put("regions", regions);
+        return metrics;
+    }
+
+    private static Map<String, Object> counts(CacheRegionStatistics regionStatistics) {
+        return counts(regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount());
+    }
+
+    private static Map<String, Object> counts(long hits, long misses, long puts) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        counts.put("hits", hits);
+        counts.put("misses", misses);
+        counts.put("puts", puts);
+        counts.put("hitRate", lookups == 0 ? 0.0 : Math.round(hits * 1000.0 / lookups) / 1000.0);
+        return counts;
+    }
+}
@@ -0,0 +1,211 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * StudentEnrollmentCache 类
+ * 按学生缓存选课记录列表（“我的课程”页面、平均成绩等），容量和有效期均有上限，超出容量时淘汰最久未访问的学生
+ *
+ * 选课、退课、候补、状态和成绩修改在事务提交后按记录增量更新已缓存的列表，不整体失效；
+ * 同一记录的更新按版本号比较，晚到的旧版本不会覆盖新版本。
+ * 批量 UPDATE（候补递补）和删除记录时该学生的列表整体失效
+ *
+ * 缓存中保存的是记录的副本，读取时也返回副本，调用方修改返回的对象不影响缓存
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class StudentEnrollmentCache implements MetricsProvider {
+
+    /**
+     * 加载与更新冲突判断的分段数
+     */
+    private static final int STRIPES = 64;
+
+    private final boolean enabled;
+    private final LruCache<String, List<Enrollment>> enrollmentsByStudent;
+
+    /**
+     * 每个分段的更新计数，加载开始后该分段有过更新时不写回缓存；写回需持有本对象的锁
+     */
+    private final AtomicLongArray stripeGenerations = new AtomicLongArray(STRIPES);
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder staleSkipped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public StudentEnrollmentCache(@Value("${campus.enrollment-cache.enabled:true}") boolean enabled,
+                                  @Value("${campus.enrollment-cache.max-students:10000}") int maxStudents,
+                                  @Value("${campus.enrollment-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.enrollmentsByStudent = new LruCache<>(maxStudents, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 读取学生的选课记录列表，未缓存时加载并写入缓存
+     * @param studentId 学生ID（与选课记录中的学生ID一致）
+     * @param loader 从数据库加载的函数
+     * @return 选课记录列表的副本
+     */
+    public List<Enrollment> get(String studentId, Function<String, List<Enrollment>> loader) {
+        if (!enabled) {
+            return loader.apply(studentId);
+        }
+        List<Enrollment> cached = enrollmentsByStudent.get(studentId);
+        if (cached != null) {
+            return copyAll(cached);
+        }
+
+        int stripe = stripe(studentId);
+        long startGeneration = stripeGenerations.get(stripe);
+        List<Enrollment> loaded = copyAll(loader.apply(studentId));
+        synchronized (this) {
+            if (stripeGenerations.get(stripe) == startGeneration) {
+                enrollmentsByStudent.put(studentId, List.copyOf(loaded));
+            }
+        }
+        return copyAll(loaded);
+    }
+
+    /**
+     * 选课记录被写入后更新所属学生的缓存列表；在事务中调用时事务提交后生效
+     * @param enrollment 保存后的选课记录
+     */
+    public void record(Enrollment enrollment) {
+        if (!enabled || enrollment == null) {
+            return;
+        }
+        afterCommit(() -> apply(copy(enrollment)));
+    }
+
+    /**
+     * 批量记录选课记录的写入
+     * @param enrollments 保存后的选课记录
+     */
+    public void recordAll(Iterable<Enrollment> enrollments) {
+        for (Enrollment enrollment : enrollments) {
+            record(enrollment);
+        }
+    }
+
+    /**
+     * 学生的选课记录被批量修改或删除，使其缓存列表失效；在事务中调用时事务提交后生效
+     * @param studentId 学生ID
+     */
+    public void evict(String studentId) {
+        if (!enabled || studentId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                stripeGenerations.incrementAndGet(stripe(studentId));
+                if (enrollmentsByStudent.invalidate(studentId) != null) {
+                    evicted.increment();
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "studentEnrollmentCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("students", enrollmentsByStudent.getMetrics());
+        metrics.put("applied", applied.sum());
+        metrics.put("staleSkipped", staleSkipped.sum());
+        metrics.put("evicted", evicted.sum());
+        return metrics;
+    }
+
+    /**
+     * 用提交后的记录替换或追加到已缓存的列表；学生未缓存时不做处理
+     */
+    private synchronized void apply(Enrollment committed) {
+        String studentId = committed.getStudentId();
+        stripeGenerations.incrementAndGet(stripe(studentId));
+        List<Enrollment> cached = enrollmentsByStudent.peek(studentId);
+        if (cached == null) {
+            return;
+        }
+        List<Enrollment> updated = new ArrayList<>(cached.size() + 1);
+        boolean replaced = false;
+        for (Enrollment current : cached) {
+            if (current.getId().equals(committed.getId())) {
+                if (isOlder(committed, current)) {
+                    staleSkipped.increment();
+                    return;
+                }
+                updated.add(committed);
+                replaced = true;
+            } else {
+                updated.add(current);
+            }
+        }
+        if (!replaced) {
+            updated.add(committed);
+        }
+        // 缓存的列表不可修改，读取方拿到的是副本
+        enrollmentsByStudent.put(studentId, List.copyOf(updated));
+        applied.increment();
+    }
+
+    private static boolean isOlder(Enrollment candidate, Enrollment current) {
+        return candidate.getVersion() != null && current.getVersion() != null
+                && candidate.getVersion() < current.getVersion();
+    }
+
+    private static int stripe(String studentId) {
+        return Math.floorMod(studentId.hashCode(), STRIPES);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static List<Enrollment> copyAll(List<Enrollment> enrollments) {
+        List<Enrollment> copies = new ArrayList<>(enrollments.size());
+        for (Enrollment enrollment : enrollments) {
+            copies.add(copy(enrollment));
+        }
+        return copies;
+    }
+
+    private static Enrollment copy(Enrollment source) {
+        Enrollment copy = new Enrollment(source.getCourseId(), source.getStudentId(), source.getStatus(), source.getGrade());
+        copy.setId(source.getId());
+        copy.setEnrolledAt(source.getEnrolledAt());
+        copy.setWaitlistedAt(source.getWaitlistedAt());
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
+}
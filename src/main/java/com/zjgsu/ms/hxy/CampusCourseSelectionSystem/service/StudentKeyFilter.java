@@ -0,0 +1,280 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StudentKeyFilter 类
+ * 学号、邮箱唯一性检查的布隆过滤器前置判断：过滤器判定“一定不存在”时不再执行 existsBy 查询，
+ * 判定“可能存在”时仍以数据库为准
+ *
+ * 启动完成后由全部学生构建；学生写入时在事务提交前加入过滤器，提交后再加入一次，
+ * 保证重建时读取的快照未包含该学生时，该值也会补入新过滤器；回滚只会多出误判，不会漏判。
+ * 布隆过滤器不支持删除，删除和修改留下的旧值只增加误判；旧值或元素数超过阈值时重建过滤器
+ *
+ * 学号和邮箱统一去除首尾空白并转为小写后加入和查询，数据库按不区分大小写的排序规则比较时也不会漏判
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class StudentKeyFilter implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentKeyFilter.class);
+
+    /**
+     * 旧值（已删除或已修改的学号、邮箱）超过已加入元素数的该比例时重建
+     */
+    private static final double STALE_REBUILD_RATIO = 0.2;
+
+    private final StudentRepository studentRepository;
+    private final boolean enabled;
+    private final long configuredInsertions;
+    private final double falsePositiveRate;
+
+    /**
+     * 当前过滤器，构建完成前为null（所有查询视为可能存在）；替换与添加需持有 lock
+     */
+    private volatile Filters filters;
+
+    /**
+     * 构建期间加入的值，构建完成后补入新过滤器；首次构建前即开始收集
+     */
+    private List<String[]> pendingDuringRebuild = new ArrayList<>();
+    private final Object lock = new Object();
+
+    private final AtomicLong staleKeys = new AtomicLong();
+    private final LongAdder definitelyAbsent = new LongAdder();
+    private final LongAdder maybePresent = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public StudentKeyFilter(StudentRepository studentRepository,
+                            @Value("${campus.student-filter.enabled:true}") boolean enabled,
+                            @Value("${campus.student-filter.expected-insertions:100000}") long expectedInsertions,
+                            @Value("${campus.student-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.studentRepository = studentRepository;
+        this.enabled = enabled;
+        this.configuredInsertions = Math.max(expectedInsertions, 1);
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * 启动完成后由全部学生构建过滤器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 学号是否可能已存在
+     * @param studentId 学号
+     * @return false 表示一定不存在
+     */
+    public boolean mightContainStudentId(String studentId) {
+        Filters current = filters;
+        return check(current == null ? null : current.studentIds, studentId);
+    }
+
+    /**
+     * 邮箱是否可能已存在
+     * @param email 邮箱
+     * @return false 表示一定不存在
+     */
+    public boolean mightContainEmail(String email) {
+        Filters current = filters;
+        return check(current == null ? null : current.emails, email);
+    }
+
+    /**
+     * 过滤器判定可能存在、数据库查询结果为不存在时记录一次误判；过滤器构建前的查询不计入
+     */
+    public void recordFalsePositive() {
+        if (enabled && filters != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * 学生写入后加入其学号和邮箱，应在事务提交前调用
+     * @param student 学生
+     */
+    public void add(Student student) {
+        if (!enabled || student == null) {
+            return;
+        }
+        String studentId = normalize(student.getStudentId());
+        String email = normalize(student.getEmail());
+        put(studentId, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(studentId, email);
+                }
+            });
+        }
+    }
+
+    private void put(String studentId, String email) {
+        synchronized (lock) {
+            Filters current = filters;
+            if (current != null) {
+                current.add(studentId, email);
+            }
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(new String[]{studentId, email});
+            }
+        }
+    }
+
+    /**
+     * 学生被删除，或学号、邮箱被修改后，记录留在过滤器中的旧值个数
+     * @param count 旧值个数
+     */
+    public void recordStale(int count) {
+        if (enabled) {
+            staleKeys.addAndGet(count);
+        }
+    }
+
+    /**
+     * 旧值过多或元素数超过容量、误判率明显上升时重建过滤器
+     */
+    @Scheduled(fixedDelayString = "${campus.student-filter.check-interval-ms:60000}")
+    public void rebuildIfDegraded() {
+        Filters current = filters;
+        if (!enabled || current == null) {
+            return;
+        }
+        long inserted = current.insertions.get();
+        if (staleKeys.get() > inserted * STALE_REBUILD_RATIO
+                || inserted > current.studentIds.getExpectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 由数据库中的全部学生重建过滤器，容量取配置值与现有学生数两倍中的较大者
+     */
+    public void rebuild() {
+        synchronized (lock) {
+            if (pendingDuringRebuild == null) {
+                pendingDuringRebuild = new ArrayList<>();
+            }
+        }
+        Filters rebuilt;
+        try {
+            List<Student> students = studentRepository.findAll();
+            rebuilt = new Filters(Math.max(configuredInsertions, students.size() * 2L), falsePositiveRate);
+            for (Student student : students) {
+                rebuilt.add(normalize(student.getStudentId()), normalize(student.getEmail()));
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                // 首次构建失败时继续收集，等待下一次构建
+                if (filters != null) {
+                    pendingDuringRebuild = null;
+                }
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            for (String[] keys : pendingDuringRebuild) {
+                rebuilt.add(keys[0], keys[1]);
+            }
+            pendingDuringRebuild = null;
+            filters = rebuilt;
+            staleKeys.set(0);
+        }
+        rebuilds.increment();
+        log.info("学号/邮箱过滤器已构建，{} 名学生，位数组 {} KB", rebuilt.insertions.get(),
+                rebuilt.studentIds.getMemoryBytes() * 2 / 1024);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "studentKeyFilter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("targetFalsePositiveRate", falsePositiveRate);
+        Filters current = filters;
+        if (current != null) {
+            long inserted = current.insertions.get();
+            metrics.put("insertions", inserted);
+            metrics.put("capacity", current.studentIds.getExpectedInsertions());
+            metrics.put("bitsPerFilter", current.studentIds.getBitCount());
+            metrics.put("hashFunctions", current.studentIds.getHashFunctions());
+            metrics.put("memoryBytes", current.studentIds.getMemoryBytes() + current.emails.getMemoryBytes());
+            metrics.put("estimatedFalsePositiveRate", current.studentIds.expectedFalsePositiveRate(inserted));
+        }
+        metrics.put("staleKeys", staleKeys.get());
+        metrics.put("definitelyAbsent", definitelyAbsent.sum());
+        metrics.put("maybePresent", maybePresent.sum());
+        metrics.put("falsePositives", falsePositives.sum());
+        metrics.put("rebuilds", rebuilds.sum());
+        return metrics;
+    }
+
+    private boolean check(BloomFilter filter, String value) {
+        if (!enabled || filter == null || value == null) {
+            return true;
+        }
+        if (filter.mightContain(normalize(value))) {
+            maybePresent.increment();
+            return true;
+        }
+        definitelyAbsent.increment();
+        return false;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 学号和邮箱各一个过滤器
+     */
+    private static final class Filters {
+        private final BloomFilter studentIds;
+        private final BloomFilter emails;
+        private final AtomicLong insertions = new AtomicLong();
+
+        private Filters(long expectedInsertions, double falsePositiveRate) {
+            this.studentIds = new BloomFilter(expectedInsertions, falsePositiveRate);
+            this.emails = new BloomFilter(expectedInsertions, falsePositiveRate);
+        }
+
+        private void add(String studentId, String email) {
+            studentIds.put(studentId);
+            emails.put(email);
+            insertions.incrementAndGet();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
 
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.BusinessException;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.ResourceNotFoundException;
 import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
@@ -28,6 +29,10 @@ import java.util.regex.Pattern;
 public class StudentService {
 
     private final StudentRepository studentRepository;
+    private final RegistrationWindowService registrationWindowService;
+    private final IdentityResolver identityResolver;
+    private final StudentKeyFilter studentKeyFilter;
+    private final KeysetPaginator keysetPaginator;
 
     @Autowired
     private EnrollmentService enrollmentService;
@@ -35,8 +40,16 @@ public class StudentService {
     // 邮箱正则表达式
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository,
+                          RegistrationWindowService registrationWindowService,
+                          IdentityResolver identityResolver,
+                          StudentKeyFilter studentKeyFilter,
+                          KeysetPaginator keysetPaginator) {
         this.studentRepository = studentRepository;
+        this.registrationWindowService = registrationWindowService;
+        this.identityResolver = identityResolver;
+        this.studentKeyFilter = studentKeyFilter;
+        this.keysetPaginator = keysetPaginator;
     }
 
     /**
@@ -47,6 +60,18 @@ public class StudentService {
         return studentRepository.findAll();
     }
 
+    /**
+     * 游标分页查询学生，按主键排序
+     * @param after 上一页返回的游标，为空表示第一页
+     * @param limit 每页条数，为空使用默认值
+     * @return 一页学生及下一页游标
+     * @throws IllegalArgumentException 如果游标无效或每页条数不是正数
+     */
+    public CursorPage<Student> getStudentsPage(String after, Integer limit) {
+        return keysetPaginator.page(after, limit, studentRepository::findAllByOrderByIdAsc,
+                studentRepository::findByIdGreaterThanOrderByIdAsc, Student::getId);
+    }
+
     /**
      * 根据ID获取学生
      * @param id 学生ID
@@ -92,19 +117,23 @@ public class StudentService {
         validateStudent(student);
 
         // 检查学号是否已存在
-        if (studentRepository.existsByStudentId(student.getStudentId())) {
+        if (isStudentIdTaken(student.getStudentId())) {
             throw new IllegalArgumentException("学号已存在: " + student.getStudentId());
         }
 
         // 检查邮箱是否已存在
-        if (studentRepository.existsByEmail(student.getEmail())) {
+        if (isEmailTaken(student.getEmail())) {
             throw new IllegalArgumentException("邮箱地址已存在: " + student.getEmail());
         }
 
         // 设置ID为null，确保创建新学生
         student.setId(null);
 
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        studentKeyFilter.add(saved);
+        registrationWindowService.recordStudent(saved);
+        identityResolver.invalidateStudent(saved.getId(), saved.getStudentId());
+        return saved;
     }
 
     /**
@@ -117,29 +146,41 @@ public class StudentService {
     @Transactional
     public Optional<Student> updateStudent(UUID id, Student student) {
         // 验证学生是否存在
-        if (!studentRepository.existsById(id)) {
+        Optional<Student> current = studentRepository.findById(id);
+        if (current.isEmpty()) {
             throw new IllegalArgumentException("学生不存在，ID: " + id);
         }
+        String previousStudentId = current.get().getStudentId();
+        String previousEmail = current.get().getEmail();
 
         // 验证学生数据
         validateStudent(student);
 
         // 检查学号是否被其他学生使用
-        Optional<Student> existingStudentWithSameStudentId = studentRepository.findByStudentId(student.getStudentId());
+        Optional<Student> existingStudentWithSameStudentId = studentKeyFilter.mightContainStudentId(student.getStudentId())
+                ? studentRepository.findByStudentId(student.getStudentId()) : Optional.empty();
         if (existingStudentWithSameStudentId.isPresent() &&
                 !existingStudentWithSameStudentId.get().getId().equals(id)) {
             throw new IllegalArgumentException("学号已被其他学生使用: " + student.getStudentId());
         }
 
         // 检查邮箱是否被其他学生使用
-        Optional<Student> existingStudentWithSameEmail = studentRepository.findByEmail(student.getEmail());
+        Optional<Student> existingStudentWithSameEmail = studentKeyFilter.mightContainEmail(student.getEmail())
+                ? studentRepository.findByEmail(student.getEmail()) : Optional.empty();
         if (existingStudentWithSameEmail.isPresent() &&
                 !existingStudentWithSameEmail.get().getId().equals(id)) {
             throw new IllegalArgumentException("邮箱地址已被其他学生使用: " + student.getEmail());
         }
 
         student.setId(id);
-        return Optional.of(studentRepository.save(student));
+        Student saved = studentRepository.save(student);
+        studentKeyFilter.add(saved);
+        // 被替换的学号、邮箱仍留在过滤器中
+        studentKeyFilter.recordStale((previousStudentId.equals(saved.getStudentId()) ? 0 : 1)
+                + (previousEmail.equals(saved.getEmail()) ? 0 : 1));
+        registrationWindowService.recordStudent(saved);
+        identityResolver.invalidateStudent(id, saved.getStudentId());
+        return Optional.of(saved);
     }
 
     /**
@@ -159,6 +200,9 @@ public class StudentService {
 
         // Spring Data JPA的deleteById方法返回void
         studentRepository.deleteById(id);
+        studentKeyFilter.recordStale(2);
+        registrationWindowService.forgetStudent(id);
+        identityResolver.invalidateStudent(id, null);
     }
 
     /**
@@ -184,6 +228,9 @@ public class StudentService {
 
         // 执行删除
         studentRepository.delete(student.get());
+        studentKeyFilter.recordStale(2);
+        registrationWindowService.forgetStudent(student.get().getId());
+        identityResolver.invalidateStudent(student.get().getId(), studentId);
     }
 
     /**
@@ -204,7 +251,7 @@ public class StudentService {
         if (!StringUtils.hasText(studentId)) {
             throw new IllegalArgumentException("学号不能为空");
         }
-        return studentRepository.existsByStudentId(studentId);
+        return isStudentIdTaken(studentId);
     }
 
     /**
@@ -216,7 +263,7 @@ public class StudentService {
         if (!StringUtils.hasText(email)) {
             throw new IllegalArgumentException("邮箱地址不能为空");
         }
-        return studentRepository.existsByEmail(email);
+        return isEmailTaken(email);
     }
 
     /**
@@ -266,6 +313,38 @@ public class StudentService {
         return studentRepository.findByNameContainingIgnoreCase(keyword);
     }
 
+    /**
+     * 学号是否已被使用：过滤器判定一定不存在时不查询数据库
+     * @param studentId 学号
+     * @return 已被使用返回true
+     */
+    private boolean isStudentIdTaken(String studentId) {
+        if (!studentKeyFilter.mightContainStudentId(studentId)) {
+            return false;
+        }
+        boolean exists = studentRepository.existsByStudentId(studentId);
+        if (!exists) {
+            studentKeyFilter.recordFalsePositive();
+        }
+        return exists;
+    }
+
+    /**
+     * 邮箱是否已被使用：过滤器判定一定不存在时不查询数据库
+     * @param email 邮箱地址
+     * @return 已被使用返回true
+     */
+    private boolean isEmailTaken(String email) {
+        if (!studentKeyFilter.mightContainEmail(email)) {
+            return false;
+        }
+        boolean exists = studentRepository.existsByEmail(email);
+        if (!exists) {
+            studentKeyFilter.recordFalsePositive();
+        }
+        return exists;
+    }
+
     /**
      * 验证学生数据的完整性
      * @param student 学生对象
@@ -331,19 +410,23 @@ public class StudentService {
             validateStudent(student);
 
             // 检查学号唯一性
-            if (studentRepository.existsByStudentId(student.getStudentId())) {
+            if (isStudentIdTaken(student.getStudentId())) {
                 throw new IllegalArgumentException("学号已存在: " + student.getStudentId());
             }
 
             // 检查邮箱唯一性
-            if (studentRepository.existsByEmail(student.getEmail())) {
+            if (isEmailTaken(student.getEmail())) {
                 throw new IllegalArgumentException("邮箱地址已存在: " + student.getEmail());
             }
 
             student.setId(null);
         }
 
-        return studentRepository.saveAll(students);
+        List<Student> saved = studentRepository.saveAll(students);
+        saved.forEach(studentKeyFilter::add);
+        saved.forEach(registrationWindowService::recordStudent);
+        saved.forEach(s -> identityResolver.invalidateStudent(s.getId(), s.getStudentId()));
+        return saved;
     }
 
     /**
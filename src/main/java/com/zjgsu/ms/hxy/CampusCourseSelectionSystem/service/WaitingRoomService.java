@@ -0,0 +1,419 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WaitingRoomService 类
+ * 选课虚拟等候室：按受控速率发放带签名、有时效的准入令牌
+ * 没有令牌的请求领取排队号，按号依次准入；排队和准入判断都只在内存中完成，不访问数据库
+ * 准入速率按实测的选课接口延迟自适应：延迟超过目标时按比例下调，低于目标且有人排队时逐步上调
+ *
+ * 令牌由 HMAC-SHA256 签名，格式为 base64url(类型:值:过期时间).base64url(签名)，
+ * 排队号令牌类型为 Q，准入令牌类型为 A
+ *
+ * 每个排队号只能兑换一次准入令牌，重复出示已兑换的排队号视为重新排队；已兑换的排队号记录在低水位以上的位图中，
+ * 低水位随排队号令牌过期推进。准入令牌是无状态的持有者令牌，有效期内（默认 120 秒）可重复使用，不记录使用次数，
+ * 准入控制的是进入选课接口的速率而不是请求次数
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class WaitingRoomService implements MetricsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitingRoomService.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String QUEUE_TOKEN = "Q";
+    private static final String ADMISSION_TOKEN = "A";
+
+    /**
+     * 准入令牌发放泵的运行间隔
+     */
+    private static final long PUMP_INTERVAL_MILLIS = 100;
+
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final long admissionTtlMillis;
+    private final long queueTtlMillis;
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double burstSeconds;
+    private final long targetLatencyNanos;
+
+    /**
+     * 当前准入速率（每秒准入人数）
+     */
+    private volatile double rate;
+
+    /**
+     * 令牌桶中可用的准入名额
+     */
+    private double permits;
+
+    /**
+     * 已发出的最大排队号
+     */
+    private long issued;
+
+    /**
+     * 已准入的最大排队号，排队号不超过它的请求即可领取准入令牌
+     */
+    private long admittedUpTo;
+
+    /**
+     * 兑换低水位：小于它的排队号已过期，不能再兑换
+     */
+    private long redeemFloor = 1;
+
+    /**
+     * 低水位以上已兑换准入令牌的排队号，第 i 位对应排队号 redeemFloor + i
+     */
+    private BitSet redeemed = new BitSet();
+
+    /**
+     * 排队号发放检查点 [时间, 当时已发出的最大排队号]，检查点过期后其之前的排队号令牌均已过期，据此推进低水位
+     */
+    private final ArrayDeque<long[]> issueCheckpoints = new ArrayDeque<>();
+
+    private final LongAdder directAdmissions = new LongAdder();
+    private final LongAdder queuedAdmissions = new LongAdder();
+    private final LongAdder queuedResponses = new LongAdder();
+    private final LongAdder invalidTokens = new LongAdder();
+    private final LongAdder replayedQueueTokens = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+    private volatile long lastAverageLatencyMillis;
+
+    public WaitingRoomService(@Value("${campus.waiting-room.enabled:false}") boolean enabled,
+                              @Value("${campus.waiting-room.secret:}") String secret,
+                              @Value("${campus.waiting-room.admission-ttl-seconds:120}") long admissionTtlSeconds,
+                              @Value("${campus.waiting-room.queue-ttl-seconds:1800}") long queueTtlSeconds,
+                              @Value("${campus.waiting-room.initial-rate:50}") double initialRate,
+                              @Value("${campus.waiting-room.min-rate:5}") double minRate,
+                              @Value("${campus.waiting-room.max-rate:500}") double maxRate,
+                              @Value("${campus.waiting-room.increase-step:5}") double increaseStep,
+                              @Value("${campus.waiting-room.burst-seconds:0.5}") double burstSeconds,
+                              @Value("${campus.waiting-room.target-latency-ms:300}") long targetLatencyMillis) {
+        this.enabled = enabled;
+        byte[] secretBytes;
+        if (StringUtils.hasText(secret)) {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            // 未配置密钥时每次启动随机生成，重启后已发出的令牌失效（单实例部署可接受）
+            secretBytes = new byte[32];
+            new SecureRandom().nextBytes(secretBytes);
+        }
+        this.key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.admissionTtlMillis = TimeUnit.SECONDS.toMillis(admissionTtlSeconds);
+        this.queueTtlMillis = TimeUnit.SECONDS.toMillis(queueTtlSeconds);
+        this.minRate = Math.max(minRate, 1);
+        this.maxRate = Math.max(maxRate, this.minRate);
+        this.increaseStep = Math.max(increaseStep, 1);
+        this.burstSeconds = Math.max(burstSeconds, 0.1);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.rate = Math.min(Math.max(initialRate, this.minRate), this.maxRate);
+    }
+
+    /**
+     * 等候室是否启用
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 校验准入令牌；准入令牌在有效期内可重复使用
+     * @param token 准入令牌，可为空
+     * @return 令牌有效且未过期返回true
+     */
+    public boolean isAdmitted(String token) {
+        if (!StringUtils.hasText(token)) {
+            return false;
+        }
+        boolean valid = verify(token, ADMISSION_TOKEN) != null;
+        if (!valid) {
+            invalidTokens.increment();
+        }
+        return valid;
+    }
+
+    /**
+     * 没有有效准入令牌的请求进入等候室
+     * 持有排队号且已轮到时发放准入令牌，每个排队号只兑换一次；没有排队号或排队号已兑换过时，
+     * 无人排队且有余量则直接准入，否则发放新的排队号
+     * @param queueToken 之前领取的排队号令牌，可为空
+     * @return 准入结果或排队状态
+     */
+    public Admission enter(String queueToken) {
+        if (StringUtils.hasText(queueToken)) {
+            String number = verify(queueToken, QUEUE_TOKEN);
+            if (number == null) {
+                invalidTokens.increment();
+            } else {
+                Admission admission = checkPosition(Long.parseLong(number), queueToken);
+                if (admission != null) {
+                    return admission;
+                }
+                replayedQueueTokens.increment();
+            }
+        }
+        long number;
+        synchronized (this) {
+            if (admittedUpTo >= issued && permits >= 1) {
+                permits--;
+                directAdmissions.increment();
+                return Admission.admitted(issueAdmissionToken());
+            }
+            number = ++issued;
+        }
+        return checkPosition(number, sign(QUEUE_TOKEN, Long.toString(number), queueTtlMillis));
+    }
+
+    /**
+     * 记录一次已准入的选课请求的处理耗时，用于调整准入速率
+     * @param nanos 处理耗时（纳秒）
+     */
+    public void recordLatency(long nanos) {
+        latencyNanos.add(nanos);
+        latencySamples.increment();
+    }
+
+    /**
+     * 按当前速率向令牌桶补充名额，并按排队号顺序准入
+     */
+    @Scheduled(fixedRate = PUMP_INTERVAL_MILLIS)
+    public void pump() {
+        if (!enabled) {
+            return;
+        }
+        double capacity = Math.max(1, rate * burstSeconds);
+        synchronized (this) {
+            permits = Math.min(capacity, permits + rate * PUMP_INTERVAL_MILLIS / 1000.0);
+            long admit = Math.min(issued - admittedUpTo, (long) permits);
+            if (admit > 0) {
+                admittedUpTo += admit;
+                permits -= admit;
+            }
+            advanceRedeemFloor(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 按上一周期的平均延迟调整准入速率（加性增、乘性减）
+     */
+    @Scheduled(fixedRateString = "${campus.waiting-room.adjust-interval-ms:1000}")
+    public void adjustRate() {
+        if (!enabled) {
+            return;
+        }
+        long samples = latencySamples.sumThenReset();
+        long total = latencyNanos.sumThenReset();
+        if (samples == 0) {
+            return;
+        }
+        long average = total / samples;
+        lastAverageLatencyMillis = TimeUnit.NANOSECONDS.toMillis(average);
+        double current = rate;
+        if (average > targetLatencyNanos) {
+            rate = Math.max(minRate, current * 0.75);
+        } else if (waiting() > 0) {
+            rate = Math.min(maxRate, current + increaseStep);
+        }
+        if (rate != current) {
+            log.debug("等候室准入速率调整为 {}/s（平均延迟 {} ms）", String.format("%.1f", rate), lastAverageLatencyMillis);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "waitingRoom";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("admissionRatePerSecond", Math.round(rate * 10) / 10.0);
+        metrics.put("waiting", waiting());
+        metrics.put("directAdmissions", directAdmissions.sum());
+        metrics.put("queuedAdmissions", queuedAdmissions.sum());
+        metrics.put("queuedResponses", queuedResponses.sum());
+        metrics.put("invalidTokens", invalidTokens.sum());
+        metrics.put("replayedQueueTokens", replayedQueueTokens.sum());
+        metrics.put("avgLatencyMillis", lastAverageLatencyMillis);
+        return metrics;
+    }
+
+    private synchronized long waiting() {
+        return issued - admittedUpTo;
+    }
+
+    /**
+     * 已轮到时兑换准入令牌，否则返回排队状态
+     * @return 排队号已兑换过时返回null
+     */
+    private Admission checkPosition(long number, String queueToken) {
+        long admitted;
+        synchronized (this) {
+            admitted = admittedUpTo;
+            if (number <= admitted && !redeem(number)) {
+                return null;
+            }
+        }
+        if (number <= admitted) {
+            queuedAdmissions.increment();
+            return Admission.admitted(issueAdmissionToken());
+        }
+        queuedResponses.increment();
+        long position = number - admitted;
+        long waitSeconds = Math.max(1, (long) Math.ceil(position / rate));
+        return Admission.queued(queueToken, position, waitSeconds);
+    }
+
+    /**
+     * 标记排队号已兑换，需持有 this 锁
+     * @return 首次兑换返回true；已兑换或已过期返回false
+     */
+    private boolean redeem(long number) {
+        if (number < redeemFloor) {
+            return false;
+        }
+        int offset = (int) (number - redeemFloor);
+        if (redeemed.get(offset)) {
+            return false;
+        }
+        redeemed.set(offset);
+        return true;
+    }
+
+    /**
+     * 记录发放检查点，并把低水位推进到令牌已全部过期的排队号之后，需持有 this 锁
+     */
+    private void advanceRedeemFloor(long now) {
+        long[] last = issueCheckpoints.peekLast();
+        if (last == null || last[1] != issued) {
+            issueCheckpoints.addLast(new long[]{now, issued});
+        }
+        long expiredUpTo = redeemFloor - 1;
+        while (!issueCheckpoints.isEmpty() && issueCheckpoints.peekFirst()[0] + queueTtlMillis < now) {
+            expiredUpTo = issueCheckpoints.pollFirst()[1];
+        }
+        if (expiredUpTo >= redeemFloor) {
+            int shift = (int) (expiredUpTo + 1 - redeemFloor);
+            redeemed = redeemed.get(shift, Math.max(shift, redeemed.length()));
+            redeemFloor = expiredUpTo + 1;
+        }
+    }
+
+    private String issueAdmissionToken() {
+        return sign(ADMISSION_TOKEN, UUID.randomUUID().toString(), admissionTtlMillis);
+    }
+
+    private String sign(String type, String value, long ttlMillis) {
+        String payload = type + ":" + value + ":" + (System.currentTimeMillis() + ttlMillis);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(macs.get().doFinal(payloadBytes));
+    }
+
+    /**
+     * 校验令牌签名、类型和有效期
+     * @return 有效时返回令牌中的值，否则返回null
+     */
+    private String verify(String token, String expectedType) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payloadBytes = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, macs.get().doFinal(payloadBytes))) {
+                return null;
+            }
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3 || !expectedType.equals(parts[0])
+                    || Long.parseLong(parts[2]) < System.currentTimeMillis()) {
+                return null;
+            }
+            return parts[1];
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法初始化等候室令牌签名", e);
+        }
+    }
+
+    /**
+     * 进入等候室的结果：已准入时带准入令牌，排队中时带排队号令牌和位置
+     */
+    public static final class Admission {
+        private final boolean admitted;
+        private final String admissionToken;
+        private final String queueToken;
+        private final long position;
+        private final long estimatedWaitSeconds;
+
+        private Admission(boolean admitted, String admissionToken, String queueToken,
+                          long position, long estimatedWaitSeconds) {
+            this.admitted = admitted;
+            this.admissionToken = admissionToken;
+            this.queueToken = queueToken;
+            this.position = position;
+            this.estimatedWaitSeconds = estimatedWaitSeconds;
+        }
+
+        private static Admission admitted(String admissionToken) {
+            return new Admission(true, admissionToken, null, 0, 0);
+        }
+
+        private static Admission queued(String queueToken, long position, long estimatedWaitSeconds) {
+            return new Admission(false, null, queueToken, position, estimatedWaitSeconds);
+        }
+
+        public boolean isAdmitted() { return admitted; }
+
+        public String getAdmissionToken() { return admissionToken; }
+
+        public String getQueueToken() { return queueToken; }
+
+        public long getPosition() { return position; }
+
+        public long getEstimatedWaitSeconds() { return estimatedWaitSeconds; }
+    }
+}
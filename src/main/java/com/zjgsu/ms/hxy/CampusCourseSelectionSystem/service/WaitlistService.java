@@ -0,0 +1,201 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WaitlistService 类
+ * 维护每门课程的候补队列：队列持久化为 WAITLISTED 状态的选课记录，
+ * 同时在内存中保存有序副本，查询候补位置不访问数据库
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+public class WaitlistService implements MetricsProvider {
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final StudentEnrollmentCache studentEnrollmentCache;
+
+    /**
+     * 课程ID -> 候补队列
+     */
+    private final ConcurrentHashMap<String, CourseWaitlist> waitlists = new ConcurrentHashMap<>();
+
+    public WaitlistService(EnrollmentRepository enrollmentRepository, StudentEnrollmentCache studentEnrollmentCache) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.studentEnrollmentCache = studentEnrollmentCache;
+    }
+
+    /**
+     * 启动完成后从数据库加载全部候补记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        for (Enrollment enrollment : enrollmentRepository.findByStatusOrderByWaitlistedAtAsc(EnrollmentStatus.WAITLISTED)) {
+            waitlistFor(enrollment.getCourseId()).add(enrollment.getStudentId(), enrollment.getId());
+        }
+    }
+
+    /**
+     * 将已持久化的候补记录加入内存队列尾部
+     * 在事务中调用时，事务提交后才入队
+     * @param enrollment 候补状态的选课记录
+     */
+    public void enqueue(Enrollment enrollment) {
+        afterCommit(() -> waitlistFor(enrollment.getCourseId()).add(enrollment.getStudentId(), enrollment.getId()));
+    }
+
+    /**
+     * 将学生移出候补队列
+     * 在事务中调用时，事务提交后才出队
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     */
+    public void dequeue(String courseId, String studentId) {
+        afterCommit(() -> {
+            CourseWaitlist waitlist = waitlists.get(courseId);
+            if (waitlist != null) {
+                waitlist.remove(studentId);
+            }
+        });
+    }
+
+    /**
+     * 递补队首学生，在调用方事务中把其候补记录改为已选课
+     * 递补者直接接替退课学生的座位，课程已选人数不变
+     * @param courseId 课程ID
+     * @return 递补成功返回true；队列为空返回false
+     */
+    public boolean promoteNext(String courseId) {
+        CourseWaitlist waitlist = waitlists.get(courseId);
+        if (waitlist == null) {
+            return false;
+        }
+        for (Map.Entry<String, UUID> head : waitlist.snapshot()) {
+            if (enrollmentRepository.promoteWaitlisted(head.getValue()) == 1) {
+                dequeue(courseId, head.getKey());
+                // 批量 UPDATE 不返回记录，递补学生的选课列表整体失效
+                studentEnrollmentCache.evict(head.getKey());
+                return true;
+            }
+            // 记录已不再是候补状态（如已被删除），直接清理
+            waitlist.remove(head.getKey());
+        }
+        return false;
+    }
+
+    /**
+     * 查询学生在候补队列中的位置（仅访问内存）
+     * @param courseId 课程ID
+     * @param studentId 学生ID
+     * @return 从1开始的位置；不在队列中返回空Optional
+     */
+    public Optional<Integer> getPosition(String courseId, String studentId) {
+        CourseWaitlist waitlist = waitlists.get(courseId);
+        return waitlist == null ? Optional.empty() : waitlist.position(studentId);
+    }
+
+    /**
+     * 获取课程候补队列长度
+     * @param courseId 课程ID
+     * @return 候补人数
+     */
+    public int getWaitlistSize(String courseId) {
+        CourseWaitlist waitlist = waitlists.get(courseId);
+        return waitlist == null ? 0 : waitlist.size();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "waitlist";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        int total = 0;
+        int courses = 0;
+        for (CourseWaitlist waitlist : waitlists.values()) {
+            int size = waitlist.size();
+            if (size > 0) {
+                total += size;
+                courses++;
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("waitlistedStudents", total);
+        metrics.put("coursesWithWaitlist", courses);
+        return metrics;
+    }
+
+    private CourseWaitlist waitlistFor(String courseId) {
+        return waitlists.computeIfAbsent(courseId, id -> new CourseWaitlist());
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单门课程的候补队列，按入队顺序保存 学生ID -> 选课记录ID
+     */
+    private static final class CourseWaitlist {
+
+        private final LinkedHashMap<String, UUID> entries = new LinkedHashMap<>();
+
+        private synchronized void add(String studentId, UUID enrollmentId) {
+            entries.putIfAbsent(studentId, enrollmentId);
+        }
+
+        private synchronized void remove(String studentId) {
+            entries.remove(studentId);
+        }
+
+        private synchronized Optional<Integer> position(String studentId) {
+            int position = 1;
+            for (String key : entries.keySet()) {
+                if (key.equals(studentId)) {
+                    return Optional.of(position);
+                }
+                position++;
+            }
+            return Optional.empty();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized List<Map.Entry<String, UUID>> snapshot() {
+            return entries.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+    }
+}
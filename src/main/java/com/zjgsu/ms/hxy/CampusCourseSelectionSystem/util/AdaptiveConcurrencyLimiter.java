@@ -0,0 +1,176 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AdaptiveConcurrencyLimiter 类
+ * 基于延迟的自适应并发限制（Vegas 算法）：
+ * 以近期最小延迟作为无排队延迟，估算排队中的请求数 队列 = 限制 × (1 - 无排队延迟 / 当前延迟)，
+ * 队列低于 alpha 时放大限制，高于 beta 时收缩限制，步长为 log10(限制)
+ * 限制因此停在延迟开始上升的拐点附近，而不是等到超时才收缩
+ *
+ * 超过限制的请求立即拒绝，不排队
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 估算队列低于 alpha × log10(限制) 时放大限制
+     */
+    private static final double ALPHA = 3;
+
+    /**
+     * 估算队列高于 beta × log10(限制) 时收缩限制
+     */
+    private static final double BETA = 6;
+
+    /**
+     * 无排队延迟按该样本数的窗口取最小值，窗口结束后以上一窗口的最小值重新开始，跟随真实延迟的变化
+     */
+    private static final int BASELINE_WINDOW = 1000;
+
+    /**
+     * 请求失败（如超时、5xx）时限制值的收缩比例
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    /**
+     * 以下字段只在 synchronized 的更新方法中读写
+     */
+    private double estimatedLimit;
+    private long rttNoLoad;
+    private long windowMinRtt = Long.MAX_VALUE;
+    private int windowSamples;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param name 限制名称
+     * @param initialLimit 初始并发限制
+     * @param minLimit 并发限制下限
+     * @param maxLimit 并发限制上限
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.estimatedLimit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     * @return 成功时返回占用时的在途请求数（完成时回传），超过限制返回 -1
+     */
+    public int tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return -1;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        accepted.increment();
+        return current + 1;
+    }
+
+    /**
+     * 请求正常完成，归还名额并用本次延迟更新限制
+     * @param rttNanos 请求耗时（纳秒）
+     * @param inflightAtStart 占用时的在途请求数
+     */
+    public void onSuccess(long rttNanos, int inflightAtStart) {
+        inflight.decrementAndGet();
+        update(rttNanos, inflightAtStart);
+    }
+
+    /**
+     * 请求失败（服务端错误），归还名额并收缩限制
+     */
+    public void onDropped() {
+        inflight.decrementAndGet();
+        dropped.increment();
+        synchronized (this) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+            limit = (int) estimatedLimit;
+        }
+    }
+
+    /**
+     * 请求结果不反映负载（如客户端错误），只归还名额
+     */
+    public void onIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 限制的运行指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("limit", limit);
+        metrics.put("inflight", inflight.get());
+        metrics.put("accepted", accepted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("dropped", dropped.sum());
+        synchronized (this) {
+            metrics.put("noLoadRttMillis", TimeUnit.NANOSECONDS.toMillis(rttNoLoad));
+        }
+        return metrics;
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart) {
+        long rtt = Math.max(rttNanos, 1);
+        windowMinRtt = Math.min(windowMinRtt, rtt);
+        if (++windowSamples >= BASELINE_WINDOW) {
+            rttNoLoad = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        if (rttNoLoad == 0 || rtt < rttNoLoad) {
+            rttNoLoad = rtt;
+        }
+
+        double step = Math.max(1, Math.log10(estimatedLimit));
+        double queue = estimatedLimit * (1 - (double) rttNoLoad / rtt);
+        double newLimit;
+        if (queue > BETA * step) {
+            newLimit = estimatedLimit - step;
+        } else if (queue < ALPHA * step && inflightAtStart * 2 >= estimatedLimit) {
+            // 在途请求远低于限制时延迟不代表容量，不据此放大限制
+            newLimit = estimatedLimit + step;
+        } else {
+            return;
+        }
+        estimatedLimit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,253 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HierarchicalTimerWheel 类
+ * 分层时间轮：每层 wheelSize 个槽，第 n 层一个槽覆盖 wheelSize^n 个刻度
+ * 定时任务按到期刻度放入能容纳其剩余时间的最低一层；低一层转满一圈时，把高一层当前槽中的任务下放
+ * 添加、取消都是 O(1)，每个刻度只处理当前槽，与定时任务总数无关
+ *
+ * 到期任务在时间轮线程上执行，必须短小且不阻塞
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class HierarchicalTimerWheel implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HierarchicalTimerWheel.class);
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int mask;
+    private final int levels;
+    private final long maxTicks;
+    private final long startNanos;
+
+    /**
+     * 槽位：[层][槽] -> 该槽的定时任务，只由时间轮线程访问
+     */
+    private final ArrayDeque<Timeout>[][] buckets;
+
+    /**
+     * 新添加的定时任务，由时间轮线程在每个刻度开始时放入槽位
+     */
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * 当前刻度，只由时间轮线程修改
+     */
+    private long currentTick;
+
+    /**
+     * @param name 时间轮线程名
+     * @param tickDuration 刻度长度
+     * @param unit 刻度长度单位
+     * @param wheelSize 每层槽数，向上取整为2的幂
+     * @param levels 层数
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, int levels) {
+        if (tickDuration <= 0 || wheelSize <= 1 || levels <= 0) {
+            throw new IllegalArgumentException("时间轮参数无效");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << wheelBits) - 1;
+        this.levels = levels;
+        this.maxTicks = wheelBits * levels >= 62 ? Long.MAX_VALUE : 1L << (wheelBits * levels);
+        this.buckets = (ArrayDeque<Timeout>[][]) new ArrayDeque<?>[levels][mask + 1];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot <= mask; slot++) {
+                buckets[level][slot] = new ArrayDeque<>();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 添加定时任务
+     * @param task 到期时执行的任务
+     * @param delay 延迟时间
+     * @param unit 延迟时间单位
+     * @return 可用于取消的句柄
+     * @throws IllegalArgumentException 如果延迟超出时间轮的范围
+     * @throws IllegalStateException 如果时间轮已关闭
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("时间轮已关闭");
+        }
+        long elapsed = System.nanoTime() - startNanos + Math.max(unit.toNanos(delay), 0);
+        // 向上取整到刻度，保证不会提前到期
+        long deadlineTick = (elapsed + tickNanos - 1) / tickNanos;
+        if (deadlineTick - currentTick >= maxTicks) {
+            throw new IllegalArgumentException("延迟时间超出时间轮范围");
+        }
+        Timeout timeout = new Timeout(task, deadlineTick);
+        pending.incrementAndGet();
+        additions.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 等待到期的定时任务数（含已取消但尚未从槽中移除的）
+     */
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * 已执行的到期任务数
+     */
+    public long expiredCount() {
+        return expired.get();
+    }
+
+    /**
+     * 停止时间轮，未到期的任务不再执行
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * 时间轮线程主循环：等到下一个刻度，下放高层任务，放入新任务，执行当前槽中到期的任务
+     */
+    private void run() {
+        while (running) {
+            long tick = currentTick + 1;
+            long sleepNanos = startNanos + tick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            currentTick = tick;
+            if ((tick & mask) == 0) {
+                cascade(1);
+            }
+            transferAdditions();
+            expireCurrentSlot();
+        }
+    }
+
+    /**
+     * 第 level - 1 层转满一圈，把第 level 层当前槽中的任务按剩余时间重新放入更低的层
+     */
+    private void cascade(int level) {
+        if (level >= levels) {
+            return;
+        }
+        int slot = (int) ((currentTick >>> (wheelBits * level)) & mask);
+        if (slot == 0) {
+            cascade(level + 1);
+        }
+        ArrayDeque<Timeout> bucket = buckets[level][slot];
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            place(timeout);
+        }
+    }
+
+    private void transferAdditions() {
+        Timeout timeout;
+        while ((timeout = additions.poll()) != null) {
+            place(timeout);
+        }
+    }
+
+    private void expireCurrentSlot() {
+        ArrayDeque<Timeout> bucket = buckets[0][(int) (currentTick & mask)];
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            expire(timeout);
+        }
+    }
+
+    /**
+     * 按剩余刻度数放入最低一层能容纳的槽；已取消的任务直接丢弃，已到期的立即执行
+     */
+    private void place(Timeout timeout) {
+        if (timeout.state.get() != Timeout.WAITING) {
+            pending.decrementAndGet();
+            return;
+        }
+        long remaining = timeout.deadlineTick - currentTick;
+        if (remaining <= 0) {
+            expire(timeout);
+            return;
+        }
+        int level = 0;
+        while (level < levels - 1 && remaining >= 1L << (wheelBits * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((timeout.deadlineTick >>> (wheelBits * level)) & mask);
+        buckets[level][slot].add(timeout);
+    }
+
+    private void expire(Timeout timeout) {
+        pending.decrementAndGet();
+        if (!timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+            return;
+        }
+        expired.incrementAndGet();
+        try {
+            timeout.task.run();
+        } catch (RuntimeException e) {
+            log.error("时间轮定时任务执行异常", e);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * 取消定时任务；任务留在槽中，到达该槽时丢弃
+         * @return 取消成功返回true；已到期或已取消返回false
+         */
+        public boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        /**
+         * 是否已到期执行
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
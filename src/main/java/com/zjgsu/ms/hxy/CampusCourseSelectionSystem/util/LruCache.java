@@ -0,0 +1,136 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LruCache 类
+ * 有容量上限和过期时间的本地缓存：超过容量时淘汰最久未访问的条目，过期条目在访问时移除
+ * 记录命中、未命中、淘汰和过期次数
+ *
+ * 所有操作在同一把锁内完成，适合读多写少、单次操作很短的场景
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxSize 最大条目数
+     * @param ttl 条目写入后的有效期
+     * @param unit 有效期单位
+     */
+    public LruCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.ttlNanos = unit.toNanos(Math.max(ttl, 1));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存
+     * @param key 键
+     * @return 缓存的值；不存在或已过期返回null
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * 读取未过期的缓存值，不计入命中统计（用于缓存自身的增量更新）
+     * @param key 键
+     * @return 缓存的值；不存在或已过期返回null
+     */
+    public synchronized V peek(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        return entry == null || entry.expiresAt - System.nanoTime() <= 0 ? null : entry.value;
+    }
+
+    /**
+     * 写入缓存，重新计算有效期
+     * @param key 键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new CacheEntry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * 移除缓存条目
+     * @param key 键
+     * @return 被移除的值；不存在返回null
+     */
+    public synchronized V invalidate(K key) {
+        CacheEntry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 清空缓存，统计数据保留
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 缓存统计
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        metrics.put("size", entries.size());
+        metrics.put("maxSize", maxSize);
+        metrics.put("ttlMillis", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("hitRate", lookups == 0 ? 0.0 : Math.round(hits * 1000.0 / lookups) / 1000.0);
+        metrics.put("evictions", evictions);
+        metrics.put("expirations", expirations);
+        return metrics;
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
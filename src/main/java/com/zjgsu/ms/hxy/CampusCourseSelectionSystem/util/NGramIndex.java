@@ -0,0 +1,201 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * NGramIndex 类
+ * 内存二元组（bigram）倒排索引，支持按子串查找文档；每个文档可包含多个字段
+ *
+ * 中文按字切分后相邻两字为一个词元，英文、数字同样按相邻两个字符切分，不依赖分词；
+ * 查询取关键词的全部二元组求交得到候选文档，再逐个校验字段是否包含关键词，结果与子串匹配一致。
+ * 单字关键词没有二元组，逐个文档校验
+ *
+ * 文本统一做 NFKC 规范化（全角转半角等）并转为小写；读写锁保护，可并发查询
+ *
+ * @param <K> 文档键类型
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class NGramIndex<K> {
+
+    private final Map<K, String[]> documents = new HashMap<>();
+    private final Map<String, Set<K>> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换文档
+     * @param key 文档键
+     * @param fields 各字段文本，可为null；命中时按字段顺序报告第一个包含关键词的字段
+     */
+    public void put(K key, String... fields) {
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = normalize(fields[i]);
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            documents.put(key, normalized);
+            for (String gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     * @param key 文档键
+     */
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找包含关键词的文档
+     * @param query 关键词
+     * @return 命中列表，顺序不定；关键词规范化后为空时返回空列表
+     */
+    public List<Hit<K>> search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Hit<K>> hits = new ArrayList<>();
+            if (normalized.length() < 2) {
+                for (Map.Entry<K, String[]> document : documents.entrySet()) {
+                    addIfMatches(hits, document.getKey(), document.getValue(), normalized);
+                }
+                return hits;
+            }
+
+            List<Set<K>> lists = new ArrayList<>();
+            for (String gram : grams(new String[]{normalized})) {
+                Set<K> keys = postings.get(gram);
+                if (keys == null) {
+                    return hits;
+                }
+                lists.add(keys);
+            }
+            // 从最短的倒排表开始求交
+            lists.sort(Comparator.comparingInt(Set::size));
+            candidates:
+            for (K key : lists.get(0)) {
+                for (int i = 1; i < lists.size(); i++) {
+                    if (!lists.get(i).contains(key)) {
+                        continue candidates;
+                    }
+                }
+                addIfMatches(hits, key, documents.get(key), normalized);
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 不同二元组的个数
+     */
+    public int getGramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 规范化文本：NFKC、去除首尾空白、转小写
+     * @param text 文本，可为null
+     * @return 规范化后的文本，null 视为空串
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).strip().toLowerCase(Locale.ROOT);
+    }
+
+    private void removeLocked(K key) {
+        String[] previous = documents.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<K> keys = postings.get(gram);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static <K> void addIfMatches(List<Hit<K>> hits, K key, String[] fields, String query) {
+        for (int i = 0; i < fields.length; i++) {
+            int position = fields[i].indexOf(query);
+            if (position >= 0) {
+                hits.add(new Hit<>(key, i, position, fields[i].length(), fields[i].length() == query.length()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 各字段内相邻两个字符组成的二元组，不跨字段
+     */
+    private static Set<String> grams(String[] fields) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + 2 <= field.length(); i++) {
+                grams.add(field.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 一次命中
+     * @param key 文档键
+     * @param field 第一个包含关键词的字段序号
+     * @param position 关键词在该字段中的位置
+     * @param fieldLength 该字段规范化后的长度
+     * @param exact 该字段与关键词完全相同
+     */
+    public record Hit<K>(K key, int field, int position, int fieldLength, boolean exact) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight 类
+ * 合并并发的相同读取：同一个键同时只执行一次加载，加载期间到达的调用等待并共享这次的结果（或异常）
+ * 加载完成后立即移除，不缓存结果，之后的调用重新加载
+ *
+ * 共享的结果可能早于调用时刻开始查询，最多相差一次加载的耗时
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 执行加载，同一个键已有加载进行中时等待其结果
+     * @param key 键
+     * @param loader 加载函数
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 运行指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("executions", executions.sum());
+        metrics.put("shared", shared.sum());
+        metrics.put("inFlight", inFlight.size());
+        return metrics;
+    }
+}
@@ -0,0 +1,42 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import java.util.UUID;
+
+/**
+ * UuidUtils 类
+ * 不依赖异常的 UUID 解析：学号、课程编号等业务ID与 UUID 共用参数时，
+ * 先按格式判断，避免每次都抛出并捕获 IllegalArgumentException
+ *
+ * @author System
+ * @version 1.0
+ * @since 2024
+ */
+public final class UuidUtils {
+
+    private static final int UUID_LENGTH = 36;
+
+    private UuidUtils() {
+    }
+
+    /**
+     * 解析标准格式（8-4-4-4-12 位十六进制）的 UUID
+     * @param value 待解析的字符串
+     * @return 解析出的 UUID；格式不符返回null
+     */
+    public static UUID parseOrNull(String value) {
+        if (value == null || value.length() != UUID_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return null;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return null;
+            }
+        }
+        return UUID.fromString(value);
+    }
+}
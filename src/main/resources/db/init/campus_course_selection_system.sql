@@ -48,6 +48,7 @@ CREATE TABLE IF NOT EXISTS courses (
     schedule_id VARCHAR(36) NOT NULL COMMENT '时间表ID，关联schedule_slots表',
     capacity INT NOT NULL COMMENT '课程最大可选人数',
     enrolled INT NOT NULL DEFAULT 0 COMMENT '当前选课人数',
+    version BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     CONSTRAINT chk_capacity CHECK (capacity >= 1 AND capacity <= 500),
     CONSTRAINT chk_enrolled CHECK (enrolled >= 0 AND enrolled <= capacity),
@@ -64,10 +65,12 @@ CREATE TABLE IF NOT EXISTS enrollments (
     course_id VARCHAR(36) NOT NULL COMMENT '课程ID，关联courses表',
     student_id VARCHAR(36) NOT NULL COMMENT '学生ID，关联students表',
     enrolled_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '选课时间',
-    status VARCHAR(20) NOT NULL DEFAULT 'ENROLLED' COMMENT '选课状态：ENROLLED, WITHDRAWN, COMPLETED, FAILED',
+    status VARCHAR(20) NOT NULL DEFAULT 'ENROLLED' COMMENT '选课状态：ENROLLED, WITHDRAWN, COMPLETED, FAILED, WAITLISTED',
     grade DECIMAL(5,2) COMMENT '成绩',
+    waitlisted_at DATETIME NULL COMMENT '加入候补队列时间，候补排序依据',
+    version BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     CONSTRAINT uk_course_student UNIQUE (course_id, student_id),
-    CONSTRAINT chk_status CHECK (status IN ('ENROLLED', 'WITHDRAWN', 'COMPLETED', 'FAILED')),
+    CONSTRAINT chk_status CHECK (status IN ('ENROLLED', 'WITHDRAWN', 'COMPLETED', 'FAILED', 'WAITLISTED')),
     CONSTRAINT chk_grade CHECK (grade >= 0.0 AND grade <= 100.0),
     INDEX idx_course_id (course_id),
     INDEX idx_student_id (student_id)
@@ -76,6 +79,17 @@ CREATE TABLE IF NOT EXISTS enrollments (
     -- FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 6. 抽签登记表 (lottery_entries)，登记期内只追加写入，截止后批量分配
+CREATE TABLE IF NOT EXISTS lottery_entries (
+    id BINARY(16) NOT NULL PRIMARY KEY COMMENT 'UUID唯一标识符（二进制存储）',
+    course_id VARCHAR(255) NOT NULL COMMENT '登记的课程ID',
+    student_id VARCHAR(255) NOT NULL COMMENT '登记的学生ID或学号',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '登记时间',
+    processed_at TIMESTAMP NULL COMMENT '分配处理时间，未分配为NULL',
+    INDEX idx_lottery_course_id (course_id),
+    INDEX idx_lottery_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 创建视图：课程详情视图（包含教师信息和时间安排）
 CREATE VIEW IF NOT EXISTS course_details AS
 SELECT 
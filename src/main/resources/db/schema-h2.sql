@@ -30,6 +30,7 @@ CREATE TABLE IF NOT EXISTS courses (
     description VARCHAR(1000),
     credits INT,
     location VARCHAR(200),
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -46,6 +47,8 @@ CREATE TABLE IF NOT EXISTS enrollments (
     enrolled_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(20) NOT NULL DEFAULT 'ENROLLED',
     grade DECIMAL(5,2),
+    waitlisted_at TIMESTAMP NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT uk_course_student UNIQUE (course_id, student_id)
 );
 
@@ -54,6 +57,18 @@ CREATE INDEX IF NOT EXISTS idx_student_id ON enrollments(student_id);
 CREATE INDEX IF NOT EXISTS idx_status ON enrollments(status);
 CREATE INDEX IF NOT EXISTS idx_course_student ON enrollments(course_id, student_id);
 
+-- 抽签登记表（只追加写入）
+CREATE TABLE IF NOT EXISTS lottery_entries (
+    id BINARY(16) PRIMARY KEY,
+    course_id VARCHAR(255) NOT NULL,
+    student_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_lottery_course_id ON lottery_entries(course_id);
+CREATE INDEX IF NOT EXISTS idx_lottery_created_at ON lottery_entries(created_at);
+
 -- 教师表（如果独立使用）
 CREATE TABLE IF NOT EXISTS instructors (
     id BINARY(16) PRIMARY KEY,
@@ -32,6 +32,7 @@ CREATE TABLE IF NOT EXISTS courses (
     description VARCHAR(1000),
     credits INT,
     location VARCHAR(200),
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_code (code),
     INDEX idx_instructor_id (instructor_id),
@@ -47,6 +48,8 @@ CREATE TABLE IF NOT EXISTS enrollments (
     enrolled_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(20) NOT NULL DEFAULT 'ENROLLED',
     grade DECIMAL(5,2),
+    waitlisted_at TIMESTAMP NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     UNIQUE KEY uk_course_student (course_id, student_id),
     INDEX idx_course_id (course_id),
     INDEX idx_student_id (student_id),
@@ -54,6 +57,17 @@ CREATE TABLE IF NOT EXISTS enrollments (
     INDEX idx_course_student (course_id, student_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 抽签登记表（只追加写入）
+CREATE TABLE IF NOT EXISTS lottery_entries (
+    id BINARY(16) PRIMARY KEY,
+    course_id VARCHAR(255) NOT NULL,
+    student_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_lottery_course_id (course_id),
+    INDEX idx_lottery_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 教师表（如果独立使用）
 CREATE TABLE IF NOT EXISTS instructors (
     id BINARY(16) PRIMARY KEY,
@@ -0,0 +1,27 @@
+-- 升级脚本 001：候补队列（MySQL）
+-- 适用于在加入候补功能之前创建的数据库；全新初始化的数据库已包含以下结构，无需执行
+
+-- 加入候补队列的时间，候补按此排序
+ALTER TABLE enrollments
+    ADD COLUMN waitlisted_at TIMESTAMP NULL AFTER grade;
+
+-- 使用 db/init/campus_course_selection_system.sql 建库时 enrollments 带有 chk_status 约束，需放开 WAITLISTED 状态；
+-- 使用 db/schema.sql 建库时没有该约束，以下语句不做任何修改
+SET @has_chk_status = (
+    SELECT COUNT(*) FROM information_schema.TABLE_CONSTRAINTS
+    WHERE CONSTRAINT_SCHEMA = DATABASE()
+      AND TABLE_NAME = 'enrollments'
+      AND CONSTRAINT_NAME = 'chk_status'
+      AND CONSTRAINT_TYPE = 'CHECK');
+
+SET @sql = IF(@has_chk_status > 0, 'ALTER TABLE enrollments DROP CHECK chk_status', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF(@has_chk_status > 0,
+    'ALTER TABLE enrollments ADD CONSTRAINT chk_status CHECK (status IN (''ENROLLED'', ''WITHDRAWN'', ''COMPLETED'', ''FAILED'', ''WAITLISTED''))',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,8 @@
+-- 升级脚本 002：乐观锁版本号（MySQL）
+-- 适用于在加入乐观锁之前创建的数据库；已有记录的版本号从 0 开始
+
+ALTER TABLE courses
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE enrollments
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- 升级脚本 003：抽签登记表（MySQL）
+-- 适用于在加入抽签选课之前创建的数据库
+
+CREATE TABLE IF NOT EXISTS lottery_entries (
+    id BINARY(16) PRIMARY KEY,
+    course_id VARCHAR(255) NOT NULL,
+    student_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_lottery_course_id (course_id),
+    INDEX idx_lottery_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
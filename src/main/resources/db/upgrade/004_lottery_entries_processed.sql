@@ -0,0 +1,5 @@
+-- 升级脚本 004：抽签登记分配状态（MySQL）
+-- 记录登记的分配处理时间，重启或重复执行分配时跳过已处理的登记
+
+ALTER TABLE lottery_entries
+    ADD COLUMN processed_at TIMESTAMP NULL;
@@ -0,0 +1,100 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 冲突重试切面测试
+ * 验证开启 retryOnDuplicateKey 时只重试唯一约束冲突，其他完整性错误直接抛出
+ */
+class ConflictRetryAspectTest {
+
+	private final ConflictRetryAspect aspect = new ConflictRetryAspect(4, 1, 2);
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	@Test
+	void duplicateKeyIsRecognisedBySqlState() {
+		assertTrue(ConflictRetryAspect.isDuplicateKey(violation("23505", 23505)));
+		assertTrue(ConflictRetryAspect.isDuplicateKey(violation("23000", 1062)));
+		assertFalse(ConflictRetryAspect.isDuplicateKey(violation("23000", 1048)));
+		assertFalse(ConflictRetryAspect.isDuplicateKey(violation("23502", 23502)));
+	}
+
+	@Test
+	void duplicateKeyIsRecognisedByConstraintKind() {
+		SQLException sqlException = new SQLException("duplicate", "HY000", 0);
+		ConstraintViolationException unique = new ConstraintViolationException("duplicate", sqlException,
+				ConstraintViolationException.ConstraintKind.UNIQUE, "uk_enrollment_course_student");
+		ConstraintViolationException other = new ConstraintViolationException("check", sqlException,
+				ConstraintViolationException.ConstraintKind.OTHER, "ck_course_capacity");
+
+		assertTrue(ConflictRetryAspect.isDuplicateKey(new DataIntegrityViolationException("duplicate", unique)));
+		assertFalse(ConflictRetryAspect.isDuplicateKey(new DataIntegrityViolationException("check", other)));
+	}
+
+	@Test
+	void duplicateKeyIsRetried() throws Throwable {
+		ProceedingJoinPoint joinPoint = joinPoint(() -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw violation("23505", 23505);
+			}
+			return "ok";
+		});
+
+		assertEquals("ok", aspect.retryOnConflict(joinPoint, retryOnDuplicateKey()));
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	void otherIntegrityViolationIsNotRetried() throws Throwable {
+		DataIntegrityViolationException notNull = violation("23502", 23502);
+		ProceedingJoinPoint joinPoint = joinPoint(() -> {
+			attempts.incrementAndGet();
+			throw notNull;
+		});
+
+		assertSame(notNull, assertThrows(DataIntegrityViolationException.class,
+				() -> aspect.retryOnConflict(joinPoint, retryOnDuplicateKey())));
+		assertEquals(1, attempts.get());
+	}
+
+	private static DataIntegrityViolationException violation(String sqlState, int errorCode) {
+		return new DataIntegrityViolationException("constraint violation",
+				new SQLException("constraint violation", sqlState, errorCode));
+	}
+
+	private static RetryOnConflict retryOnDuplicateKey() {
+		RetryOnConflict annotation = mock(RetryOnConflict.class);
+		when(annotation.retryOnDuplicateKey()).thenReturn(true);
+		return annotation;
+	}
+
+	private static ProceedingJoinPoint joinPoint(Body body) throws Throwable {
+		Signature signature = mock(Signature.class);
+		when(signature.getDeclaringType()).thenReturn(ConflictRetryAspectTest.class);
+		when(signature.getName()).thenReturn("enroll");
+		ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+		when(joinPoint.getSignature()).thenReturn(signature);
+		when(joinPoint.proceed()).thenAnswer(invocation -> body.run());
+		return joinPoint;
+	}
+
+	@FunctionalInterface
+	private interface Body {
+		Object run() throws Throwable;
+	}
+}
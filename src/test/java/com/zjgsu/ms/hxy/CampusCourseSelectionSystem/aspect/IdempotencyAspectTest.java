@@ -0,0 +1,186 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.aspect;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 幂等切面测试
+ * 验证相同幂等键重放第一次的响应、参数不同时返回 422、第一次请求处理中时重复请求等待其结果，以及 5xx 和结果未知的响应不保存
+ */
+class IdempotencyAspectTest {
+
+	private IdempotencyAspect aspect;
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		aspect = new IdempotencyAspect(new ObjectMapper(), true, 60, 100, 5000);
+	}
+
+	@AfterEach
+	void resetRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void repeatedKeyReplaysFirstResponse() throws Throwable {
+		bindRequest("key-1");
+		ProceedingJoinPoint joinPoint = joinPoint(new Object[]{"course", "student"},
+				() -> ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", executions.incrementAndGet())));
+
+		ResponseEntity<?> first = (ResponseEntity<?>) aspect.handleIdempotencyKey(joinPoint, null);
+		ResponseEntity<?> second = (ResponseEntity<?>) aspect.handleIdempotencyKey(joinPoint, null);
+
+		assertEquals(1, executions.get());
+		assertEquals(HttpStatus.CREATED, second.getStatusCode());
+		assertEquals(first.getBody(), second.getBody());
+		assertNull(first.getHeaders().getFirst(IdempotencyAspect.REPLAYED_HEADER));
+		assertEquals("true", second.getHeaders().getFirst(IdempotencyAspect.REPLAYED_HEADER));
+	}
+
+	@Test
+	void sameKeyWithDifferentArgumentsIsRejected() throws Throwable {
+		bindRequest("key-1");
+		aspect.handleIdempotencyKey(joinPoint(new Object[]{"course-a"}, this::ok), null);
+
+		ResponseEntity<?> response = (ResponseEntity<?>) aspect.handleIdempotencyKey(
+				joinPoint(new Object[]{"course-b"}, this::ok), null);
+
+		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	void duplicateWaitsForInFlightRequest() throws Throwable {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ProceedingJoinPoint joinPoint = joinPoint(new Object[]{"course"}, () -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return ok();
+		});
+
+		CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> {
+			bindRequest("key-1");
+			try {
+				return aspect.handleIdempotencyKey(joinPoint, null);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> {
+			bindRequest("key-1");
+			try {
+				return aspect.handleIdempotencyKey(joinPoint, null);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		});
+		while (((Number) aspect.getMetrics().get("waitedForInFlight")).longValue() == 0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		ResponseEntity<?> replayed = (ResponseEntity<?>) second.get(5, TimeUnit.SECONDS);
+		assertEquals(HttpStatus.OK, replayed.getStatusCode());
+		assertEquals(((ResponseEntity<?>) first.get(5, TimeUnit.SECONDS)).getBody(), replayed.getBody());
+		assertEquals(1, executions.get());
+	}
+
+	@Test
+	void serverErrorIsNotStored() throws Throwable {
+		bindRequest("key-1");
+		ProceedingJoinPoint joinPoint = joinPoint(new Object[]{"course"}, () -> {
+			executions.incrementAndGet();
+			return ResponseEntity.internalServerError().build();
+		});
+
+		aspect.handleIdempotencyKey(joinPoint, null);
+		aspect.handleIdempotencyKey(joinPoint, null);
+
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void outcomeUnknownResponseIsNotStored() throws Throwable {
+		ProceedingJoinPoint joinPoint = joinPoint(new Object[]{"course"}, () -> {
+			executions.incrementAndGet();
+			IdempotencyAspect.markOutcomeUnknown();
+			return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+		});
+
+		bindRequest("key-1");
+		aspect.handleIdempotencyKey(joinPoint, null);
+		bindRequest("key-1");
+		ResponseEntity<?> retried = (ResponseEntity<?>) aspect.handleIdempotencyKey(joinPoint, null);
+
+		assertEquals(2, executions.get());
+		assertNull(retried.getHeaders().getFirst(IdempotencyAspect.REPLAYED_HEADER));
+	}
+
+	@Test
+	void acceptedResponseIsReplayed() throws Throwable {
+		ProceedingJoinPoint joinPoint = joinPoint(new Object[]{"course"}, () -> ResponseEntity.status(HttpStatus.ACCEPTED)
+				.body(Map.of("ticket", executions.incrementAndGet())));
+
+		bindRequest("key-1");
+		aspect.handleIdempotencyKey(joinPoint, null);
+		bindRequest("key-1");
+		ResponseEntity<?> replayed = (ResponseEntity<?>) aspect.handleIdempotencyKey(joinPoint, null);
+
+		assertEquals(1, executions.get());
+		assertEquals("true", replayed.getHeaders().getFirst(IdempotencyAspect.REPLAYED_HEADER));
+	}
+
+	private ResponseEntity<Map<String, Object>> ok() {
+		return ResponseEntity.ok(Map.of("execution", executions.incrementAndGet()));
+	}
+
+	private static ProceedingJoinPoint joinPoint(Object[] args, Body body) throws Throwable {
+		ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+		when(joinPoint.getArgs()).thenReturn(args);
+		when(joinPoint.proceed()).thenAnswer(invocation -> body.run());
+		return joinPoint;
+	}
+
+	private static void bindRequest(String key) {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request(key)));
+	}
+
+	private static MockHttpServletRequest request(String key) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/enrollments");
+		request.addHeader(IdempotencyAspect.KEY_HEADER, key);
+		return request;
+	}
+
+	@FunctionalInterface
+	private interface Body {
+		Object run() throws Throwable;
+	}
+}
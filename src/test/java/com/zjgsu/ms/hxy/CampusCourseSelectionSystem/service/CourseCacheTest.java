@@ -0,0 +1,78 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 课程缓存测试
+ * 验证加载后按ID和课程编号命中、加载期间发生失效时不写回旧数据，以及事务中的失效在提交后生效
+ */
+class CourseCacheTest {
+
+	private final CourseCache cache = new CourseCache(true, 100, 60);
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void loadedCourseIsServedByIdAndCode() {
+		Course course = course();
+
+		cache.load(course.getId(), id -> Optional.of(course));
+
+		assertEquals(course, cache.get(course.getId()).orElseThrow());
+		assertEquals(course, cache.getByCode("CACHE101").orElseThrow());
+	}
+
+	@Test
+	void invalidationDuringLoadPreventsStaleWriteBack() {
+		Course stale = course();
+
+		cache.load(stale.getId(), id -> {
+			// 加载读到旧数据后、写回缓存前，课程被修改并失效
+			cache.invalidate(id);
+			return Optional.of(stale);
+		});
+
+		assertFalse(cache.get(stale.getId()).isPresent());
+
+		cache.load(stale.getId(), id -> Optional.of(stale));
+		assertTrue(cache.get(stale.getId()).isPresent());
+	}
+
+	@Test
+	void invalidationInsideTransactionAppliesAfterCommit() {
+		Course course = course();
+		cache.load(course.getId(), id -> Optional.of(course));
+
+		TransactionSynchronizationManager.initSynchronization();
+		cache.invalidate(course.getId());
+		assertTrue(cache.get(course.getId()).isPresent());
+
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCommit();
+		}
+		assertFalse(cache.get(course.getId()).isPresent());
+		assertFalse(cache.getByCode("CACHE101").isPresent());
+	}
+
+	private static Course course() {
+		Course course = new Course("CACHE101", "缓存测试", "I-1", "S-1", 30);
+		course.setId(UUID.randomUUID());
+		return course;
+	}
+}
@@ -0,0 +1,81 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.exception.CourseCommandTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 课程通道执行器测试
+ * 验证等待超时时未开始的命令被取消、已开始的命令报告处理中，以及同一UUID的不同大小写写法落在同一通道
+ */
+class CourseCommandExecutorTest {
+
+	private CourseCommandExecutor executor;
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		executor.shutdown();
+	}
+
+	@Test
+	void timedOutCommandThatHasNotStartedIsCancelled() throws Exception {
+		executor = new CourseCommandExecutor(1, 10, 100);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Object> blocker = executor.submit("A", () -> await(release));
+
+		AtomicBoolean ran = new AtomicBoolean();
+		CourseCommandTimeoutException e = assertThrows(CourseCommandTimeoutException.class,
+				() -> executor.execute("A", () -> ran.getAndSet(true)));
+		assertFalse(e.isStarted());
+
+		release.countDown();
+		blocker.get(1, TimeUnit.SECONDS);
+		// 通道空闲后被取消的命令也不会执行
+		executor.execute("A", () -> true);
+		assertFalse(ran.get());
+	}
+
+	@Test
+	void timedOutCommandThatIsRunningReportsInProgress() {
+		executor = new CourseCommandExecutor(1, 10, 100);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			CourseCommandTimeoutException e = assertThrows(CourseCommandTimeoutException.class,
+					() -> executor.execute("A", () -> await(release)));
+			assertTrue(e.isStarted());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void uuidSpellingsShareOneLane() {
+		executor = new CourseCommandExecutor(64, 10, 1000);
+		String id = UUID.randomUUID().toString();
+		// 同一通道内的嵌套命令直接执行；落在不同通道时需要跨线程等待，结果仍相同但线程名不同
+		String[] threads = executor.execute(id.toUpperCase(),
+				() -> new String[]{Thread.currentThread().getName(),
+						executor.execute(id, () -> Thread.currentThread().getName())});
+		assertEquals(threads[0], threads[1]);
+	}
+
+	private static Object await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,80 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 课程搜索索引测试
+ * 验证命中按字段、完全相同、开头匹配、字段长度排序，结果条数受上限约束，以及索引构建前返回空由调用方回退
+ */
+class CourseSearchIndexTest {
+
+	private final CourseRepository courseRepository = mock(CourseRepository.class);
+
+	@Test
+	void ranksByFieldThenExactThenPrefixThenLength() {
+		Course description = course("CS900", "编译原理", "涉及数据库的存储");
+		Course code = course("DB101", "课程甲", null);
+		Course contains = course("CS300", "分布式数据库", null);
+		Course prefixLong = course("CS200", "数据库系统原理", null);
+		Course prefixShort = course("CS201", "数据库系统", null);
+		Course exact = course("CS100", "数据库", null);
+		CourseSearchIndex index = build(10, description, code, contains, prefixLong, prefixShort, exact);
+
+		assertEquals(ids(exact, prefixShort, prefixLong, contains, description),
+				index.search("数据库").orElseThrow());
+		assertEquals(ids(code), index.search("db1").orElseThrow());
+	}
+
+	@Test
+	void resultsAreCappedAfterRanking() {
+		List<Course> courses = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			courses.add(course("C" + i, "课程" + "长".repeat(i), null));
+		}
+		CourseSearchIndex index = build(5, courses.toArray(new Course[0]));
+
+		List<UUID> hits = index.search("课").orElseThrow();
+
+		assertEquals(5, hits.size());
+		assertEquals(ids(courses.subList(0, 5).toArray(new Course[0])), hits);
+	}
+
+	@Test
+	void emptyUntilBuilt() {
+		CourseSearchIndex index = new CourseSearchIndex(courseRepository, true, 10);
+		assertTrue(index.search("数据库").isEmpty());
+	}
+
+	private CourseSearchIndex build(int maxResults, Course... courses) {
+		when(courseRepository.findAll()).thenReturn(List.of(courses));
+		CourseSearchIndex index = new CourseSearchIndex(courseRepository, true, maxResults);
+		index.rebuild();
+		return index;
+	}
+
+	private static Course course(String code, String title, String description) {
+		Course course = new Course(code, title, "I-1", "S-1", 30);
+		course.setId(UUID.randomUUID());
+		course.setDescription(description);
+		return course;
+	}
+
+	private static List<UUID> ids(Course... courses) {
+		List<UUID> ids = new ArrayList<>();
+		for (Course course : courses) {
+			ids.add(course.getId());
+		}
+		return ids;
+	}
+}
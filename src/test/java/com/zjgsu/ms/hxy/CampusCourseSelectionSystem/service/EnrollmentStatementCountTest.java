@@ -0,0 +1,122 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 选课语句数基准测试
+ * 通过 Hibernate 统计信息验证每次成功选课执行的 SQL 条数：
+ * 默认配置下为上下文加载查询、条件占座 UPDATE 和选课记录插入三条；启用座位台账时省去占座 UPDATE，只有两条
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		// 测量期间不让台账回写产生额外语句
+		"campus.seat-ledger.flush-interval-ms=3600000"
+})
+class EnrollmentStatementCountTest {
+
+	private static final int ENROLLMENTS = 20;
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Test
+	void enrollCourseExecutesThreeStatementsByDefault() {
+		assertStatementCounts(context, "BENCH101", 3, 2);
+	}
+
+	@Test
+	void reenrollAfterWithdrawalUpdatesInPlace() {
+		EnrollmentService enrollmentService = context.getBean(EnrollmentService.class);
+		Course course = context.getBean(CourseService.class)
+				.createCourse(new Course("BENCH102", "退课后重选语句数", "I-BENCH", "S-BENCH", 1));
+		String courseId = course.getId().toString();
+		String studentId = createStudents(context, "REBENCH", 1).get(0);
+		enrollmentService.enrollCourse(courseId, studentId);
+		enrollmentService.withdrawCourse(courseId, studentId);
+
+		// 上下文加载查询、条件占座 UPDATE、恢复已退课记录的 UPDATE，不加载也不合并实体
+		Statistics statistics = statistics(context);
+		statistics.clear();
+		Enrollment enrollment = enrollmentService.enrollCourse(courseId, studentId);
+		assertEquals(3L, statistics.getPrepareStatementCount());
+		assertEquals(EnrollmentStatus.ENROLLED, enrollment.getStatus());
+		assertEquals(enrollment.getVersion(), context.getBean(EnrollmentRepository.class)
+				.findById(enrollment.getId()).orElseThrow().getVersion());
+	}
+
+	/**
+	 * 启用座位台账：准入由内存计数判断，成功选课只有上下文加载查询和插入两条语句
+	 * 嵌套测试的外层实例由外层上下文注入，这里使用本类自己的上下文
+	 */
+	@Nested
+	@TestPropertySource(properties = "campus.seat-ledger.enabled=true")
+	class WithSeatLedger {
+
+		@Autowired
+		private ApplicationContext ledgerContext;
+
+		@Test
+		void enrollCourseExecutesTwoStatements() {
+			assertStatementCounts(ledgerContext, "BENCH201", 2, 1);
+		}
+	}
+
+	/**
+	 * 为一门新课程选满 ENROLLMENTS 名学生，再让一名学生选已满的课程，校验两种情况下的语句数
+	 */
+	private static void assertStatementCounts(ApplicationContext context, String code, long perEnrollment, long whenFull) {
+		EnrollmentService enrollmentService = context.getBean(EnrollmentService.class);
+		Course course = context.getBean(CourseService.class)
+				.createCourse(new Course(code, "选课语句数基准", "I-BENCH", "S-BENCH", ENROLLMENTS));
+		String courseId = course.getId().toString();
+		List<String> studentIds = createStudents(context, code, ENROLLMENTS + 1);
+
+		Statistics statistics = statistics(context);
+		statistics.clear();
+		for (int i = 0; i < ENROLLMENTS; i++) {
+			enrollmentService.enrollCourse(courseId, studentIds.get(i));
+		}
+		assertEquals(perEnrollment * ENROLLMENTS, statistics.getPrepareStatementCount());
+
+		// 课程已满：不会执行插入
+		statistics.clear();
+		assertThrows(IllegalArgumentException.class,
+				() -> enrollmentService.enrollCourse(courseId, studentIds.get(ENROLLMENTS)));
+		assertEquals(whenFull, statistics.getPrepareStatementCount());
+	}
+
+	private static List<String> createStudents(ApplicationContext context, String prefix, int count) {
+		StudentRepository studentRepository = context.getBean(StudentRepository.class);
+		List<String> studentIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Student student = studentRepository.save(new Student(prefix + "S" + i, "基准学生" + i, "计算机科学", 2024,
+					prefix.toLowerCase() + i + "@example.com"));
+			studentIds.add(student.getId().toString());
+		}
+		return studentIds;
+	}
+
+	private static Statistics statistics(ApplicationContext context) {
+		return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+	}
+}
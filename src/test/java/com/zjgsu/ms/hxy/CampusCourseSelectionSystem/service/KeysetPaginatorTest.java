@@ -0,0 +1,83 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 游标分页测试
+ * 验证游标往返后按主键连续翻页、每页条数的默认值和上限，以及无效游标和条数被拒绝
+ */
+class KeysetPaginatorTest {
+
+	private final KeysetPaginator paginator = new KeysetPaginator(10, 20);
+	private final List<UUID> ids = sortedIds(25);
+
+	@Test
+	void cursorRoundTripWalksEveryRowOnce() {
+		List<UUID> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			CursorPage<UUID> page = page(cursor, null);
+			seen.addAll(page.getItems());
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(3, pages);
+		assertEquals(ids, seen);
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		CursorPage<UUID> page = page(null, 25);
+
+		assertEquals(20, page.getLimit());
+		assertTrue(page.isHasMore());
+
+		CursorPage<UUID> last = page(page.getNextCursor(), 25);
+		assertEquals(ids.subList(20, 25), last.getItems());
+		assertFalse(last.isHasMore());
+		assertNull(last.getNextCursor());
+	}
+
+	@Test
+	void rejectsInvalidCursorsAndLimits() {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		byte[] wrongVersion = new byte[17];
+		wrongVersion[0] = 2;
+
+		assertThrows(IllegalArgumentException.class, () -> page("not a cursor!", null));
+		assertThrows(IllegalArgumentException.class, () -> page(encoder.encodeToString(new byte[16]), null));
+		assertThrows(IllegalArgumentException.class, () -> page(encoder.encodeToString(wrongVersion), null));
+		assertThrows(IllegalArgumentException.class, () -> page(null, 0));
+	}
+
+	private CursorPage<UUID> page(String after, Integer limit) {
+		return paginator.page(after, limit,
+				fetch -> ids.stream().limit(fetch.max()).toList(),
+				(afterId, fetch) -> ids.stream().filter(id -> id.compareTo(afterId) > 0).limit(fetch.max()).toList(),
+				Function.identity());
+	}
+
+	private static List<UUID> sortedIds(int count) {
+		List<UUID> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(UUID.randomUUID());
+		}
+		ids.sort(null);
+		return ids;
+	}
+}
@@ -0,0 +1,240 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.dto.LotteryAllocationResult;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Enrollment;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.EnrollmentStatus;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.LotteryEntry;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Student;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.LotteryEntryRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 抽签选课测试
+ * 仓库以内存数据模拟，验证中签人数不超过课程容量、按年级加权的偏向、重复执行不重复分配，
+ * 以及登记截止后由定时检查触发且只触发一次分配
+ */
+class LotteryServiceTest {
+
+	private final List<LotteryEntry> entries = new ArrayList<>();
+	private final List<Enrollment> enrollments = new ArrayList<>();
+	private final Map<UUID, Course> courses = new HashMap<>();
+	private final Map<UUID, Student> students = new HashMap<>();
+
+	private LotteryEntryRepository lotteryEntryRepository;
+	private EnrollmentRepository enrollmentRepository;
+	private StudentRepository studentRepository;
+	private CourseRepository courseRepository;
+	private WaitlistService waitlistService;
+
+	@BeforeEach
+	void setUp() {
+		lotteryEntryRepository = mock(LotteryEntryRepository.class);
+		when(lotteryEntryRepository.findByCreatedAtBetweenAndProcessedAtIsNullOrderByCreatedAtAsc(any(), any()))
+				.thenAnswer(invocation -> entries.stream().filter(entry -> entry.getProcessedAt() == null).toList());
+		when(lotteryEntryRepository.markProcessed(anyCollection(), any())).thenAnswer(invocation -> {
+			Collection<UUID> ids = invocation.getArgument(0);
+			int marked = 0;
+			for (LotteryEntry entry : entries) {
+				if (ids.contains(entry.getId()) && entry.getProcessedAt() == null) {
+					entry.setProcessedAt(invocation.getArgument(1));
+					marked++;
+				}
+			}
+			return marked;
+		});
+
+		enrollmentRepository = mock(EnrollmentRepository.class);
+		when(enrollmentRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+			List<Enrollment> rows = new ArrayList<>();
+			invocation.<Iterable<Enrollment>>getArgument(0).forEach(rows::add);
+			enrollments.addAll(rows);
+			return rows;
+		});
+		when(enrollmentRepository.findByCourseIdIn(anyCollection())).thenAnswer(invocation -> {
+			Collection<String> courseIds = invocation.getArgument(0);
+			return enrollments.stream().filter(enrollment -> courseIds.contains(enrollment.getCourseId())).toList();
+		});
+
+		studentRepository = mock(StudentRepository.class);
+		when(studentRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			List<Student> found = new ArrayList<>();
+			invocation.<Iterable<UUID>>getArgument(0).forEach(id -> Optional.ofNullable(students.get(id)).ifPresent(found::add));
+			return found;
+		});
+
+		courseRepository = mock(CourseRepository.class);
+		when(courseRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			List<Course> found = new ArrayList<>();
+			invocation.<Iterable<UUID>>getArgument(0).forEach(id -> Optional.ofNullable(courses.get(id)).ifPresent(found::add));
+			return found;
+		});
+		when(courseRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(courses.get(invocation.<UUID>getArgument(0))));
+		when(courseRepository.reserveSeats(any(), anyInt())).thenAnswer(invocation -> {
+			Course course = courses.get(invocation.<UUID>getArgument(0));
+			int count = invocation.getArgument(1);
+			if (course.getEnrolled() + count > course.getCapacity()) {
+				return 0;
+			}
+			course.setEnrolled(course.getEnrolled() + count);
+			return 1;
+		});
+
+		waitlistService = mock(WaitlistService.class);
+	}
+
+	@Test
+	void enrolledSeatsAreBoundedByCapacity() {
+		Course course = course(2);
+		for (int i = 0; i < 5; i++) {
+			enter(course, student(LocalDateTime.now().getYear()));
+		}
+
+		LotteryAllocationResult result = closedService(false).allocate();
+
+		assertEquals(5, result.getEntries());
+		assertEquals(2, result.getEnrolled());
+		assertEquals(3, result.getWaitlisted());
+		assertEquals(2, course.getEnrolled());
+		assertEquals(2, enrollments.stream().filter(row -> row.getStatus() == EnrollmentStatus.ENROLLED).count());
+		// 候补时间按抽签名次递增
+		List<Enrollment> waitlisted = enrollments.stream()
+				.filter(row -> row.getStatus() == EnrollmentStatus.WAITLISTED).toList();
+		assertEquals(3, waitlisted.size());
+		for (int i = 1; i < waitlisted.size(); i++) {
+			assertTrue(waitlisted.get(i - 1).getWaitlistedAt().isBefore(waitlisted.get(i).getWaitlistedAt()));
+		}
+		verify(waitlistService, times(3)).enqueue(any());
+		assertTrue(entries.stream().allMatch(entry -> entry.getProcessedAt() != null));
+	}
+
+	@Test
+	void rerunDoesNotAllocateTwice() {
+		Course course = course(1);
+		Student first = student(LocalDateTime.now().getYear());
+		Student second = student(LocalDateTime.now().getYear());
+		enter(course, first);
+		enter(course, second);
+		LotteryService service = closedService(false);
+		service.allocate();
+		assertEquals(2, enrollments.size());
+
+		// 已处理的登记不再读取；已有选课记录的学生再次登记也被跳过
+		LotteryAllocationResult rerun = service.allocate();
+		assertEquals(0, rerun.getEntries());
+		enter(course, first);
+		rerun = service.allocate();
+
+		assertEquals(1, rerun.getEntries());
+		assertEquals(1, rerun.getSkipped());
+		assertEquals(0, rerun.getEnrolled());
+		assertEquals(0, rerun.getWaitlisted());
+		assertEquals(2, enrollments.size());
+		assertEquals(1, course.getEnrolled());
+	}
+
+	@Test
+	void gradeWeightingFavoursSeniorStudents() {
+		int year = LocalDateTime.now().getYear();
+		int draws = 400;
+		Map<String, Student> seniors = new HashMap<>();
+		for (int i = 0; i < draws; i++) {
+			Course course = course(1);
+			// 入学早六年的学生权重为7，新生权重为1，期望中签率 7/8
+			Student senior = student(year - 6);
+			seniors.put(course.getId().toString(), senior);
+			enter(course, senior);
+			enter(course, student(year));
+		}
+
+		LotteryAllocationResult result = closedService(true).allocate();
+
+		assertEquals(draws, result.getEnrolled());
+		long seniorWins = enrollments.stream()
+				.filter(row -> row.getStatus() == EnrollmentStatus.ENROLLED)
+				.filter(row -> row.getStudentId().equals(seniors.get(row.getCourseId()).getId().toString()))
+				.count();
+		assertTrue(seniorWins > draws * 3 / 4, "高年级中签次数: " + seniorWins);
+	}
+
+	@Test
+	void closingWindowTriggersAllocationOnce() {
+		Course course = course(1);
+		enter(course, student(LocalDateTime.now().getYear()));
+
+		LotteryService open = service(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1), false);
+		open.allocateWhenClosed();
+		verify(lotteryEntryRepository, never()).findByCreatedAtBetweenAndProcessedAtIsNullOrderByCreatedAtAsc(any(), any());
+		assertTrue(open.isCollecting());
+		assertTrue(open.blocksDirectEnrollment());
+
+		LotteryService closed = closedService(false);
+		assertTrue(closed.blocksDirectEnrollment());
+		closed.allocateWhenClosed();
+		closed.allocateWhenClosed();
+
+		verify(lotteryEntryRepository, times(1)).findByCreatedAtBetweenAndProcessedAtIsNullOrderByCreatedAtAsc(any(), any());
+		assertEquals(1, course.getEnrolled());
+		assertFalse(closed.blocksDirectEnrollment());
+	}
+
+	private LotteryService closedService(boolean gradeWeighted) {
+		return service(LocalDateTime.now().minusHours(2), LocalDateTime.now().minusHours(1), gradeWeighted);
+	}
+
+	private LotteryService service(LocalDateTime windowStart, LocalDateTime windowEnd, boolean gradeWeighted) {
+		SeatLedger seatLedger = mock(SeatLedger.class);
+		return new LotteryService(lotteryEntryRepository, enrollmentRepository, studentRepository, courseRepository,
+				seatLedger, mock(CourseCache.class), waitlistService, mock(StudentEnrollmentCache.class),
+				mock(PlatformTransactionManager.class), true, windowStart.toString(), windowEnd.toString(),
+				gradeWeighted, 1);
+	}
+
+	private Course course(int capacity) {
+		Course course = new Course("LOT" + courses.size(), "抽签课程", "I-LOT", "S-LOT", capacity);
+		course.setId(UUID.randomUUID());
+		courses.put(course.getId(), course);
+		return course;
+	}
+
+	private Student student(int grade) {
+		Student student = new Student("LOTS" + students.size(), "抽签学生", "计算机科学", grade,
+				"lottery" + students.size() + "@example.com");
+		student.setId(UUID.randomUUID());
+		students.put(student.getId(), student);
+		return student;
+	}
+
+	private void enter(Course course, Student student) {
+		LotteryEntry entry = new LotteryEntry(course.getId().toString(), student.getId().toString());
+		entry.setId(UUID.randomUUID());
+		entries.add(entry);
+	}
+}
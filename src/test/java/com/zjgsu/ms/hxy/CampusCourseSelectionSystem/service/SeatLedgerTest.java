@@ -0,0 +1,197 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.model.Course;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.CourseRepository;
+import com.zjgsu.ms.hxy.CampusCourseSelectionSystem.repository.EnrollmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 座位台账测试
+ * 验证事务提交、回滚后的座位计数与回写增量，以及对账修正不覆盖并发占座
+ */
+class SeatLedgerTest {
+
+	private CourseRepository courseRepository;
+	private EnrollmentRepository enrollmentRepository;
+	private SeatLedger ledger;
+
+	@BeforeEach
+	void setUp() {
+		courseRepository = mock(CourseRepository.class);
+		enrollmentRepository = mock(EnrollmentRepository.class);
+		ledger = new SeatLedger(courseRepository, enrollmentRepository, mock(CourseCache.class),
+				mock(PlatformTransactionManager.class), true);
+	}
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void committedAcquireIsFlushedAsDelta() {
+		UUID id = hydrate(course(2, 0));
+
+		completeTransaction(() -> assertTrue(ledger.tryAcquire(id)), TransactionSynchronization.STATUS_COMMITTED);
+		assertEquals(1, ledger.remaining(id));
+
+		ledger.flush();
+		verify(courseRepository).adjustEnrolled(id, 1);
+	}
+
+	@Test
+	void rolledBackAcquireReturnsSeat() {
+		UUID id = hydrate(course(1, 0));
+
+		completeTransaction(() -> assertTrue(ledger.tryAcquire(id)), TransactionSynchronization.STATUS_ROLLED_BACK);
+		assertEquals(1, ledger.remaining(id));
+
+		ledger.flush();
+		verify(courseRepository, never()).adjustEnrolled(any(), anyInt());
+	}
+
+	@Test
+	void acquireFailsWhenFull() {
+		UUID id = hydrate(course(1, 1));
+		assertFalse(ledger.tryAcquire(id));
+	}
+
+	@Test
+	void releaseAlwaysRecordsDelta() {
+		// 剩余座位已等于容量（计数偏差）时，退课仍需减少已选人数
+		UUID id = hydrate(course(1, 0));
+
+		assertTrue(ledger.release(id));
+		assertEquals(1, ledger.remaining(id));
+
+		ledger.flush();
+		verify(courseRepository).adjustEnrolled(id, -1);
+	}
+
+	@Test
+	void flushFailureOnlyRetriesThatCourse() {
+		UUID failing = UUID.randomUUID();
+		UUID healthy = UUID.randomUUID();
+		Course failingCourse = course(5, 0);
+		failingCourse.setId(failing);
+		Course healthyCourse = course(5, 0);
+		healthyCourse.setId(healthy);
+		when(courseRepository.findAll()).thenReturn(List.of(failingCourse, healthyCourse));
+		ledger.hydrate();
+		when(courseRepository.adjustEnrolled(failing, 1)).thenThrow(new IllegalStateException("chk_enrolled"));
+
+		ledger.tryAcquire(failing);
+		ledger.tryAcquire(healthy);
+		ledger.flush();
+		verify(courseRepository).adjustEnrolled(healthy, 1);
+
+		ledger.flush();
+		verify(courseRepository, times(2)).adjustEnrolled(failing, 1);
+		verify(courseRepository).adjustEnrolled(healthy, 1);
+	}
+
+	@Test
+	void reconcileAppliesCorrectionAsDelta() {
+		UUID id = hydrate(course(10, 3));
+		when(enrollmentRepository.countByCourseIdAndStatusNotIn(anyString(), any())).thenReturn(5L);
+		// 回写对账结果期间有一次占座，修正后不能丢失
+		when(courseRepository.updateEnrolled(eq(id), anyInt())).thenAnswer(invocation -> {
+			assertTrue(ledger.tryAcquire(id));
+			return 1;
+		});
+
+		ledger.reconcile();
+
+		verify(courseRepository).updateEnrolled(id, 5);
+		assertEquals(4, ledger.remaining(id));
+	}
+
+	@Test
+	void reconcileSkipsCourseChangedDuringCount() {
+		UUID id = hydrate(course(2, 0));
+		// 统计选课记录期间有一次占座（尚未提交，记录数中没有它），本轮不能把这个座位还回去
+		when(enrollmentRepository.countByCourseIdAndStatusNotIn(anyString(), any())).thenAnswer(invocation -> {
+			TransactionSynchronizationManager.initSynchronization();
+			assertTrue(ledger.tryAcquire(id));
+			return 0L;
+		});
+
+		ledger.reconcile();
+
+		verify(courseRepository, never()).updateEnrolled(any(), anyInt());
+		assertEquals(1, ledger.remaining(id));
+	}
+
+	@Test
+	void refreshDuringFlushDoesNotCountDeltaTwice() {
+		UUID id = hydrate(course(2, 0));
+		assertTrue(ledger.tryAcquire(id));
+		// 回写事务提交前课程被修改：保存的课程上仍是回写前的已选人数
+		when(courseRepository.adjustEnrolled(id, 1)).thenAnswer(invocation -> {
+			ledger.refresh(course(id, 3, 0));
+			return 1;
+		});
+
+		ledger.flush();
+
+		assertEquals(2, ledger.remaining(id));
+		ledger.flush();
+		verify(courseRepository).adjustEnrolled(id, 1);
+	}
+
+	private UUID hydrate(Course course) {
+		UUID id = UUID.randomUUID();
+		course.setId(id);
+		when(courseRepository.findAll()).thenReturn(List.of(course));
+		ledger.hydrate();
+		return id;
+	}
+
+	private static Course course(UUID id, int capacity, int enrolled) {
+		Course course = course(capacity, enrolled);
+		course.setId(id);
+		return course;
+	}
+
+	private static Course course(int capacity, int enrolled) {
+		Course course = new Course("LEDGER", "台账测试", "I-1", "S-1", capacity);
+		course.setEnrolled(enrolled);
+		return course;
+	}
+
+	private static void completeTransaction(Runnable body, int status) {
+		TransactionSynchronizationManager.initSynchronization();
+		body.run();
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		for (TransactionSynchronization synchronization : synchronizations) {
+			if (status == TransactionSynchronization.STATUS_COMMITTED) {
+				synchronization.afterCommit();
+			}
+			synchronization.afterCompletion(status);
+		}
+	}
+}
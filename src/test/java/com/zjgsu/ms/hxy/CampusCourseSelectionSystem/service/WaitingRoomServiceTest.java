@@ -0,0 +1,128 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 虚拟等候室测试
+ * 验证令牌签名校验与篡改识别、排队号只能兑换一次，以及按延迟加性增、乘性减调整准入速率
+ */
+class WaitingRoomServiceTest {
+
+	@Test
+	void admissionTokenIsVerifiedBySignatureTypeAndExpiry() throws InterruptedException {
+		WaitingRoomService service = service("secret", 120, 50);
+		service.pump();
+		WaitingRoomService.Admission admission = service.enter(null);
+		assertTrue(admission.isAdmitted());
+		String token = admission.getAdmissionToken();
+		assertTrue(service.isAdmitted(token));
+
+		// 其他密钥签发的令牌、被改写的令牌和非令牌字符串都不能通过
+		assertFalse(service("other-secret", 120, 50).isAdmitted(token));
+		assertFalse(service.isAdmitted(tamper(token)));
+		assertFalse(service.isAdmitted(token.substring(0, token.length() - 2)));
+		assertFalse(service.isAdmitted("not-a-token"));
+		assertFalse(service.isAdmitted(null));
+
+		// 排队号令牌不能当作准入令牌使用
+		WaitingRoomService queued = service("secret", 120, 50);
+		String queueToken = queued.enter(null).getQueueToken();
+		assertFalse(queued.isAdmitted(queueToken));
+
+		// 过期的准入令牌失效
+		WaitingRoomService shortLived = service("secret", 0, 50);
+		shortLived.pump();
+		String expiring = shortLived.enter(null).getAdmissionToken();
+		TimeUnit.MILLISECONDS.sleep(5);
+		assertFalse(shortLived.isAdmitted(expiring));
+	}
+
+	@Test
+	void queueNumberIsRedeemedOnlyOnce() {
+		// 速率为每秒10人，每次补充只准入一个排队号
+		WaitingRoomService service = service("secret", 120, 10);
+		WaitingRoomService.Admission first = service.enter(null);
+		WaitingRoomService.Admission second = service.enter(null);
+		assertFalse(first.isAdmitted());
+		assertEquals(1, first.getPosition());
+		assertEquals(2, second.getPosition());
+
+		service.pump();
+		WaitingRoomService.Admission redeemed = service.enter(first.getQueueToken());
+		assertTrue(redeemed.isAdmitted());
+		assertTrue(service.isAdmitted(redeemed.getAdmissionToken()));
+
+		// 再次出示已兑换的排队号视为重新排队，排在尚未兑换的第二个排队号之后
+		WaitingRoomService.Admission replayed = service.enter(first.getQueueToken());
+		assertFalse(replayed.isAdmitted());
+		assertNull(replayed.getAdmissionToken());
+		assertEquals(2, replayed.getPosition());
+		assertEquals(1L, service.getMetrics().get("replayedQueueTokens"));
+
+		WaitingRoomService.Admission waiting = service.enter(second.getQueueToken());
+		assertFalse(waiting.isAdmitted());
+		assertEquals(1, waiting.getPosition());
+	}
+
+	@Test
+	void admissionRateDecreasesMultiplicativelyAndIncreasesAdditively() {
+		WaitingRoomService service = service("secret", 120, 100);
+
+		// 延迟超过目标 300 ms：速率乘以 0.75
+		service.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+		service.recordLatency(TimeUnit.MILLISECONDS.toNanos(700));
+		service.adjustRate();
+		assertEquals(75.0, rate(service));
+		assertEquals(600L, service.getMetrics().get("avgLatencyMillis"));
+
+		// 本周期没有样本：不调整
+		service.adjustRate();
+		assertEquals(75.0, rate(service));
+
+		// 延迟低于目标但无人排队：不调整
+		service.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+		service.adjustRate();
+		assertEquals(75.0, rate(service));
+
+		// 延迟低于目标且有人排队：速率加 5
+		assertFalse(service.enter(null).isAdmitted());
+		service.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+		service.adjustRate();
+		assertEquals(80.0, rate(service));
+
+		// 持续过载时速率不低于下限
+		for (int i = 0; i < 50; i++) {
+			service.recordLatency(TimeUnit.SECONDS.toNanos(1));
+			service.adjustRate();
+		}
+		assertEquals(5.0, rate(service));
+	}
+
+	private static WaitingRoomService service(String secret, long admissionTtlSeconds, double initialRate) {
+		return new WaitingRoomService(true, secret, admissionTtlSeconds, 1800, initialRate, 5, 500, 5, 0.5, 300);
+	}
+
+	private static double rate(WaitingRoomService service) {
+		return (double) service.getMetrics().get("admissionRatePerSecond");
+	}
+
+	/**
+	 * 保留原签名，把载荷中的过期时间改大
+	 */
+	private static String tamper(String token) {
+		int dot = token.indexOf('.');
+		String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+		String forged = payload.substring(0, payload.lastIndexOf(':') + 1) + Long.MAX_VALUE;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(forged.getBytes(StandardCharsets.UTF_8))
+				+ token.substring(dot);
+	}
+}
@@ -0,0 +1,86 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应并发限制测试
+ * 验证超过限制立即拒绝、延迟平稳且名额用满时放大限制、延迟上升或请求失败时收缩限制
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+	@Test
+	void rejectsBeyondLimitWithoutQueueing() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10);
+
+		assertEquals(1, limiter.tryAcquire());
+		assertEquals(2, limiter.tryAcquire());
+		assertEquals(-1, limiter.tryAcquire());
+
+		limiter.onIgnored();
+		assertEquals(2, limiter.tryAcquire());
+		assertEquals(2, limiter.getLimit());
+	}
+
+	@Test
+	void growsWhileLatencyStaysFlatAndLimitIsUsed() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 100);
+
+		complete(limiter, 50, FAST, 10);
+
+		assertTrue(limiter.getLimit() > 10, "limit=" + limiter.getLimit());
+		assertTrue(limiter.getLimit() <= 100);
+	}
+
+	@Test
+	void doesNotGrowWhenMostlyIdle() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 100);
+
+		// 在途请求远低于限制，延迟再低也不能说明容量更大
+		complete(limiter, 50, FAST, 1);
+
+		assertEquals(10, limiter.getLimit());
+	}
+
+	@Test
+	void shrinksWhenLatencyRisesAboveBaseline() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 50, 5, 100);
+		complete(limiter, 1, FAST, 50);
+		int baseline = limiter.getLimit();
+
+		complete(limiter, 200, SLOW, 50);
+
+		assertTrue(limiter.getLimit() < baseline, "limit=" + limiter.getLimit());
+		assertTrue(limiter.getLimit() >= 5);
+	}
+
+	@Test
+	void droppedRequestsBackOffDownToMinimum() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 8, 100);
+
+		limiter.tryAcquire();
+		limiter.onDropped();
+		assertEquals(9, limiter.getLimit());
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire();
+			limiter.onDropped();
+		}
+		assertEquals(8, limiter.getLimit());
+		assertEquals(0, limiter.getInflight());
+	}
+
+	private static void complete(AdaptiveConcurrencyLimiter limiter, int requests, long rttNanos, int inflightAtStart) {
+		for (int i = 0; i < requests; i++) {
+			assertTrue(limiter.tryAcquire() > 0);
+			limiter.onSuccess(rttNanos, inflightAtStart);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 布隆过滤器测试
+ * 验证按预期元素数和误判率计算的位数与哈希函数个数、已添加元素没有漏判，以及实测误判率接近目标
+ */
+class BloomFilterTest {
+
+	private static final int INSERTIONS = 10_000;
+
+	@Test
+	void sizedFromExpectedInsertionsAndRate() {
+		BloomFilter filter = new BloomFilter(INSERTIONS, 0.01);
+
+		// m = -n·ln(p) / (ln2)² ≈ 95851 位，向上取整到 64 位的倍数；k = m/n·ln2 ≈ 7
+		assertEquals(95_872, filter.getBitCount());
+		assertEquals(7, filter.getHashFunctions());
+		assertEquals(95_872 / 8, filter.getMemoryBytes());
+		assertEquals(0.01, filter.expectedFalsePositiveRate(INSERTIONS), 0.001);
+	}
+
+	@Test
+	void addedElementsAreNeverReportedAbsent() {
+		BloomFilter filter = new BloomFilter(INSERTIONS, 0.01);
+		for (int i = 0; i < INSERTIONS; i++) {
+			filter.put("student-" + i);
+		}
+
+		for (int i = 0; i < INSERTIONS; i++) {
+			assertTrue(filter.mightContain("student-" + i), "student-" + i);
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTarget() {
+		BloomFilter filter = new BloomFilter(INSERTIONS, 0.01);
+		for (int i = 0; i < INSERTIONS; i++) {
+			filter.put("student-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < INSERTIONS; i++) {
+			if (filter.mightContain("absent-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < INSERTIONS * 0.02, "falsePositives=" + falsePositives);
+	}
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(100, 0.01);
+		assertFalse(filter.mightContain("anything"));
+		assertFalse(filter.mightContain(""));
+	}
+}
@@ -0,0 +1,91 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试
+ * 每层 4 个槽、刻度 5 毫秒，三层共覆盖 64 个刻度：验证各层任务（含需要逐层下放的任务）不提前到期、取消后不执行
+ */
+class HierarchicalTimerWheelTest {
+
+	private static final long TICK_MS = 5;
+
+	private HierarchicalTimerWheel wheel;
+
+	@BeforeEach
+	void setUp() {
+		wheel = new HierarchicalTimerWheel("timer-wheel-test", TICK_MS, TimeUnit.MILLISECONDS, 4, 3);
+	}
+
+	@AfterEach
+	void tearDown() {
+		wheel.close();
+	}
+
+	@Test
+	void tasksOnEveryLevelExpireAfterTheirDelay() throws InterruptedException {
+		// 2 个刻度在第 0 层，10 个刻度在第 1 层，40 个刻度在第 2 层，需两次下放
+		long[] delays = {10, 50, 200};
+		CountDownLatch done = new CountDownLatch(delays.length);
+		AtomicLong[] elapsed = new AtomicLong[delays.length];
+		long startedAt = System.nanoTime();
+		for (int i = 0; i < delays.length; i++) {
+			AtomicLong slot = elapsed[i] = new AtomicLong(-1);
+			wheel.schedule(() -> {
+				slot.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+				done.countDown();
+			}, delays[i], TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < delays.length; i++) {
+			assertTrue(elapsed[i].get() >= delays[i], "延迟 " + delays[i] + " ms 的任务提前到期: " + elapsed[i].get());
+		}
+		assertEquals(3, wheel.expiredCount());
+		assertEquals(0, wheel.pendingCount());
+	}
+
+	@Test
+	void cancelledTaskDoesNotRun() throws InterruptedException {
+		AtomicBoolean ran = new AtomicBoolean();
+		HierarchicalTimerWheel.Timeout cancelled = wheel.schedule(() -> ran.set(true), 50, TimeUnit.MILLISECONDS);
+		CountDownLatch later = new CountDownLatch(1);
+		wheel.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.cancel());
+
+		assertTrue(later.await(5, TimeUnit.SECONDS));
+		assertFalse(ran.get());
+		assertFalse(cancelled.isExpired());
+		assertEquals(1, wheel.expiredCount());
+	}
+
+	@Test
+	void expiredTaskCannotBeCancelled() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		HierarchicalTimerWheel.Timeout timeout = wheel.schedule(done::countDown, 10, TimeUnit.MILLISECONDS);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(timeout.isExpired());
+		assertFalse(timeout.cancel());
+	}
+
+	@Test
+	void delayBeyondWheelRangeIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> wheel.schedule(() -> { }, 64 * TICK_MS + 50, TimeUnit.MILLISECONDS));
+	}
+}
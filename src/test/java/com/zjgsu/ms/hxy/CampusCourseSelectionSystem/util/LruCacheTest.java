@@ -0,0 +1,57 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 本地 LRU 缓存测试
+ * 验证超过容量时淘汰最久未访问的条目、过期条目在访问时移除，以及命中统计
+ */
+class LruCacheTest {
+
+	@Test
+	void evictsLeastRecentlyAccessedEntry() {
+		LruCache<String, Integer> cache = new LruCache<>(2, 1, TimeUnit.MINUTES);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		// 访问 a 之后 b 成为最久未访问的条目
+		assertEquals(1, cache.get("a"));
+
+		cache.put("c", 3);
+
+		assertNull(cache.peek("b"));
+		assertEquals(1, cache.peek("a"));
+		assertEquals(3, cache.peek("c"));
+		assertEquals(1L, cache.getMetrics().get("evictions"));
+	}
+
+	@Test
+	void expiredEntryIsRemovedOnAccess() throws InterruptedException {
+		LruCache<String, Integer> cache = new LruCache<>(10, 20, TimeUnit.MILLISECONDS);
+		cache.put("a", 1);
+		Thread.sleep(50);
+
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+		assertEquals(1L, cache.getMetrics().get("expirations"));
+	}
+
+	@Test
+	void countsHitsAndMissesButNotPeeks() {
+		LruCache<String, Integer> cache = new LruCache<>(10, 1, TimeUnit.MINUTES);
+		cache.put("a", 1);
+
+		cache.get("a");
+		cache.get("missing");
+		cache.peek("a");
+		assertEquals(1, cache.invalidate("a"));
+		cache.get("a");
+
+		assertEquals(1L, cache.getMetrics().get("hits"));
+		assertEquals(2L, cache.getMetrics().get("misses"));
+	}
+}
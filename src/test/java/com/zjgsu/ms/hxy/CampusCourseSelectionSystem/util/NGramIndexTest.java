@@ -0,0 +1,77 @@
+package com.zjgsu.ms.hxy.CampusCourseSelectionSystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二元组倒排索引测试
+ * 验证查询结果与子串匹配一致（含中文、单字、全角和大小写）、命中字段与位置，以及替换和删除文档
+ */
+class NGramIndexTest {
+
+	@Test
+	void matchesSubstringsNotJustSharedBigrams() {
+		NGramIndex<String> index = new NGramIndex<>();
+		index.put("java", "Java程序设计", "CS101", null);
+		index.put("data", "数据结构", "CS201", "程序设计基础的后续课程");
+		index.put("mixed", "设计程序", "CS301", null);
+
+		assertEquals(Set.of("java", "data"), keys(index.search("程序设计")));
+		// "设计程序" 与 "程序设计" 的二元组有重叠，但只有包含完整关键词的文档命中
+		assertEquals(Set.of("mixed"), keys(index.search("设计程序")));
+		assertTrue(index.search("操作系统").isEmpty());
+	}
+
+	@Test
+	void singleCharacterAndNormalizedQueries() {
+		NGramIndex<String> index = new NGramIndex<>();
+		index.put("java", "Java程序设计", "CS101", null);
+		index.put("math", "高等数学", "MA101", null);
+
+		assertEquals(Set.of("math"), keys(index.search("数")));
+		assertEquals(Set.of("java"), keys(index.search("  ＪＡＶＡ ")));
+		assertEquals(Set.of("java", "math"), keys(index.search("101")));
+		assertTrue(index.search("   ").isEmpty());
+	}
+
+	@Test
+	void reportsFirstMatchingFieldAndPosition() {
+		NGramIndex<String> index = new NGramIndex<>();
+		index.put("course", "算法", "ALG", "算法设计与分析");
+
+		NGramIndex.Hit<String> title = index.search("算法").get(0);
+		assertEquals(0, title.field());
+		assertEquals(0, title.position());
+		assertTrue(title.exact());
+
+		NGramIndex.Hit<String> description = index.search("分析").get(0);
+		assertEquals(2, description.field());
+		assertEquals(5, description.position());
+		assertFalse(description.exact());
+	}
+
+	@Test
+	void replacedAndRemovedDocumentsLeaveNoPostings() {
+		NGramIndex<String> index = new NGramIndex<>();
+		index.put("course", "操作系统", "OS101", null);
+		index.put("course", "计算机网络", "NET101", null);
+
+		assertTrue(index.search("操作").isEmpty());
+		assertEquals(Set.of("course"), keys(index.search("网络")));
+
+		index.remove("course");
+		assertEquals(0, index.size());
+		assertEquals(0, index.getGramCount());
+	}
+
+	private static Set<String> keys(List<NGramIndex.Hit<String>> hits) {
+		return hits.stream().map(NGramIndex.Hit::key).collect(Collectors.toSet());
+	}
+}